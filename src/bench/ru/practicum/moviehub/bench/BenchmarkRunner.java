@@ -0,0 +1,44 @@
+package ru.practicum.moviehub.bench;
+
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.results.format.ResultFormatFactory;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Прогоняет JMH-бенчмарки с несколькими числами потоков и складывает результаты в один JSON-файл,
+ * чтобы прогоны до и после изменения можно было сравнивать.
+ * <p>
+ * Запуск: {@code java BenchmarkRunner [потоки через запятую] [файл результатов] [регулярка бенчмарков]},
+ * по умолчанию {@code 1,4}, {@code jmh-result.json} и все бенчмарки проекта.
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, IOException {
+        String threads = args.length > 0 ? args[0] : "1,4";
+        String resultFile = args.length > 1 ? args[1] : "jmh-result.json";
+        String include = args.length > 2 ? args[2] : "ru\\.practicum\\.moviehub\\..*";
+
+        List<RunResult> results = new ArrayList<>();
+        for (String count : threads.split(",")) {
+            Options options = new OptionsBuilder()
+                    .include(include)
+                    .threads(Integer.parseInt(count.trim()))
+                    .build();
+            results.addAll(new Runner(options).run());
+        }
+        try (PrintStream out = new PrintStream(resultFile, StandardCharsets.UTF_8)) {
+            ResultFormatFactory.getInstance(ResultFormatType.JSON, out).writeOut(results);
+        }
+        System.out.println("Результаты: " + resultFile);
+    }
+}
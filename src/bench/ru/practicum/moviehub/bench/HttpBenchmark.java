@@ -0,0 +1,104 @@
+package ru.practicum.moviehub.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.moviehub.http.HttpBackend;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Полный круг запроса через локальный сервер: разбор, обработчик, хранилище и ответ.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HttpBenchmark {
+    private static final String MOVIE_JSON = "{\"title\":\"Benchmark movie\",\"year\":2000}";
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    @Param({"JDK", "NIO"})
+    public HttpBackend backend;
+
+    private MoviesStore store;
+    private MoviesServer server;
+    private HttpClient client;
+    private String base;
+    private HttpRequest listRequest;
+    private HttpRequest postRequest;
+
+    @Setup(Level.Trial)
+    public void start() {
+        store = new MoviesStore();
+        store.addAll(StoreBenchmark.drafts(catalogSize));
+        server = new MoviesServer(store, 0, ServerConfig.defaults().withBackend(backend));
+        server.start();
+        base = "http://localhost:" + server.getPort();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        listRequest = HttpRequest.newBuilder(URI.create(base + "/movies?year=2000&limit=100")).GET().build();
+        postRequest = HttpRequest.newBuilder(URI.create(base + "/movies"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(MOVIE_JSON))
+                .build();
+    }
+
+    @TearDown(Level.Iteration)
+    public void trim() {
+        store.getPage(catalogSize, Integer.MAX_VALUE).forEach(movie -> store.deleteById(movie.getId()));
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        server.stop();
+        client.close();
+    }
+
+    @Benchmark
+    public byte[] getById() throws IOException, InterruptedException {
+        int id = ThreadLocalRandom.current().nextInt(1, catalogSize + 1);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + "/movies/" + id)).GET().build();
+        return send(request);
+    }
+
+    @Benchmark
+    public byte[] listByYear() throws IOException, InterruptedException {
+        return send(listRequest);
+    }
+
+    @Benchmark
+    public byte[] post() throws IOException, InterruptedException {
+        return send(postRequest);
+    }
+
+    private byte[] send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() >= 400) {
+            throw new IllegalStateException("Неожиданный статус " + response.statusCode() + " для " + request.uri());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,82 @@
+package ru.practicum.moviehub.bench;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.moviehub.json.MovieJson;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сериализация фильмов: Gson через рефлексию, {@link MovieJson} и кэш JSON в хранилище.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonBenchmark {
+    private static final Gson GSON = new Gson();
+
+    @Param({"100"})
+    public int listSize;
+
+    private MoviesStore store;
+    private Movie movie;
+    private List<Movie> movies;
+    private String movieJson;
+
+    @Setup
+    public void prepare() {
+        store = new MoviesStore();
+        store.addAll(StoreBenchmark.drafts(listSize));
+        movies = store.getAll();
+        movie = movies.get(0);
+        movieJson = GSON.toJson(movie);
+    }
+
+    @Benchmark
+    public String gsonMovie() {
+        return GSON.toJson(movie);
+    }
+
+    @Benchmark
+    public String gsonList() {
+        return GSON.toJson(movies);
+    }
+
+    @Benchmark
+    public Movie gsonParseMovie() {
+        return GSON.fromJson(movieJson, Movie.class);
+    }
+
+    @Benchmark
+    public byte[] gsonMovieBytes() {
+        // так ответ с одним фильмом собирался до MovieJson
+        return GSON.toJson(movie).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] movieJsonBytes() {
+        return MovieJson.toBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] storeCachedJson() {
+        return store.toJson(movie);
+    }
+}
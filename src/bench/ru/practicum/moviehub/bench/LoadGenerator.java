@@ -0,0 +1,293 @@
+package ru.practicum.moviehub.bench;
+
+import com.google.gson.GsonBuilder;
+import ru.practicum.moviehub.http.AdmissionConfig;
+import ru.practicum.moviehub.http.HttpBackend;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.metrics.LatencyHistogram;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.StoreLayout;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Нагрузочный прогон локального сервера с постоянной частотой запросов.
+ * <p>
+ * Нагрузка открытая: запросы уходят по расписанию, не дожидаясь ответов на предыдущие, а задержка
+ * считается от момента, когда запрос должен был уйти по расписанию. Поэтому медленный сервер
+ * не притормаживает генератор и не прячет от замера очередь, которая из-за него копится
+ * (coordinated omission).
+ * <p>
+ * Последовательность операций и их параметры задаются зерном, так что прогоны с одинаковыми
+ * параметрами шлют одни и те же запросы.
+ * <p>
+ * Запуск: {@code java LoadGenerator [параметр=значение ...]}:
+ * <ul>
+ *     <li>{@code rate} — запросов в секунду, по умолчанию 1000;</li>
+ *     <li>{@code duration} и {@code warmup} — длительность замера и разогрева в секундах, 30 и 5;</li>
+ *     <li>{@code mix} — доли операций, по умолчанию {@code list:10,byId:50,year:25,post:10,delete:5};</li>
+ *     <li>{@code seed} — зерно, 1;</li>
+ *     <li>{@code catalog} — фильмов в каталоге до начала, 10 000;</li>
+ *     <li>{@code backend}, {@code layout}, {@code threads} — настройки сервера, как у приложения;</li>
+ *     <li>{@code out} — файл с результатами в JSON, {@code load-result.json}.</li>
+ * </ul>
+ */
+public class LoadGenerator {
+    private static final Map<String, Double> PERCENTILES = new LinkedHashMap<>();
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        PERCENTILES.put("p50", 50.0);
+        PERCENTILES.put("p90", 90.0);
+        PERCENTILES.put("p99", 99.0);
+        PERCENTILES.put("p99.9", 99.9);
+        PERCENTILES.put("max", 100.0);
+        DEFAULTS.put("rate", "1000");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "5");
+        DEFAULTS.put("mix", "list:10,byId:50,year:25,post:10,delete:5");
+        DEFAULTS.put("seed", "1");
+        DEFAULTS.put("catalog", "10000");
+        DEFAULTS.put("backend", HttpBackend.JDK.name());
+        DEFAULTS.put("layout", StoreLayout.OBJECTS.name());
+        DEFAULTS.put("threads", "");
+        DEFAULTS.put("out", "load-result.json");
+    }
+
+    private final HttpClient client;
+    private final String base;
+    private final Random random;
+    private final int catalogSize;
+    private final LoadOperation[] operations;
+    private final int[] cumulativeWeights;
+    private final AtomicLong inFlight = new AtomicLong();
+
+    LoadGenerator(HttpClient client, String base, long seed, int catalogSize, Map<LoadOperation, Integer> mix) {
+        this.client = client;
+        this.base = base;
+        this.random = new Random(seed);
+        this.catalogSize = catalogSize;
+        this.operations = mix.keySet().toArray(new LoadOperation[0]);
+        this.cumulativeWeights = new int[operations.length];
+        int total = 0;
+        for (int i = 0; i < operations.length; i++) {
+            total += mix.get(operations[i]);
+            cumulativeWeights[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("В смеси операций нет ни одной операции с положительной долей");
+        }
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Map<String, String> params = parseArgs(args);
+        double rate = Double.parseDouble(params.get("rate"));
+        int duration = Integer.parseInt(params.get("duration"));
+        int warmup = Integer.parseInt(params.get("warmup"));
+        long seed = Long.parseLong(params.get("seed"));
+        int catalog = Integer.parseInt(params.get("catalog"));
+        Map<LoadOperation, Integer> mix = parseMix(params.get("mix"));
+        if (rate <= 0 || duration <= 0 || warmup < 0 || catalog < 0) {
+            throw new IllegalArgumentException("Частота и длительность должны быть положительными");
+        }
+
+        MoviesStore store = new MoviesStore(StoreLayout.valueOf(params.get("layout").toUpperCase()));
+        store.addAll(StoreBenchmark.drafts(catalog));
+        ServerConfig config = ServerConfig.parse(params.get("threads"))
+                .withBackend(HttpBackend.valueOf(params.get("backend").toUpperCase()));
+        MoviesServer server = new MoviesServer(store, 0, config, AdmissionConfig.defaults(config));
+        server.start();
+        try (HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()) {
+            LoadGenerator generator = new LoadGenerator(client, "http://localhost:" + server.getPort(), seed, catalog, mix);
+            if (warmup > 0) {
+                System.out.printf("разогрев: %d с%n", warmup);
+                generator.run(rate, warmup);
+            }
+            System.out.printf("замер: %d с, %.0f запросов в секунду, зерно %d%n", duration, rate, seed);
+            Map<LoadOperation, OperationStats> stats = generator.run(rate, duration);
+
+            List<OperationReport> reports = report(stats, duration);
+            print(reports);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("params", params);
+            result.put("operations", reports);
+            try (Writer out = Files.newBufferedWriter(Path.of(params.get("out")), StandardCharsets.UTF_8)) {
+                new GsonBuilder().setPrettyPrinting().create().toJson(result, out);
+            }
+            System.out.println("Результаты: " + params.get("out"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    /**
+     * Шлёт запросы {@code seconds} секунд с частотой {@code rate} и ждёт ответов на все отправленные.
+     */
+    Map<LoadOperation, OperationStats> run(double rate, int seconds) throws InterruptedException {
+        Map<LoadOperation, OperationStats> stats = new EnumMap<>(LoadOperation.class);
+        for (LoadOperation operation : operations) {
+            stats.put(operation, new OperationStats());
+        }
+        long total = (long) (rate * seconds);
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        for (long i = 0; i < total; i++) {
+            // момент отправки по расписанию; если генератор отстал, запросы уходят сразу, но задержка
+            // всё равно считается от расписания
+            long scheduled = start + (long) (i * 1e9 / rate);
+            long delay = scheduled - System.nanoTime();
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+            LoadOperation operation = nextOperation();
+            HttpRequest request = operation.createRequest(base, random, catalogSize);
+            OperationStats operationStats = stats.get(operation);
+            inFlight.incrementAndGet();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+                operationStats.record(System.nanoTime() - scheduled, response == null ? -1 : response.statusCode());
+                inFlight.decrementAndGet();
+            });
+        }
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+        return stats;
+    }
+
+    private LoadOperation nextOperation() {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (pick < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        return operations[operations.length - 1];
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> params = new LinkedHashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0 || !DEFAULTS.containsKey(arg.substring(0, eq))) {
+                throw new IllegalArgumentException("Неизвестный параметр: " + arg + ", допустимы " + DEFAULTS.keySet());
+            }
+            params.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+        return params;
+    }
+
+    /**
+     * Разбирает смесь вида {@code list:10,byId:50}; порядок операций сохраняется, чтобы выбор по зерну
+     * не зависел от того, как устроена карта.
+     */
+    static Map<LoadOperation, Integer> parseMix(String value) {
+        Map<LoadOperation, Integer> mix = new LinkedHashMap<>();
+        for (String part : value.split(",")) {
+            int colon = part.indexOf(':');
+            if (colon <= 0) {
+                throw new IllegalArgumentException("Некорректная смесь операций: " + value);
+            }
+            int weight = Integer.parseInt(part.substring(colon + 1).trim());
+            if (weight < 0) {
+                throw new IllegalArgumentException("Доля операции не может быть отрицательной: " + part);
+            }
+            mix.put(LoadOperation.fromToken(part.substring(0, colon).trim()), weight);
+        }
+        return mix;
+    }
+
+    private static List<OperationReport> report(Map<LoadOperation, OperationStats> stats, int seconds) {
+        List<OperationReport> reports = new ArrayList<>();
+        OperationStats total = new OperationStats();
+        for (Map.Entry<LoadOperation, OperationStats> entry : stats.entrySet()) {
+            if (entry.getValue().latency.getCount() > 0) {
+                reports.add(entry.getValue().report(entry.getKey().getToken(), seconds));
+                entry.getValue().addTo(total);
+            }
+        }
+        reports.add(total.report("total", seconds));
+        return reports;
+    }
+
+    private static void print(List<OperationReport> reports) {
+        System.out.printf("%-8s %9s %9s %7s %7s %7s %9s %9s %9s %9s %9s%n", "операция", "запросов", "в сек",
+                "4xx", "5xx", "сбоев", "p50 мс", "p90 мс", "p99 мс", "p99.9 мс", "max мс");
+        for (OperationReport report : reports) {
+            System.out.printf("%-8s %9d %9.1f %7d %7d %7d %9.3f %9.3f %9.3f %9.3f %9.3f%n", report.operation,
+                    report.requests, report.throughput, report.clientErrors, report.serverErrors, report.failures,
+                    report.latencyMillis.get("p50"), report.latencyMillis.get("p90"), report.latencyMillis.get("p99"),
+                    report.latencyMillis.get("p99.9"), report.latencyMillis.get("max"));
+        }
+    }
+
+    static class OperationStats {
+        final LatencyHistogram latency = new LatencyHistogram();
+        final AtomicLong clientErrors = new AtomicLong();
+        final AtomicLong serverErrors = new AtomicLong();
+        final AtomicLong failures = new AtomicLong();
+
+        /**
+         * @param status код ответа или -1, если ответа не было (тайм-аут, обрыв соединения)
+         */
+        void record(long latencyNanos, int status) {
+            latency.record(latencyNanos);
+            if (status < 0) {
+                failures.incrementAndGet();
+            } else if (status >= 500) {
+                serverErrors.incrementAndGet();
+            } else if (status >= 400) {
+                clientErrors.incrementAndGet();
+            }
+        }
+
+        void addTo(OperationStats total) {
+            total.latency.add(latency);
+            total.clientErrors.addAndGet(clientErrors.get());
+            total.serverErrors.addAndGet(serverErrors.get());
+            total.failures.addAndGet(failures.get());
+        }
+
+        OperationReport report(String name, int seconds) {
+            OperationReport report = new OperationReport(name);
+            report.requests = latency.getCount();
+            report.throughput = (double) report.requests / seconds;
+            report.clientErrors = clientErrors.get();
+            report.serverErrors = serverErrors.get();
+            report.failures = failures.get();
+            for (Map.Entry<String, Double> percentile : PERCENTILES.entrySet()) {
+                report.latencyMillis.put(percentile.getKey(), latency.valueAtPercentile(percentile.getValue()) / 1000.0);
+            }
+            return report;
+        }
+    }
+
+    static class OperationReport {
+        final String operation;
+        final Map<String, Double> latencyMillis = new LinkedHashMap<>();
+        long requests;
+        double throughput;
+        long clientErrors;
+        long serverErrors;
+        long failures;
+
+        OperationReport(String operation) {
+            this.operation = operation;
+        }
+    }
+}
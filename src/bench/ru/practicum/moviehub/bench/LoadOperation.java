@@ -0,0 +1,90 @@
+package ru.practicum.moviehub.bench;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.Random;
+
+/**
+ * Запрос, из которых складывается нагрузка {@link LoadGenerator}.
+ */
+enum LoadOperation {
+    /**
+     * {@code GET /movies} — первая страница каталога.
+     */
+    LIST("list"),
+    /**
+     * {@code GET /movies/{id}} — фильм из исходного каталога.
+     */
+    BY_ID("byId"),
+    /**
+     * {@code GET /movies?year=...} — фильтр по году.
+     */
+    BY_YEAR("year"),
+    /**
+     * {@code POST /movies} — новый фильм.
+     */
+    POST("post"),
+    /**
+     * {@code DELETE /movies/{id}} — фильм из исходного каталога; повторное удаление даёт 404.
+     */
+    DELETE("delete");
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+    private static final int PAGE_SIZE = 100;
+
+    private final String token;
+
+    LoadOperation(String token) {
+        this.token = token;
+    }
+
+    String getToken() {
+        return token;
+    }
+
+    static LoadOperation fromToken(String token) {
+        for (LoadOperation operation : values()) {
+            if (operation.token.equalsIgnoreCase(token)) {
+                return operation;
+            }
+        }
+        throw new IllegalArgumentException("Неизвестная операция: " + token);
+    }
+
+    /**
+     * Случайные параметры запроса берутся из {@code random}, поэтому при одном зерне последовательность
+     * запросов одна и та же.
+     */
+    HttpRequest createRequest(String base, Random random, int catalogSize) {
+        switch (this) {
+            case BY_ID:
+                return request(base + "/movies/" + randomId(random, catalogSize)).GET().build();
+            case BY_YEAR:
+                return request(base + "/movies?year=" + randomYear(random) + "&limit=" + PAGE_SIZE).GET().build();
+            case POST:
+                String json = "{\"title\":\"Load movie " + random.nextInt(1_000_000) + "\",\"year\":"
+                        + randomYear(random) + "}";
+                return request(base + "/movies")
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json))
+                        .build();
+            case DELETE:
+                return request(base + "/movies/" + randomId(random, catalogSize)).DELETE().build();
+            default:
+                return request(base + "/movies?limit=" + PAGE_SIZE).GET().build();
+        }
+    }
+
+    private static HttpRequest.Builder request(String uri) {
+        return HttpRequest.newBuilder(URI.create(uri)).timeout(TIMEOUT);
+    }
+
+    private static int randomId(Random random, int catalogSize) {
+        return 1 + random.nextInt(Math.max(1, catalogSize));
+    }
+
+    private static int randomYear(Random random) {
+        return StoreBenchmark.FIRST_YEAR + random.nextInt(StoreBenchmark.YEARS);
+    }
+}
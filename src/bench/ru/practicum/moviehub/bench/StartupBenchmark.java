@@ -0,0 +1,78 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Время запуска хранилища со снимком и без него.
+ * <p>
+ * Запуск: {@code java StartupBenchmark [количество фильмов] [повторы]}, по умолчанию 1 000 000 и 5.
+ */
+public class StartupBenchmark {
+    private static final int BATCH = 10_000;
+
+    public static void main(String[] args) throws IOException {
+        int movies = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        Path logOnly = Files.createTempDirectory("movies-startup-log");
+        Path withSnapshot = Files.createTempDirectory("movies-startup-snapshot");
+        try {
+            // период снимков больше объёма данных, чтобы в первом каталоге остался только журнал
+            fill(MoviesStore.open(logOnly, Integer.MAX_VALUE), movies, false);
+            fill(MoviesStore.open(withSnapshot, Integer.MAX_VALUE), movies, true);
+            System.out.printf("фильмов: %d, журнал: %d МБ, снимок: %d МБ%n", movies,
+                    Files.size(logOnly.resolve("movies.wal")) >> 20,
+                    Files.size(withSnapshot.resolve("movies.snapshot")) >> 20);
+
+            for (int run = 1; run <= runs; run++) {
+                System.out.printf("запуск %d: журнал %d мс, снимок %d мс%n",
+                        run, measureOpen(logOnly, movies), measureOpen(withSnapshot, movies));
+            }
+        } finally {
+            delete(logOnly);
+            delete(withSnapshot);
+        }
+    }
+
+    private static void fill(MoviesStore store, int movies, boolean snapshot) throws IOException {
+        List<MovieDraft> batch = new ArrayList<>(BATCH);
+        for (int i = 0; i < movies; i++) {
+            batch.add(new MovieDraft("Movie " + i, 1900 + i % 120));
+            if (batch.size() == BATCH) {
+                store.addAll(batch);
+                batch.clear();
+            }
+        }
+        store.addAll(batch);
+        if (snapshot) {
+            store.snapshot();
+        }
+        // хранилища здесь не закрываются: close снимает снимок, а для замера нужен именно журнал;
+        // все записи к этому моменту уже сброшены на диск
+    }
+
+    private static long measureOpen(Path dir, int expected) throws IOException {
+        long start = System.nanoTime();
+        MoviesStore store = MoviesStore.open(dir, Integer.MAX_VALUE);
+        long elapsed = (System.nanoTime() - start) / 1_000_000;
+        if (store.getAll().size() != expected) {
+            throw new IllegalStateException("Восстановлено не всё содержимое: " + dir);
+        }
+        return elapsed;
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+}
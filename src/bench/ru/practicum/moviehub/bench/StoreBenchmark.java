@@ -0,0 +1,131 @@
+package ru.practicum.moviehub.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.StoreLayout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Операции хранилища в памяти на каталогах разного размера, во всех раскладках, целиком и по частям.
+ * <p>
+ * Хранилище общее для всех потоков, так что при запуске с несколькими потоками
+ * ({@link BenchmarkRunner}) меряется и конкуренция за него.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StoreBenchmark {
+    static final int FIRST_YEAR = 1900;
+    static final int YEARS = 120;
+    // столько фильмов запрашивает страница API: предел страницы и ещё один, чтобы узнать о следующей
+    static final int PAGE_LIMIT = 1001;
+
+    @Param({"1000", "100000", "1000000"})
+    public int catalogSize;
+
+    @Param({"OBJECTS", "COLUMNAR", "SNAPSHOT"})
+    public StoreLayout layout;
+
+    /**
+     * Число частей таблицы: при нескольких частях большие списки и выборки по году собираются параллельно.
+     */
+    @Param({"1", "8"})
+    public int shards;
+
+    private MoviesStore store;
+
+    @Setup(Level.Trial)
+    public void fill() {
+        store = new MoviesStore(layout, shards);
+        store.addAll(drafts(catalogSize));
+    }
+
+    /**
+     * Убирает фильмы, добавленные за итерацию, чтобы размер каталога не уплывал от заявленного.
+     */
+    @TearDown(Level.Iteration)
+    public void trim() {
+        for (Movie movie : store.getPage(catalogSize, Integer.MAX_VALUE)) {
+            store.deleteById(movie.getId());
+        }
+    }
+
+    @Benchmark
+    public Movie add() {
+        return store.add("Benchmark movie", randomYear());
+    }
+
+    /**
+     * Удаление меряется в паре с добавлением: иначе за итерацию каталог бы опустел.
+     */
+    @Benchmark
+    public boolean addAndDeleteById() {
+        return store.deleteById(store.add("Benchmark movie", randomYear()).getId());
+    }
+
+    @Benchmark
+    public Optional<Movie> getById() {
+        return store.getById(ThreadLocalRandom.current().nextInt(1, catalogSize + 1));
+    }
+
+    @Benchmark
+    public List<Movie> getByYear() {
+        return store.getByYear(randomYear());
+    }
+
+    /**
+     * Страница списка с произвольного места каталога в размер, который запрашивает API.
+     */
+    @Benchmark
+    public List<Movie> getPage() {
+        return store.getPage(ThreadLocalRandom.current().nextInt(catalogSize), PAGE_LIMIT);
+    }
+
+    /**
+     * Первая страница выборки за десятилетие в размер, который запрашивает API.
+     */
+    @Benchmark
+    public List<Movie> getByYearRangePage() {
+        int from = randomYear();
+        return store.getByYearRange(from, from + 9, from, 0, PAGE_LIMIT);
+    }
+
+    @Benchmark
+    public List<Movie> getAll() {
+        return store.getAll();
+    }
+
+    static List<MovieDraft> drafts(int count) {
+        List<MovieDraft> drafts = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            drafts.add(new MovieDraft("Movie " + i, FIRST_YEAR + i % YEARS));
+        }
+        return drafts;
+    }
+
+    private static int randomYear() {
+        return FIRST_YEAR + ThreadLocalRandom.current().nextInt(YEARS);
+    }
+}
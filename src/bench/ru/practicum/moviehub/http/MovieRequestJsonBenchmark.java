@@ -0,0 +1,53 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Разбор тела {@code POST /movies}: прежний путь (всё тело в строку, затем Gson через рефлексию)
+ * против потокового {@link MovieRequestTypeAdapter}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MovieRequestJsonBenchmark {
+    private static final Gson REFLECTIVE = new Gson();
+    private static final byte[] BODY = "{\"title\":\"Вечное сияние чистого разума\",\"year\":2004}"
+            .getBytes(StandardCharsets.UTF_8);
+
+    // тела запросов у встроенного сервера — FilterInputStream, и readAllBytes у них общий, блоками по 16 КБ,
+    // а не точная копия массива, как у ByteArrayInputStream
+    private static InputStream body() {
+        return new FilterInputStream(new ByteArrayInputStream(BODY)) {
+        };
+    }
+
+    @Benchmark
+    public MovieRequest reflectiveFromString() throws IOException {
+        String json = new String(body().readAllBytes(), StandardCharsets.UTF_8);
+        return REFLECTIVE.fromJson(json, MovieRequest.class);
+    }
+
+    @Benchmark
+    public MovieRequest streamingAdapter() throws IOException {
+        return MovieRequestTypeAdapter.read(body());
+    }
+}
@@ -1,12 +1,75 @@
 package ru.practicum.moviehub;
 
+import ru.practicum.moviehub.http.AdmissionConfig;
+import ru.practicum.moviehub.http.HttpBackend;
 import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.replication.ReplicationFollower;
+import ru.practicum.moviehub.replication.ReplicationLeader;
+import ru.practicum.moviehub.replication.ReplicationNode;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.StoreLayout;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
 
 public class MovieHubApp {
-    public static void main(String[] args) {
-        final MoviesServer server = new MoviesServer(new MoviesStore(), 8080);
-        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    public static void main(String[] args) throws IOException {
+        final ServerConfig threads = ServerConfig.parse(System.getProperty("moviehub.threads"));
+        final ServerConfig config = threads
+                .withBackend(HttpBackend.valueOf(
+                        System.getProperty("moviehub.backend", HttpBackend.JDK.name()).toUpperCase()))
+                .withBacklog(Integer.getInteger("moviehub.backlog", threads.getBacklog()))
+                .withKeepAlive(Boolean.parseBoolean(System.getProperty("moviehub.keepAlive", "true")))
+                .withIdleTimeout(Duration.ofSeconds(
+                        Long.getLong("moviehub.idleTimeout", threads.getIdleTimeout().toSeconds())))
+                .withResponseCache(Integer.getInteger("moviehub.cache.entries", threads.getResponseCacheEntries()),
+                        Long.getLong("moviehub.cache.bytes", threads.getResponseCacheBytes()));
+        final AdmissionConfig admission = AdmissionConfig.parse(System.getProperty("moviehub.rateLimit"), config);
+        final StoreLayout layout = StoreLayout.valueOf(
+                System.getProperty("moviehub.layout", StoreLayout.OBJECTS.name()).toUpperCase());
+        final int shards = Integer.getInteger("moviehub.shards", 1);
+        final String dataDir = System.getProperty("moviehub.data");
+        final MoviesStore store = dataDir == null
+                ? new MoviesStore(layout, shards)
+                : MoviesStore.open(Path.of(dataDir), layout, shards);
+        final ReplicationNode replication = startReplication(store);
+        final MoviesServer server = new MoviesServer(store, Integer.getInteger("moviehub.port", 8080),
+                config, admission, replication);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop();
+            if (replication != null) {
+                replication.close();
+            }
+            try {
+                store.close();
+            } catch (IOException e) {
+                System.err.println("Не удалось закрыть хранилище: " + e.getMessage());
+            }
+        }));
         server.start();
     }
-}
\ No newline at end of file
+
+    /**
+     * Лидер слушает реплики на {@code -Dmoviehub.replication.port}; реплика подключается к
+     * {@code -Dmoviehub.replication.leader=host:port} и перенаправляет запись на {@code -Dmoviehub.replication.leaderUrl}.
+     */
+    private static ReplicationNode startReplication(MoviesStore store) throws IOException {
+        final String leader = System.getProperty("moviehub.replication.leader");
+        if (leader != null) {
+            int colon = leader.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Адрес лидера должен быть вида host:port: " + leader);
+            }
+            final String leaderUrl = System.getProperty("moviehub.replication.leaderUrl");
+            return ReplicationFollower.start(store,
+                    new InetSocketAddress(leader.substring(0, colon), Integer.parseInt(leader.substring(colon + 1))),
+                    leaderUrl == null ? null : URI.create(leaderUrl));
+        }
+        final Integer port = Integer.getInteger("moviehub.replication.port");
+        return port == null ? null : ReplicationLeader.start(store, port);
+    }
+}
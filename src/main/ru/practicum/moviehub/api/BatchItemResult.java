@@ -0,0 +1,49 @@
+package ru.practicum.moviehub.api;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+
+public class BatchItemResult {
+    private final int index;
+    private final int status;
+    private final Movie movie;
+    private final String error;
+    private final List<String> details;
+
+    private BatchItemResult(int index, int status, Movie movie, String error, List<String> details) {
+        this.index = index;
+        this.status = status;
+        this.movie = movie;
+        this.error = error;
+        this.details = details;
+    }
+
+    public static BatchItemResult created(int index, Movie movie) {
+        return new BatchItemResult(index, 201, movie, null, null);
+    }
+
+    public static BatchItemResult failed(int index, int status, String error, List<String> details) {
+        return new BatchItemResult(index, status, null, error, details);
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public Movie getMovie() {
+        return movie;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public List<String> getDetails() {
+        return details;
+    }
+}
@@ -0,0 +1,13 @@
+package ru.practicum.moviehub.api;
+
+public class ImportResult {
+    private final long imported;
+
+    public ImportResult(long imported) {
+        this.imported = imported;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.moviehub.http;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Ограничения на приём запросов: сколько запросов маршрута обрабатывается одновременно, сколько может
+ * ждать своей очереди и (по желанию) сколько запросов в секунду принимается от одного клиента.
+ * <p>
+ * Маршрут задаётся так же, как в метриках, например {@code "/movies/{id}"}.
+ */
+public class AdmissionConfig {
+    private static final int DEFAULT_MAX_QUEUED = 256;
+    private static final long DEFAULT_QUEUE_TIMEOUT_MILLIS = 1000;
+    private static final int DEFAULT_MAX_SUBSCRIBERS = 10_000;
+
+    private final Map<String, Limit> limits;
+    private final double permitsPerSecond;
+    private final int burst;
+
+    private AdmissionConfig(Map<String, Limit> limits, double permitsPerSecond, int burst) {
+        this.limits = limits;
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+    }
+
+    /**
+     * Без ограничений.
+     */
+    public static AdmissionConfig unlimited() {
+        return new AdmissionConfig(Map.of(), 0, 0);
+    }
+
+    /**
+     * Настройки по умолчанию для сервера с настройками по умолчанию.
+     */
+    public static AdmissionConfig defaults() {
+        return defaults(ServerConfig.defaults());
+    }
+
+    /**
+     * Запись ограничена половиной ядер на каждый маршрут, чтобы массовая загрузка не занимала все
+     * потоки сервера и чтение шло без задержек; чтение не ограничено.
+     * <p>
+     * Подписчик на изменения держит поток сервера всё время ожидания. На виртуальных потоках это дёшево,
+     * и подписчиков может быть до {@value #DEFAULT_MAX_SUBSCRIBERS}; в фиксированном пуле им отдаётся не больше
+     * половины потоков, чтобы остальные запросы не встали. Лишние подписчики получают 503 сразу, без очереди.
+     */
+    public static AdmissionConfig defaults(ServerConfig server) {
+        int writers = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+        int subscribers = server.isVirtualThreads() ? DEFAULT_MAX_SUBSCRIBERS : Math.max(1, server.getThreads() / 2);
+        return unlimited()
+                .withLimit("POST", "/movies", writers, DEFAULT_MAX_QUEUED)
+                .withLimit("POST", "/movies/batch", writers, DEFAULT_MAX_QUEUED)
+                .withLimit("DELETE", "/movies/{id}", writers, DEFAULT_MAX_QUEUED)
+                .withLimit("POST", "/movies/import", writers, DEFAULT_MAX_QUEUED)
+                .withLimit("GET", "/movies/changes", subscribers, 0);
+    }
+
+    /**
+     * Разбирает лимит запросов в секунду на клиента; пустое значение — настройки по умолчанию без лимита.
+     *
+     * @param server настройки сервера, под которые подбираются лимиты по умолчанию
+     */
+    public static AdmissionConfig parse(String rateLimit, ServerConfig server) {
+        if (rateLimit == null || rateLimit.isBlank()) {
+            return defaults(server);
+        }
+        try {
+            double permits = Double.parseDouble(rateLimit.trim());
+            return defaults(server).withRateLimit(permits, (int) Math.ceil(permits));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректный лимит запросов: " + rateLimit, e);
+        }
+    }
+
+    /**
+     * @param maxConcurrent сколько запросов обрабатывается одновременно
+     * @param maxQueued     сколько запросов может ждать; остальные сразу получают 503
+     */
+    public AdmissionConfig withLimit(String method, String route, int maxConcurrent, int maxQueued) {
+        if (maxConcurrent < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Некорректный лимит для " + method + " " + route);
+        }
+        Map<String, Limit> copy = new HashMap<>(limits);
+        copy.put(key(method, route), new Limit(maxConcurrent, maxQueued));
+        return new AdmissionConfig(Map.copyOf(copy), permitsPerSecond, burst);
+    }
+
+    /**
+     * Лимит запросов с одного адреса: в среднем {@code permitsPerSecond} в секунду, всплеском до {@code burst}.
+     */
+    public AdmissionConfig withRateLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Лимит запросов должен быть положительным: " + permitsPerSecond);
+        }
+        return new AdmissionConfig(limits, permitsPerSecond, burst);
+    }
+
+    /**
+     * @return ограничитель для метода маршрута или null, если ограничения нет
+     */
+    Bulkhead createBulkhead(String method, String route) {
+        Limit limit = limits.get(key(method, route));
+        return limit == null ? null : new Bulkhead(limit.maxConcurrent, limit.maxQueued, DEFAULT_QUEUE_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * @return ограничитель частоты или null, если лимит не задан
+     */
+    RateLimiter createRateLimiter() {
+        return permitsPerSecond > 0 ? new RateLimiter(permitsPerSecond, burst) : null;
+    }
+
+    private static String key(String method, String route) {
+        return method + " " + route;
+    }
+
+    private static class Limit {
+        final int maxConcurrent;
+        final int maxQueued;
+
+        Limit(int maxConcurrent, int maxQueued) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueued = maxQueued;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ErrorResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Допускает запрос к обработчику, только если для него есть место: иначе сразу отвечает 503 (маршрут
+ * перегружен) или 429 (клиент превысил свой лимит) с заголовком Retry-After.
+ */
+class AdmissionFilter extends Filter {
+    private static final String[] LIMITED_METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE"};
+    private static final byte[] OVERLOADED = BaseHttpHandler.GSON.toJson(
+            new ErrorResponse("Сервер перегружен, повторите запрос позже", null)).getBytes(StandardCharsets.UTF_8);
+    private static final byte[] TOO_MANY_REQUESTS = BaseHttpHandler.GSON.toJson(
+            new ErrorResponse("Слишком много запросов", null)).getBytes(StandardCharsets.UTF_8);
+
+    private final Map<String, Bulkhead> bulkheads = new HashMap<>();
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param rateLimiter общий для всех маршрутов ограничитель частоты или null
+     */
+    AdmissionFilter(AdmissionConfig config, String route, RateLimiter rateLimiter) {
+        for (String method : LIMITED_METHODS) {
+            Bulkhead bulkhead = config.createBulkhead(method, route);
+            if (bulkhead != null) {
+                bulkheads.put(method, bulkhead);
+            }
+        }
+        this.rateLimiter = rateLimiter;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        if (rateLimiter != null) {
+            long waitNanos = rateLimiter.tryAcquire(ex.getRemoteAddress().getAddress());
+            if (waitNanos > 0) {
+                reject(ex, 429, Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + 999_999_999)), TOO_MANY_REQUESTS);
+                return;
+            }
+        }
+        Bulkhead bulkhead = bulkheads.get(ex.getRequestMethod());
+        if (bulkhead == null) {
+            chain.doFilter(ex);
+            return;
+        }
+        if (!bulkhead.tryEnter()) {
+            reject(ex, 503, 1, OVERLOADED);
+            return;
+        }
+        try {
+            chain.doFilter(ex);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Ограничение нагрузки";
+    }
+
+    private static void reject(HttpExchange ex, int status, long retryAfterSeconds, byte[] body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", BaseHttpHandler.CT_JSON);
+        ex.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+        ex.sendResponseHeaders(status, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
@@ -1,28 +1,168 @@
 package ru.practicum.moviehub.http;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.json.ErrorResponseTypeAdapter;
+import ru.practicum.moviehub.json.MovieTypeAdapter;
+import ru.practicum.moviehub.model.Movie;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 public abstract class BaseHttpHandler implements HttpHandler {
     protected static final String CT_JSON = "application/json; charset=UTF-8";
-    protected static final Gson GSON = new Gson();
+    /**
+     * Фильмы, запросы и ошибки сериализуются рукописными адаптерами, без отражения.
+     */
+    protected static final Gson GSON = new GsonBuilder()
+            .registerTypeAdapter(Movie.class, new MovieTypeAdapter().nullSafe())
+            .registerTypeAdapter(MovieRequest.class, new MovieRequestTypeAdapter().nullSafe())
+            .registerTypeAdapter(ErrorResponse.class, new ErrorResponseTypeAdapter().nullSafe())
+            .create();
+    /**
+     * Тела короче этого отправляются без сжатия: выигрыш меньше, чем затраты на него.
+     */
+    protected static final int COMPRESSION_THRESHOLD = 1024;
+    private static final int STREAM_BUFFER_SIZE = 8192;
 
     protected void sendJson(HttpExchange ex, int status, String json) throws IOException {
-        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        sendJson(ex, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Отправляет JSON, сжимая его, если тело достаточно большое и клиент это принимает.
+     */
+    protected void sendJson(HttpExchange ex, int status, byte[] bytes) throws IOException {
+        ContentCoding coding = bytes.length >= COMPRESSION_THRESHOLD ? acceptedCoding(ex) : null;
+        if (coding != null) {
+            sendEncodedJson(ex, status, coding, coding.encode(bytes));
+            return;
+        }
         ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
         ex.sendResponseHeaders(status, bytes.length);
         try (OutputStream os = ex.getResponseBody()) {
             os.write(bytes);
         }
     }
 
+    /**
+     * Отправляет уже сжатый JSON.
+     */
+    protected void sendEncodedJson(HttpExchange ex, int status, ContentCoding coding, byte[] encoded) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.getResponseHeaders().set("Content-Encoding", coding.getToken());
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        ex.sendResponseHeaders(status, encoded.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(encoded);
+        }
+    }
+
+    /**
+     * @return сжатие, которое принимает клиент, или null
+     */
+    protected static ContentCoding acceptedCoding(HttpExchange ex) {
+        return ContentCoding.negotiate(ex.getRequestHeaders().getFirst("Accept-Encoding"));
+    }
+
+    /**
+     * Пишет JSON прямо в тело ответа по мере формирования, без промежуточной строки (chunked transfer encoding).
+     */
+    protected void sendJsonStream(HttpExchange ex, int status, JsonBody body) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.sendResponseHeaders(status, 0);
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(ex.getResponseBody(), StandardCharsets.UTF_8), STREAM_BUFFER_SIZE))) {
+            body.writeTo(writer);
+        }
+    }
+
+    /**
+     * Склеивает готовые JSON-фрагменты в массив и пишет его в тело ответа (chunked transfer encoding),
+     * сжимая на лету, если массив достаточно большой и клиент принимает сжатие.
+     */
+    protected void sendJsonArray(HttpExchange ex, int status, List<byte[]> elements) throws IOException {
+        ContentCoding coding = jsonArrayLength(elements) >= COMPRESSION_THRESHOLD ? acceptedCoding(ex) : null;
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (coding != null) {
+            ex.getResponseHeaders().set("Content-Encoding", coding.getToken());
+        }
+        ex.sendResponseHeaders(status, 0);
+        OutputStream body = coding != null ? coding.wrap(ex.getResponseBody()) : ex.getResponseBody();
+        try (OutputStream os = new BufferedOutputStream(body, STREAM_BUFFER_SIZE)) {
+            writeJsonArray(os, elements);
+        }
+    }
+
+    /**
+     * Массив из готовых JSON-фрагментов, сразу сжатый; для ответов, которые стоит кэшировать.
+     */
+    protected static byte[] encodeJsonArray(ContentCoding coding, List<byte[]> elements) throws IOException {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(64, jsonArrayLength(elements) / 4));
+        try (OutputStream os = coding.wrap(result)) {
+            writeJsonArray(os, elements);
+        }
+        return result.toByteArray();
+    }
+
+    /**
+     * Массив из готовых JSON-фрагментов одним буфером точного размера.
+     */
+    protected static byte[] joinJsonArray(List<byte[]> elements) {
+        byte[] result = new byte[jsonArrayLength(elements)];
+        int position = 0;
+        result[position++] = '[';
+        for (byte[] element : elements) {
+            if (position > 1) {
+                result[position++] = ',';
+            }
+            System.arraycopy(element, 0, result, position, element.length);
+            position += element.length;
+        }
+        result[position] = ']';
+        return result;
+    }
+
+    protected static int jsonArrayLength(List<byte[]> elements) {
+        int length = 2 + Math.max(0, elements.size() - 1);
+        for (byte[] element : elements) {
+            length += element.length;
+        }
+        return length;
+    }
+
+    /**
+     * Выставляет сильный ETag и, если он совпал с If-None-Match, отвечает 304 без тела.
+     *
+     * @return {@code true}, если ответ уже отправлен
+     */
+    protected boolean sendNotModifiedIfMatches(HttpExchange ex, String etag) throws IOException {
+        ex.getResponseHeaders().set("ETag", etag);
+        String ifNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+        if (ifNoneMatch == null || !etagMatches(ifNoneMatch, etag)) {
+            return false;
+        }
+        ex.sendResponseHeaders(304, -1);
+        ex.close();
+        return true;
+    }
+
+    protected static String etag(String prefix, long version) {
+        return "\"" + prefix + version + "\"";
+    }
+
     protected void sendError(HttpExchange ex, int status, String message) throws IOException {
         sendJson(ex, status, GSON.toJson(new ErrorResponse(message, null)));
     }
@@ -35,4 +175,38 @@ public abstract class BaseHttpHandler implements HttpHandler {
         ex.getResponseHeaders().set("Content-Type", CT_JSON);
         ex.sendResponseHeaders(204, -1);
     }
+
+    @FunctionalInterface
+    protected interface JsonBody {
+        void writeTo(JsonWriter writer) throws IOException;
+    }
+
+    private static void writeJsonArray(OutputStream os, List<byte[]> elements) throws IOException {
+        os.write('[');
+        boolean first = true;
+        for (byte[] element : elements) {
+            if (!first) {
+                os.write(',');
+            }
+            os.write(element);
+            first = false;
+        }
+        os.write(']');
+    }
+
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        int start = 0;
+        while (start < ifNoneMatch.length()) {
+            int end = ifNoneMatch.indexOf(',', start);
+            if (end < 0) {
+                end = ifNoneMatch.length();
+            }
+            String candidate = ifNoneMatch.substring(start, end).trim();
+            if ("*".equals(candidate) || etag.equals(candidate)) {
+                return true;
+            }
+            start = end + 1;
+        }
+        return false;
+    }
 }
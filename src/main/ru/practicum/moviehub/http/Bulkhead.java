@@ -0,0 +1,54 @@
+package ru.practicum.moviehub.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ограничение одновременных запросов с очередью ограниченной длины. Запрос, которому не хватило места
+ * в очереди или который прождал дольше тайм-аута, отклоняется сразу, а не копится в памяти сервера.
+ */
+class Bulkhead {
+    private final Semaphore permits;
+    private final int maxQueued;
+    private final long timeoutMillis;
+    private final AtomicInteger queued = new AtomicInteger();
+
+    Bulkhead(int maxConcurrent, int maxQueued, long timeoutMillis) {
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.maxQueued = maxQueued;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * @return {@code true}, если запрос допущен; тогда после обработки нужно вызвать {@link #exit()}
+     */
+    boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            return false;
+        }
+        try {
+            return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    void exit() {
+        permits.release();
+    }
+
+    /**
+     * Сколько запросов сейчас ждёт места.
+     */
+    int getQueued() {
+        return queued.get();
+    }
+}
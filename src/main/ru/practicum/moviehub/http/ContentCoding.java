@@ -0,0 +1,192 @@
+package ru.practicum.moviehub.http;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Сжатие тела ответа. Экземпляры {@link Deflater} берутся из пула и возвращаются в него после ответа:
+ * создание нового стоит выделения нескольких сотен килобайт нативной памяти.
+ */
+enum ContentCoding {
+    GZIP("gzip", true),
+    DEFLATE("deflate", false);
+
+    private static final int BUFFER_SIZE = 8192;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+    private final String token;
+    private final boolean gzip;
+    // статические поля enum недоступны из инициализаторов его экземпляров, поэтому размер пула считается здесь
+    private final BlockingQueue<Deflater> pool =
+            new ArrayBlockingQueue<>(Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    ContentCoding(String token, boolean gzip) {
+        this.token = token;
+        this.gzip = gzip;
+    }
+
+    /**
+     * Значение для заголовка Content-Encoding.
+     */
+    String getToken() {
+        return token;
+    }
+
+    /**
+     * Выбирает сжатие по заголовку Accept-Encoding; gzip предпочтительнее deflate.
+     *
+     * @return сжатие или null, если клиент принимает только несжатое тело
+     */
+    static ContentCoding negotiate(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isEmpty()) {
+            return null;
+        }
+        int gzip = -1;
+        int deflate = -1;
+        int any = -1;
+        int start = 0;
+        while (start < acceptEncoding.length()) {
+            int end = acceptEncoding.indexOf(',', start);
+            if (end < 0) {
+                end = acceptEncoding.length();
+            }
+            int paramsStart = acceptEncoding.indexOf(';', start);
+            int tokenEnd = paramsStart >= 0 && paramsStart < end ? paramsStart : end;
+            int accepted = tokenEnd < end && isZeroWeight(acceptEncoding, tokenEnd, end) ? 0 : 1;
+            int tokenStart = skipSpaces(acceptEncoding, start, tokenEnd);
+            tokenEnd = trimSpaces(acceptEncoding, tokenStart, tokenEnd);
+            if (matches(acceptEncoding, tokenStart, tokenEnd, "gzip")
+                    || matches(acceptEncoding, tokenStart, tokenEnd, "x-gzip")) {
+                gzip = accepted;
+            } else if (matches(acceptEncoding, tokenStart, tokenEnd, "deflate")) {
+                deflate = accepted;
+            } else if (matches(acceptEncoding, tokenStart, tokenEnd, "*")) {
+                any = accepted;
+            }
+            start = end + 1;
+        }
+        if ((gzip >= 0 ? gzip : any) > 0) {
+            return GZIP;
+        }
+        if ((deflate >= 0 ? deflate : any) > 0) {
+            return DEFLATE;
+        }
+        return null;
+    }
+
+    /**
+     * Поток, сжимающий всё записанное в {@code out}; закрытие дописывает хвост формата и закрывает {@code out}.
+     */
+    OutputStream wrap(OutputStream out) throws IOException {
+        if (gzip) {
+            out.write(GZIP_HEADER);
+        }
+        return new EncodingOutputStream(out, borrow());
+    }
+
+    byte[] encode(byte[] data) {
+        ByteArrayOutputStream result = new ByteArrayOutputStream(Math.max(64, data.length / 4));
+        try (OutputStream out = wrap(result)) {
+            out.write(data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return result.toByteArray();
+    }
+
+    private Deflater borrow() {
+        Deflater deflater = pool.poll();
+        // gzip — это «сырой» deflate без обёртки zlib плюс собственные заголовок и хвост
+        return deflater != null ? deflater : new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+    }
+
+    private void release(Deflater deflater) {
+        deflater.reset();
+        if (!pool.offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    private static boolean isZeroWeight(String header, int paramsStart, int end) {
+        int q = header.indexOf("q=", paramsStart);
+        if (q < 0 || q >= end) {
+            return false;
+        }
+        for (int i = q + 2; i < end; i++) {
+            char c = header.charAt(i);
+            if (c != '0' && c != '.' && c != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String value, int start, int end) {
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimSpaces(String value, int start, int end) {
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    private static boolean matches(String value, int start, int end, String token) {
+        return end - start == token.length() && value.regionMatches(true, start, token, 0, token.length());
+    }
+
+    private class EncodingOutputStream extends DeflaterOutputStream {
+        private final CRC32 crc = new CRC32();
+        private long size;
+        private boolean closed;
+
+        EncodingOutputStream(OutputStream out, Deflater deflater) {
+            super(out, deflater, BUFFER_SIZE);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            super.write(b, off, len);
+            if (gzip) {
+                crc.update(b, off, len);
+            }
+            size += len;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                finish();
+                if (gzip) {
+                    writeIntLe((int) crc.getValue());
+                    writeIntLe((int) size);
+                }
+                out.close();
+            } finally {
+                release(def);
+            }
+        }
+
+        private void writeIntLe(int value) throws IOException {
+            out.write(value);
+            out.write(value >>> 8);
+            out.write(value >>> 16);
+            out.write(value >>> 24);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import ru.practicum.moviehub.json.MovieTypeAdapter;
+import ru.practicum.moviehub.json.Utf8Reader;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Формат выгрузки каталога для {@code /movies/export} и {@code /movies/import}. Фильмы пишутся и читаются
+ * по одному, поэтому память не зависит от размера каталога.
+ * <p>
+ * {@link #NDJSON} — по JSON фильма на строку, как в {@code GET /movies/{id}}.
+ * {@link #BINARY} — сигнатура {@code "MVEX"}, версия формата, затем записи (id, год, длина названия,
+ * UTF-8 название) целыми big-endian, как в снимке хранилища, и завершающая запись с id = 0.
+ */
+enum DumpFormat {
+    NDJSON("ndjson", "application/x-ndjson"),
+    BINARY("binary", "application/x-moviehub-dump");
+
+    private static final int MAGIC = 0x4D564558; // "MVEX"
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAX_TITLE_BYTES = 0xFFFF;
+
+    private final String token;
+    private final String contentType;
+
+    DumpFormat(String token, String contentType) {
+        this.token = token;
+        this.contentType = contentType;
+    }
+
+    String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return формат по имени из параметра {@code format} или null
+     */
+    static DumpFormat fromToken(String token) {
+        for (DumpFormat format : values()) {
+            if (format.token.equalsIgnoreCase(token)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return формат по заголовку Content-Type или null
+     */
+    static DumpFormat fromContentType(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        String mediaType = contentType.toLowerCase();
+        for (DumpFormat format : values()) {
+            if (mediaType.startsWith(format.contentType)) {
+                return format;
+            }
+        }
+        return null;
+    }
+
+    Writer writer(OutputStream out) throws IOException {
+        return this == BINARY ? new BinaryWriter(out) : new NdjsonWriter(out);
+    }
+
+    Reader reader(InputStream in) throws IOException {
+        return this == BINARY ? new BinaryReader(in) : new NdjsonReader(in);
+    }
+
+    interface Writer {
+        /**
+         * @param json готовый JSON фильма из кэша хранилища; нужен только для NDJSON
+         */
+        void write(Movie movie, byte[] json) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    interface Reader {
+        /**
+         * @return следующий фильм или null, если записи кончились
+         * @throws IOException данные не в этом формате или оборваны
+         */
+        Movie next() throws IOException;
+    }
+
+    private static class NdjsonWriter implements Writer {
+        private final OutputStream out;
+
+        NdjsonWriter(OutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(Movie movie, byte[] json) throws IOException {
+            out.write(json);
+            out.write('\n');
+        }
+
+        @Override
+        public void finish() {
+        }
+    }
+
+    private static class BinaryWriter implements Writer {
+        private final DataOutputStream out;
+
+        BinaryWriter(OutputStream out) throws IOException {
+            this.out = new DataOutputStream(out);
+            this.out.writeInt(MAGIC);
+            this.out.writeInt(FORMAT_VERSION);
+        }
+
+        @Override
+        public void write(Movie movie, byte[] json) throws IOException {
+            byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(movie.getId());
+            out.writeInt(movie.getYear());
+            out.writeShort(title.length);
+            out.write(title);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            out.writeInt(0);
+        }
+    }
+
+    private static class NdjsonReader implements Reader {
+        private static final MovieTypeAdapter ADAPTER = new MovieTypeAdapter();
+
+        private final JsonReader reader;
+
+        NdjsonReader(InputStream in) {
+            // в нестрогом режиме JsonReader читает подряд несколько документов, переводы строк между ними —
+            // просто пробельные символы, и длинная строка не собирается в памяти целиком
+            reader = new JsonReader(new Utf8Reader(in));
+            reader.setLenient(true);
+        }
+
+        @Override
+        public Movie next() throws IOException {
+            try {
+                if (reader.peek() == JsonToken.END_DOCUMENT) {
+                    return null;
+                }
+                return ADAPTER.read(reader);
+            } catch (RuntimeException e) {
+                throw new IOException("Некорректный JSON", e);
+            }
+        }
+    }
+
+    private static class BinaryReader implements Reader {
+        private final DataInputStream in;
+        private final byte[] title = new byte[MAX_TITLE_BYTES];
+        private boolean finished;
+
+        BinaryReader(InputStream in) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            try {
+                if (this.in.readInt() != MAGIC || this.in.readInt() != FORMAT_VERSION) {
+                    throw new IOException("Неизвестный формат выгрузки");
+                }
+            } catch (EOFException e) {
+                throw new IOException("Неизвестный формат выгрузки", e);
+            }
+        }
+
+        @Override
+        public Movie next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            try {
+                int id = in.readInt();
+                if (id == 0) {
+                    finished = true;
+                    return null;
+                }
+                int year = in.readInt();
+                int length = in.readUnsignedShort();
+                in.readFully(title, 0, length);
+                return new Movie(id, new String(title, 0, length, StandardCharsets.UTF_8), year);
+            } catch (EOFException e) {
+                throw new IOException("Выгрузка оборвана", e);
+            }
+        }
+    }
+}
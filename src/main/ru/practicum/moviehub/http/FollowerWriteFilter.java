@@ -0,0 +1,55 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ErrorResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Запись на реплике: 307 на тот же путь у лидера (метод и тело клиент повторит сам), а если адрес лидера
+ * не задан — 503. Чтение проходит как обычно.
+ */
+class FollowerWriteFilter extends Filter {
+    private static final byte[] READ_ONLY = BaseHttpHandler.GSON.toJson(
+            new ErrorResponse("Реплика принимает только чтение", null)).getBytes(StandardCharsets.UTF_8);
+
+    private final URI leaderUrl;
+
+    /**
+     * @param leaderUrl HTTP-адрес лидера или null
+     */
+    FollowerWriteFilter(URI leaderUrl) {
+        this.leaderUrl = leaderUrl;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        String method = ex.getRequestMethod();
+        if ("GET".equals(method) || "HEAD".equals(method)) {
+            chain.doFilter(ex);
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Type", BaseHttpHandler.CT_JSON);
+        if (leaderUrl == null) {
+            ex.sendResponseHeaders(503, READ_ONLY.length);
+        } else {
+            URI request = ex.getRequestURI();
+            String location = leaderUrl.resolve(request.getRawPath()
+                    + (request.getRawQuery() == null ? "" : "?" + request.getRawQuery())).toString();
+            ex.getResponseHeaders().set("Location", location);
+            ex.sendResponseHeaders(307, READ_ONLY.length);
+        }
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(READ_ONLY);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Запись только на лидере";
+    }
+}
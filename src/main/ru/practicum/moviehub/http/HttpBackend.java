@@ -0,0 +1,29 @@
+package ru.practicum.moviehub.http;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Реализация HTTP-сервера, на которой работают обработчики.
+ */
+public enum HttpBackend {
+    /**
+     * Встроенный {@code com.sun.net.httpserver.HttpServer}.
+     */
+    JDK,
+    /**
+     * Собственный неблокирующий сервер HTTP/1.1 на одном селекторе с конвейерной обработкой запросов:
+     * простаивающее соединение не держит ни потока, ни буфера.
+     */
+    NIO;
+
+    ServerBackend create(InetSocketAddress address, ServerConfig config, Executor executor) throws IOException {
+        switch (this) {
+            case NIO:
+                return new NioServerBackend(address, config, executor);
+            default:
+                return new JdkServerBackend(address, config, executor);
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Склеивает одновременные одиночные добавления в пакетные вставки {@link MoviesStore#addAll}.
+ * <p>
+ * Отдельного потока нет: один из ждущих запросов сам забирает из очереди пакет и вставляет его, остальные
+ * ждут результата. Разбирающий уходит, как только готова его собственная вставка, и передаёт очередь
+ * первому из оставшихся, так что ни один запрос не разбирает чужие вставки бесконечно. Без конкуренции
+ * это та же вставка одного фильма.
+ */
+class InsertCoalescer {
+    private static final int MAX_BATCH = 1000;
+
+    private final MoviesStore store;
+    private final Queue<PendingInsert> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    InsertCoalescer(MoviesStore store) {
+        this.store = store;
+    }
+
+    Movie add(String title, int year) {
+        PendingInsert insert = new PendingInsert(new MovieDraft(title, year));
+        queue.add(insert);
+        while (!insert.done.isDone()) {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    drainBatch();
+                } finally {
+                    draining.set(false);
+                }
+                // кто ждал, пока очередь разбирали, мог уже не попасть на флаг: будим первого из оставшихся
+                PendingInsert head = queue.peek();
+                if (head != null) {
+                    head.turn.release();
+                }
+            } else {
+                // разрешение приходит, когда вставка готова или очередь передали этому запросу
+                insert.turn.acquireUninterruptibly();
+            }
+        }
+        try {
+            return insert.done.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    private void drainBatch() {
+        List<PendingInsert> batch = new ArrayList<>();
+        List<MovieDraft> drafts = new ArrayList<>();
+        PendingInsert next;
+        while (batch.size() < MAX_BATCH && (next = queue.poll()) != null) {
+            batch.add(next);
+            drafts.add(next.draft);
+        }
+        if (!batch.isEmpty()) {
+            insert(batch, drafts);
+        }
+    }
+
+    private void insert(List<PendingInsert> batch, List<MovieDraft> drafts) {
+        try {
+            List<Movie> movies = store.addAll(drafts);
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).done.complete(movies.get(i));
+            }
+        } catch (Throwable e) {
+            // ошибка достаётся каждому запросу пакета, иначе они ждали бы вечно
+            for (PendingInsert insert : batch) {
+                insert.done.completeExceptionally(e);
+            }
+        } finally {
+            for (PendingInsert insert : batch) {
+                insert.turn.release();
+            }
+        }
+    }
+
+    private static class PendingInsert {
+        final MovieDraft draft;
+        final CompletableFuture<Movie> done = new CompletableFuture<>();
+        // разрешения копятся, так что пробуждение до ожидания не теряется
+        final Semaphore turn = new Semaphore(0);
+
+        PendingInsert(MovieDraft draft) {
+            this.draft = draft;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.Executor;
+
+/**
+ * Встроенный сервер JDK: поток на запрос из общего пула, соединения обслуживает один диспетчер.
+ */
+class JdkServerBackend implements ServerBackend {
+    private static final String NODELAY_PROPERTY = "sun.net.httpserver.nodelay";
+    private static final String IDLE_INTERVAL_PROPERTY = "sun.net.httpserver.idleInterval";
+
+    static {
+        // встроенный сервер пишет заголовки и тело ответа разными сегментами; с алгоритмом Нейгла второй
+        // ждёт отложенного ACK клиента, и каждый запрос по keep-alive соединению стоит лишние ~40 мс
+        if (System.getProperty(NODELAY_PROPERTY) == null) {
+            System.setProperty(NODELAY_PROPERTY, "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final boolean keepAlive;
+
+    JdkServerBackend(InetSocketAddress address, ServerConfig config, Executor executor) throws IOException {
+        // встроенный сервер читает свои настройки один раз на JVM, при создании первого сервера,
+        // поэтому тайм-аут простоя действует, только если его ещё никто не задал
+        if (System.getProperty(IDLE_INTERVAL_PROPERTY) == null) {
+            long seconds = Math.max(1, (config.getIdleTimeout().toMillis() + 999) / 1000);
+            System.setProperty(IDLE_INTERVAL_PROPERTY, Long.toString(seconds));
+        }
+        server = HttpServer.create(address, config.getBacklog());
+        server.setExecutor(executor);
+        keepAlive = config.isKeepAlive();
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        HttpContext context = server.createContext(path, handler);
+        if (!keepAlive) {
+            // встроенный сервер закрывает соединение после ответа, если обработчик попросил об этом заголовком
+            context.getFilters().add(Filter.beforeHandler("Без keep-alive",
+                    ex -> ex.getResponseHeaders().set("Connection", "close")));
+        }
+        return context;
+    }
+
+    @Override
+    public void start() {
+        server.start();
+    }
+
+    @Override
+    public void stop() {
+        server.stop(0);
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.metrics.MetricsRegistry;
+import ru.practicum.moviehub.metrics.RouteMetrics;
+
+import java.io.IOException;
+
+/**
+ * Учитывает каждый запрос контекста: время обработки, код ответа и число запросов в работе.
+ */
+class MetricsFilter extends Filter {
+    private final MetricsRegistry registry;
+    private final RouteMetrics[] byMethod;
+
+    MetricsFilter(MetricsRegistry registry, String route) {
+        this.registry = registry;
+        this.byMethod = registry.register(route);
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        registry.requestStarted();
+        try {
+            chain.doFilter(ex);
+        } finally {
+            registry.requestFinished();
+            byMethod[MetricsRegistry.methodIndex(ex.getRequestMethod())]
+                    .record(ex.getResponseCode(), System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "Метрики запросов";
+    }
+}
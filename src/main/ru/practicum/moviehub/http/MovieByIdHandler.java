@@ -1,11 +1,13 @@
 package ru.practicum.moviehub.http;
 
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.model.Movie;
 import ru.practicum.moviehub.store.MoviesStore;
 
 import java.io.IOException;
 
 public class MovieByIdHandler extends BaseHttpHandler {
+    private static final String PATH_PREFIX = "/movies/";
     private final MoviesStore store;
 
     public MovieByIdHandler(MoviesStore store) {
@@ -16,32 +18,24 @@ public class MovieByIdHandler extends BaseHttpHandler {
     public void handle(HttpExchange ex) throws IOException {
         String method = ex.getRequestMethod();
         String path = ex.getRequestURI().getPath();
-        String idPart = path.substring("/movies/".length());
-        Integer id = parseInt(idPart);
-        if (id == null) {
+        long parsed = RequestParams.parseInt(path, PATH_PREFIX.length(), path.length());
+        if (parsed == RequestParams.NOT_A_NUMBER) {
             sendError(ex, 400, "Некорректный ID");
             return;
         }
+        int id = (int) parsed;
 
         switch (method) {
             case "GET": {
-                store.getById(id)
-                        .map(movie -> {
-                            try {
-                                sendJson(ex, 200, GSON.toJson(movie));
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                            return movie;
-                        })
-                        .orElseGet(() -> {
-                            try {
-                                sendError(ex, 404, "Фильм не найден");
-                            } catch (IOException e) {
-                                throw new RuntimeException(e);
-                            }
-                            return null;
-                        });
+                Movie movie = store.getById(id).orElse(null);
+                if (movie == null) {
+                    sendError(ex, 404, "Фильм не найден");
+                    return;
+                }
+                if (sendNotModifiedIfMatches(ex, etag("m", movie.getVersion()))) {
+                    return;
+                }
+                sendJson(ex, 200, store.toJson(movie));
                 return;
             }
             case "DELETE": {
@@ -56,12 +50,4 @@ public class MovieByIdHandler extends BaseHttpHandler {
                 sendError(ex, 405, "Метод не поддерживается");
         }
     }
-
-    private Integer parseInt(String value) {
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return null;
-        }
-    }
 }
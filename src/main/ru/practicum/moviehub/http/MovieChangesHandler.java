@@ -0,0 +1,162 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.store.ChangeEvent;
+import ru.practicum.moviehub.store.ChangeFeed;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /movies/changes?since=N}: изменения каталога после события N. Если их пока нет, запрос
+ * ждёт до {@code wait} секунд (long poll) и отвечает массивом событий, возможно пустым. С заголовком
+ * {@code Accept: text/event-stream} события идут потоком Server-Sent Events, пока не выйдет то же время;
+ * браузерный EventSource переподключится сам и продолжит с {@code Last-Event-ID}.
+ * <p>
+ * Без {@code since} отдаются только новые изменения. Номер последнего учтённого события — в заголовке
+ * {@code X-Last-Seq}. Если клиент отстал больше, чем хранит лента, он получает 410: нужно перечитать
+ * {@code GET /movies} и продолжить с номера из {@code X-Last-Seq}; события после него, повторённые
+ * поверх свежего каталога, ничего не испортят.
+ */
+public class MovieChangesHandler extends BaseHttpHandler {
+    private static final String[] PARAMS = {"since", "wait", "limit"};
+    private static final int SINCE = 0;
+    private static final int WAIT = 1;
+    private static final int LIMIT = 2;
+    private static final int MAX_EVENTS = 1000;
+    private static final int DEFAULT_WAIT_SECONDS = 25;
+    private static final int MAX_WAIT_SECONDS = 60;
+    // комментарий в потоке SSE, чтобы прокси не закрыли тихое соединение, а сервер узнал об ушедшем клиенте
+    private static final long HEARTBEAT_MILLIS = 15_000;
+    private static final String LAST_SEQ_HEADER = "X-Last-Seq";
+    private static final String CT_EVENT_STREAM = "text/event-stream";
+    private static final byte[] HEARTBEAT = ": ping\n\n".getBytes(StandardCharsets.US_ASCII);
+
+    private final MoviesStore store;
+    private final ChangeFeed feed;
+
+    public MovieChangesHandler(MoviesStore store) {
+        this.store = store;
+        this.feed = store.getChanges();
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!"GET".equals(ex.getRequestMethod())) {
+            sendError(ex, 405, "Метод не поддерживается");
+            return;
+        }
+        RequestParams params = RequestParams.parse(ex.getRequestURI().getRawQuery(), PARAMS, "since");
+        if (params.getInvalidParam() != null) {
+            sendError(ex, 400, "Некорректный параметр запроса — '" + params.getInvalidParam() + "'");
+            return;
+        }
+        String lastEventId = ex.getRequestHeaders().getFirst("Last-Event-ID");
+        long since;
+        if (params.has(SINCE)) {
+            since = params.getInt(SINCE);
+        } else if (lastEventId != null) {
+            since = RequestParams.parseInt(lastEventId, 0, lastEventId.length());
+        } else {
+            since = feed.getLastSeq();
+        }
+        if (since < 0) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'since'");
+            return;
+        }
+        long wait = params.has(WAIT) ? params.getInt(WAIT) : DEFAULT_WAIT_SECONDS;
+        if (wait < 0 || wait > MAX_WAIT_SECONDS) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'wait'");
+            return;
+        }
+        long limit = params.has(LIMIT) ? params.getInt(LIMIT) : MAX_EVENTS;
+        if (limit < 1) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'limit'");
+            return;
+        }
+
+        try {
+            String accept = ex.getRequestHeaders().getFirst("Accept");
+            if (accept != null && accept.contains(CT_EVENT_STREAM)) {
+                stream(ex, since, TimeUnit.SECONDS.toMillis(wait));
+            } else {
+                poll(ex, since, (int) Math.min(limit, MAX_EVENTS), TimeUnit.SECONDS.toMillis(wait));
+            }
+        } catch (InterruptedException e) {
+            // сервер останавливается
+            Thread.currentThread().interrupt();
+            ex.close();
+        }
+    }
+
+    private void poll(HttpExchange ex, long since, int limit, long waitMillis) throws IOException, InterruptedException {
+        List<ChangeEvent> events = feed.await(since, limit, waitMillis);
+        if (events == null) {
+            sendResyncRequired(ex, since);
+            return;
+        }
+        List<byte[]> elements = new ArrayList<>(events.size());
+        for (ChangeEvent event : events) {
+            elements.add(event.toJson());
+        }
+        long lastSeq = events.isEmpty() ? since : events.get(events.size() - 1).getSeq();
+        ex.getResponseHeaders().set(LAST_SEQ_HEADER, Long.toString(lastSeq));
+        ex.getResponseHeaders().set("Cache-Control", "no-store");
+        sendJsonArray(ex, 200, elements);
+    }
+
+    private void stream(HttpExchange ex, long since, long durationMillis) throws IOException, InterruptedException {
+        List<ChangeEvent> events = feed.since(since, 0);
+        if (events == null) {
+            sendResyncRequired(ex, since);
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Type", CT_EVENT_STREAM + "; charset=UTF-8");
+        ex.getResponseHeaders().set("Cache-Control", "no-store");
+        ex.getResponseHeaders().set(LAST_SEQ_HEADER, Long.toString(since));
+        ex.sendResponseHeaders(200, 0);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        try (OutputStream os = ex.getResponseBody()) {
+            long cursor = since;
+            long remaining;
+            while ((remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())) > 0) {
+                events = feed.await(cursor, MAX_EVENTS, Math.min(remaining, HEARTBEAT_MILLIS));
+                if (events == null) {
+                    // отстал прямо во время потока: сообщаем и закрываем, переподключаться без resync бессмысленно
+                    os.write(("event: resync\ndata: " + resyncJson(cursor) + "\n\n").getBytes(StandardCharsets.UTF_8));
+                    break;
+                }
+                if (events.isEmpty()) {
+                    os.write(HEARTBEAT);
+                }
+                for (ChangeEvent event : events) {
+                    os.write(("id: " + event.getSeq() + "\nevent: " + event.getType().getToken() + "\ndata: ")
+                            .getBytes(StandardCharsets.US_ASCII));
+                    os.write(event.toJson());
+                    os.write('\n');
+                    os.write('\n');
+                    cursor = event.getSeq();
+                }
+                os.flush();
+            }
+        }
+    }
+
+    private void sendResyncRequired(HttpExchange ex, long since) throws IOException {
+        // номер ленты может опережать таблицы: каталог, перечитанный после него, мог бы не увидеть добавление
+        ex.getResponseHeaders().set(LAST_SEQ_HEADER, Long.toString(store.getSettledChangeSeq()));
+        sendJson(ex, 410, resyncJson(since));
+    }
+
+    private String resyncJson(long since) {
+        return GSON.toJson(new ErrorResponse("Требуется полная синхронизация", List.of(
+                "изменений после события " + since + " больше нет в ленте, перечитайте GET /movies"
+                        + " и продолжайте с номера из " + LAST_SEQ_HEADER)));
+    }
+}
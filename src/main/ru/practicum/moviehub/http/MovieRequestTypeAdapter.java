@@ -0,0 +1,68 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.practicum.moviehub.json.JsonValues;
+import ru.practicum.moviehub.json.Utf8Reader;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * {@link MovieRequest} без отражения. Принимает те же документы, что и Gson по умолчанию: нестрогий
+ * синтаксис, неизвестные поля пропускаются, число в названии и строка с числом в годе допустимы.
+ * Регистрируется через {@link #nullSafe()}.
+ */
+final class MovieRequestTypeAdapter extends TypeAdapter<MovieRequest> {
+    private static final TypeAdapter<MovieRequest> INSTANCE = new MovieRequestTypeAdapter().nullSafe();
+
+    /**
+     * Читает запрос прямо из тела, не собирая его в строку.
+     *
+     * @return запрос или null, если в теле JSON {@code null}
+     * @throws IOException            тело пустое или не JSON
+     * @throws JsonSyntaxException    после объекта есть что-то ещё
+     * @throws IllegalStateException  тело не объект или у поля не тот тип
+     * @throws NumberFormatException  год не целое число
+     */
+    static MovieRequest read(InputStream body) throws IOException {
+        JsonReader reader = new JsonReader(new Utf8Reader(body));
+        reader.setLenient(true);
+        MovieRequest request = INSTANCE.read(reader);
+        if (request != null && reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new JsonSyntaxException("Лишние данные после JSON");
+        }
+        return request;
+    }
+
+    @Override
+    public void write(JsonWriter out, MovieRequest request) throws IOException {
+        out.beginObject();
+        out.name("title").value(request.title);
+        out.name("year").value(request.year);
+        out.endObject();
+    }
+
+    @Override
+    public MovieRequest read(JsonReader in) throws IOException {
+        MovieRequest request = new MovieRequest();
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "title":
+                    request.title = JsonValues.nextString(in);
+                    break;
+                case "year":
+                    request.year = JsonValues.nextInteger(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return request;
+    }
+}
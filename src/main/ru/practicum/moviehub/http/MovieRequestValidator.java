@@ -0,0 +1,31 @@
+package ru.practicum.moviehub.http;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+
+final class MovieRequestValidator {
+    static final int MIN_YEAR = 1888;
+    static final int MAX_TITLE_LENGTH = 100;
+
+    private MovieRequestValidator() {
+    }
+
+    static int maxYear() {
+        return Year.now().getValue() + 1;
+    }
+
+    static List<String> validate(MovieRequest request) {
+        List<String> errors = new ArrayList<>();
+        if (request.title == null || request.title.trim().isEmpty()) {
+            errors.add("название не должно быть пустым");
+        } else if (request.title.length() > MAX_TITLE_LENGTH) {
+            errors.add("название не должно превышать 100 символов");
+        }
+        int maxYear = maxYear();
+        if (request.year == null || request.year < MIN_YEAR || request.year > maxYear) {
+            errors.add("год должен быть между 1888 и " + maxYear);
+        }
+        return errors;
+    }
+}
@@ -0,0 +1,145 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.BatchItemResult;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MoviesBatchHandler extends BaseHttpHandler {
+    static final int MAX_BATCH_SIZE = 100_000;
+    private static final String CT_NDJSON = "application/x-ndjson";
+
+    private final MoviesStore store;
+
+    public MoviesBatchHandler(MoviesStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!"POST".equals(ex.getRequestMethod())) {
+            sendError(ex, 405, "Метод не поддерживается");
+            return;
+        }
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        String mediaType = contentType == null ? "" : contentType.toLowerCase();
+        Batch batch = new Batch();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8))) {
+            if (mediaType.startsWith(CT_NDJSON)) {
+                readNdjson(reader, batch);
+            } else if (mediaType.startsWith("application/json")) {
+                readJsonArray(reader, batch);
+            } else {
+                sendError(ex, 415, "Неподдерживаемый Content-Type");
+                return;
+            }
+        } catch (BatchTooLargeException e) {
+            sendError(ex, 413, "Слишком много фильмов в одном запросе, максимум " + MAX_BATCH_SIZE);
+            return;
+        } catch (Exception e) {
+            sendError(ex, 400, "Некорректный JSON");
+            return;
+        }
+
+        List<Movie> created = store.addAll(batch.drafts);
+        for (int i = 0; i < created.size(); i++) {
+            int index = batch.draftIndexes.get(i);
+            batch.results.set(index, BatchItemResult.created(index, created.get(i)));
+        }
+        sendJsonStream(ex, 200, writer -> {
+            writer.beginArray();
+            for (BatchItemResult result : batch.results) {
+                GSON.toJson(result, BatchItemResult.class, writer);
+            }
+            writer.endArray();
+        });
+    }
+
+    private void readJsonArray(Reader source, Batch batch) throws IOException {
+        JsonReader reader = new JsonReader(source);
+        reader.beginArray();
+        while (reader.hasNext()) {
+            batch.accept(JsonParser.parseReader(reader));
+        }
+        reader.endArray();
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IOException("Лишние данные после массива");
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Batch batch) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonElement element;
+            try {
+                element = JsonParser.parseString(line);
+            } catch (RuntimeException e) {
+                // в NDJSON каждая строка независима, поэтому битая строка — ошибка только этого элемента
+                batch.reject(400, "Некорректный JSON", null);
+                continue;
+            }
+            batch.accept(element);
+        }
+    }
+
+    private static class Batch {
+        final List<BatchItemResult> results = new ArrayList<>();
+        final List<MovieDraft> drafts = new ArrayList<>();
+        final List<Integer> draftIndexes = new ArrayList<>();
+
+        void accept(JsonElement element) {
+            MovieRequest request;
+            try {
+                request = element.isJsonObject() ? GSON.fromJson(element, MovieRequest.class) : null;
+            } catch (RuntimeException e) {
+                request = null;
+            }
+            if (request == null) {
+                reject(400, "Некорректный JSON", null);
+                return;
+            }
+            List<String> errors = MovieRequestValidator.validate(request);
+            if (!errors.isEmpty()) {
+                reject(422, "Ошибка валидации", errors);
+                return;
+            }
+            checkSize();
+            draftIndexes.add(results.size());
+            drafts.add(new MovieDraft(request.title.trim(), request.year));
+            // место под результат; заполняется после вставки в хранилище
+            results.add(null);
+        }
+
+        void reject(int status, String error, List<String> details) {
+            checkSize();
+            results.add(BatchItemResult.failed(results.size(), status, error, details));
+        }
+
+        private void checkSize() {
+            if (results.size() >= MAX_BATCH_SIZE) {
+                throw new BatchTooLargeException();
+            }
+        }
+    }
+
+    private static class BatchTooLargeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * {@code GET /movies/export?format=ndjson|binary}: весь каталог по возрастанию id, страница за страницей
+ * прямо в сокет. Это не снимок на один момент: фильм, добавленный во время выгрузки, попадёт в неё,
+ * если его id ещё впереди. Номер события ленты изменений на начало выгрузки — в {@code X-Last-Seq};
+ * догнать каталог после импорта можно через {@code GET /movies/changes?since=...}.
+ */
+public class MoviesExportHandler extends BaseHttpHandler {
+    private static final String[] PARAMS = {"format"};
+    private static final int FORMAT = 0;
+    private static final int PAGE_SIZE = 1000;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final MoviesStore store;
+
+    public MoviesExportHandler(MoviesStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!"GET".equals(ex.getRequestMethod())) {
+            sendError(ex, 405, "Метод не поддерживается");
+            return;
+        }
+        RequestParams params = RequestParams.parse(ex.getRequestURI().getRawQuery(), PARAMS, "format");
+        if (params.getInvalidParam() != null) {
+            sendError(ex, 400, "Некорректный параметр запроса — '" + params.getInvalidParam() + "'");
+            return;
+        }
+        DumpFormat format = params.has(FORMAT) ? DumpFormat.fromToken(params.getString(FORMAT)) : DumpFormat.NDJSON;
+        if (format == null) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'format'");
+            return;
+        }
+
+        ContentCoding coding = acceptedCoding(ex);
+        ex.getResponseHeaders().set("Content-Type", format.getContentType());
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (coding != null) {
+            ex.getResponseHeaders().set("Content-Encoding", coding.getToken());
+        }
+        // все события до этого номера уже в таблицах и попадут в выгрузку; более поздние она может и не
+        // учесть, их повторение поверх неё безвредно
+        ex.getResponseHeaders().set("X-Last-Seq", Long.toString(store.getSettledChangeSeq()));
+        ex.sendResponseHeaders(200, 0);
+        OutputStream body = coding != null ? coding.wrap(ex.getResponseBody()) : ex.getResponseBody();
+        try (OutputStream os = new BufferedOutputStream(body, BUFFER_SIZE)) {
+            DumpFormat.Writer writer = format.writer(os);
+            List<Movie> page = store.getPage(0, PAGE_SIZE);
+            while (!page.isEmpty()) {
+                for (Movie movie : page) {
+                    writer.write(movie, format == DumpFormat.NDJSON ? store.toJson(movie) : null);
+                }
+                page = store.getPage(page.get(page.size() - 1).getId(), PAGE_SIZE);
+            }
+            writer.finish();
+        }
+    }
+}
@@ -1,21 +1,43 @@
 package ru.practicum.moviehub.http;
 
 import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.metrics.CacheMetrics;
 import ru.practicum.moviehub.store.MoviesStore;
 import ru.practicum.moviehub.model.Movie;
 
 import java.io.IOException;
-import java.nio.charset.StandardCharsets;
-import java.time.Year;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.List;
 
 public class MoviesHandler extends BaseHttpHandler {
-    private static final int MIN_YEAR = 1888;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String[] PARAMS = {"year", "yearFrom", "yearTo", "limit", "cursor", "q"};
+    private static final int YEAR = 0;
+    private static final int YEAR_FROM = 1;
+    private static final int YEAR_TO = 2;
+    private static final int LIMIT = 3;
+    private static final int CURSOR = 4;
+    private static final int Q = 5;
     private final MoviesStore store;
+    private final InsertCoalescer inserts;
+    // готовые ответы на списки и выборки; запись сбрасывается, только когда меняются фильмы её лет
+    private final ResponseCache responses;
 
     public MoviesHandler(MoviesStore store) {
+        this(store, ServerConfig.defaults());
+    }
+
+    private MoviesHandler(MoviesStore store, ServerConfig config) {
+        this(store, new ResponseCache(store, config.getResponseCacheEntries(), config.getResponseCacheBytes(),
+                new CacheMetrics("movies")));
+    }
+
+    MoviesHandler(MoviesStore store, ResponseCache responses) {
         this.store = store;
+        this.inserts = new InsertCoalescer(store);
+        this.responses = responses;
     }
 
     @Override
@@ -36,23 +58,150 @@ public class MoviesHandler extends BaseHttpHandler {
     }
 
     private void handleGet(HttpExchange ex) throws IOException {
-        String query = ex.getRequestURI().getQuery();
-        if (query == null || query.isBlank()) {
-            sendJson(ex, 200, GSON.toJson(store.getAll()));
+        RequestParams params = RequestParams.parse(ex.getRequestURI().getRawQuery(), PARAMS, "year");
+        if (params.getInvalidParam() != null) {
+            sendError(ex, 400, "Некорректный параметр запроса — '" + params.getInvalidParam() + "'");
+            return;
+        }
+        long limitParam = params.has(LIMIT) ? params.getInt(LIMIT) : MAX_PAGE_SIZE;
+        if (limitParam < 1) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'limit'");
+            return;
+        }
+        int limit = (int) Math.min(limitParam, MAX_PAGE_SIZE);
+        PageCursor cursor = params.has(CURSOR) ? PageCursor.decode(params.getString(CURSOR)) : PageCursor.START;
+        if (cursor == null) {
+            sendError(ex, 400, "Некорректный параметр запроса — 'cursor'");
+            return;
+        }
+
+        // фильтр по году задаётся либо year, либо диапазоном yearFrom..yearTo
+        boolean byYear = false;
+        int yearFrom = 0;
+        int yearTo = 0;
+        if (params.has(YEAR)) {
+            long year = params.getInt(YEAR);
+            if (year == RequestParams.NOT_A_NUMBER || params.has(YEAR_FROM) || params.has(YEAR_TO)) {
+                sendError(ex, 400, "Некорректный параметр запроса — 'year'");
+                return;
+            }
+            byYear = true;
+            yearFrom = (int) year;
+            yearTo = (int) year;
+        } else if (params.has(YEAR_FROM) || params.has(YEAR_TO)) {
+            long from = params.has(YEAR_FROM) ? params.getInt(YEAR_FROM) : MovieRequestValidator.MIN_YEAR;
+            if (from == RequestParams.NOT_A_NUMBER) {
+                sendError(ex, 400, "Некорректный параметр запроса — 'yearFrom'");
+                return;
+            }
+            long to = params.has(YEAR_TO) ? params.getInt(YEAR_TO) : MovieRequestValidator.maxYear();
+            if (to == RequestParams.NOT_A_NUMBER || to < from) {
+                sendError(ex, 400, "Некорректный параметр запроса — 'yearTo'");
+                return;
+            }
+            byYear = true;
+            yearFrom = (int) from;
+            yearTo = (int) to;
+        }
+
+        String q = params.has(Q) ? params.getString(Q) : null;
+        if (params.has(Q) && (q == null || q.isBlank() || params.has(CURSOR))) {
+            sendError(ex, 400, "Некорректный параметр запроса — '" + (q == null || q.isBlank() ? "q" : "cursor") + "'");
             return;
         }
-        String[] params = query.split("&");
-        if (params.length != 1 || !params[0].startsWith("year=")) {
-            sendError(ex, 400, "Некорректный параметр запроса — 'year'");
+        // версию читаем до выборки: если данные успели обновиться, ETag окажется старее них, но не новее
+        long version = store.getVersion();
+        ContentCoding coding = acceptedCoding(ex);
+        // у сжатого представления свой сильный ETag, иначе кэш между клиентом и сервером может их перепутать
+        String etagPrefix = coding == null ? "v" : coding.getToken() + "-v";
+        if (sendNotModifiedIfMatches(ex, etag(etagPrefix, version))) {
             return;
         }
-        String value = params[0].substring("year=".length());
-        Integer year = parseInt(value);
-        if (year == null) {
-            sendError(ex, 400, "Некорректный параметр запроса — 'year'");
+        if (!byYear) {
+            yearFrom = Integer.MIN_VALUE;
+            yearTo = Integer.MAX_VALUE;
+        }
+        String cacheKey = cacheKey(coding, q, yearFrom, yearTo, byYear ? cursor.getYear() : 0, cursor.getId(), limit);
+        ResponseCache.Entry cached = responses.get(cacheKey);
+        if (cached != null) {
+            sendCached(ex, cached);
             return;
         }
-        sendJson(ex, 200, GSON.toJson(store.getByYear(year)));
+        if (q != null) {
+            // результаты поиска ранжированы, поэтому страница одна — первые limit лучших совпадений
+            sendMovies(ex, cacheKey, store.search(q, yearFrom, yearTo, limit), null, coding, version, yearFrom, yearTo);
+        } else {
+            // запрашиваем на один фильм больше, чтобы узнать, есть ли следующая страница
+            List<Movie> page = byYear
+                    ? store.getByYearRange(yearFrom, yearTo, cursor.getYear(), cursor.getId(), limit + 1)
+                    : store.getPage(cursor.getId(), limit + 1);
+            String nextCursor = null;
+            if (page.size() > limit) {
+                page = page.subList(0, limit);
+                nextCursor = PageCursor.after(page.get(limit - 1)).encode();
+            }
+            sendMovies(ex, cacheKey, page, nextCursor, coding, version, yearFrom, yearTo);
+        }
+    }
+
+    /**
+     * Ключ кэша не зависит от записи запроса: порядка параметров, {@code year} вместо равного диапазона,
+     * явного {@code limit} по умолчанию или сверх предела.
+     */
+    private static String cacheKey(ContentCoding coding, String q, int yearFrom, int yearTo,
+                                   int afterYear, int afterId, int limit) {
+        StringBuilder key = new StringBuilder(64)
+                .append(coding == null ? "identity" : coding.getToken())
+                .append(' ').append(yearFrom).append("..").append(yearTo)
+                .append(" limit=").append(limit);
+        if (q != null) {
+            return key.append(" q=").append(q).toString();
+        }
+        return key.append(" after=").append(afterYear).append(':').append(afterId).toString();
+    }
+
+    /**
+     * Отвечает на промах кэша и кладёт ответ в кэш. Сжатое тело всё равно собирается целиком, поэтому
+     * сначала сжимается в буфер, а потом отправляется. Несжатое идёт в сокет по мере записи, как и без кэша,
+     * а копия для кэша склеивается из тех же фрагментов уже после отправки и первый байт не задерживает.
+     *
+     * @param version версия хранилища, прочитанная до выборки
+     */
+    private void sendMovies(HttpExchange ex, String cacheKey, List<Movie> movies, String nextCursor,
+                            ContentCoding coding, long version, int yearFrom, int yearTo) throws IOException {
+        List<byte[]> elements = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            elements.add(store.toJson(movie));
+        }
+        if (coding != null && jsonArrayLength(elements) >= COMPRESSION_THRESHOLD) {
+            ResponseCache.Entry response = new ResponseCache.Entry(version, yearFrom, yearTo, coding,
+                    encodeJsonArray(coding, elements), nextCursor);
+            responses.put(cacheKey, response);
+            sendCached(ex, response);
+            return;
+        }
+        if (nextCursor != null) {
+            ex.getResponseHeaders().set(NEXT_CURSOR_HEADER, nextCursor);
+        }
+        sendJsonArray(ex, 200, elements);
+        responses.put(cacheKey, new ResponseCache.Entry(version, yearFrom, yearTo, null, joinJsonArray(elements),
+                nextCursor));
+    }
+
+    private void sendCached(HttpExchange ex, ResponseCache.Entry response) throws IOException {
+        if (response.nextCursor != null) {
+            ex.getResponseHeaders().set(NEXT_CURSOR_HEADER, response.nextCursor);
+        }
+        if (response.coding != null) {
+            sendEncodedJson(ex, 200, response.coding, response.body);
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        ex.sendResponseHeaders(200, response.body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(response.body);
+        }
     }
 
     private void handlePost(HttpExchange ex) throws IOException {
@@ -61,10 +210,9 @@ public class MoviesHandler extends BaseHttpHandler {
             sendError(ex, 415, "Неподдерживаемый Content-Type");
             return;
         }
-        String body = new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
         MovieRequest request;
         try {
-            request = GSON.fromJson(body, MovieRequest.class);
+            request = MovieRequestTypeAdapter.read(ex.getRequestBody());
         } catch (Exception e) {
             sendError(ex, 400, "Некорректный JSON");
             return;
@@ -73,29 +221,13 @@ public class MoviesHandler extends BaseHttpHandler {
             sendError(ex, 400, "Некорректный JSON");
             return;
         }
-        List<String> errors = new ArrayList<>();
-        if (request.title == null || request.title.trim().isEmpty()) {
-            errors.add("название не должно быть пустым");
-        } else if (request.title.length() > 100) {
-            errors.add("название не должно превышать 100 символов");
-        }
-        int maxYear = Year.now().getValue() + 1;
-        if (request.year == null || request.year < MIN_YEAR || request.year > maxYear) {
-            errors.add("год должен быть между 1888 и " + maxYear);
-        }
+        List<String> errors = MovieRequestValidator.validate(request);
         if (!errors.isEmpty()) {
             sendValidationError(ex, errors);
             return;
         }
-        Movie movie = store.add(request.title.trim(), request.year);
-        sendJson(ex, 201, GSON.toJson(movie));
-    }
-
-    private Integer parseInt(String value) {
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return null;
-        }
+        // одновременные POST уходят в хранилище одним пакетом
+        Movie movie = inserts.add(request.title.trim(), request.year);
+        sendJson(ex, 201, store.toJson(movie));
     }
 }
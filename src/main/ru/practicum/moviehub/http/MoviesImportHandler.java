@@ -0,0 +1,90 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.api.ImportResult;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code POST /movies/import}: фильмы из выгрузки {@code /movies/export} (формат по Content-Type) вместе
+ * с их id. Тело читается потоком и попадает в хранилище пакетами, так что память не зависит от его размера.
+ * <p>
+ * Фильм с уже существующим id заменяется, поэтому импорт можно просто повторить: на первой некорректной
+ * записи он останавливается с 400, а пакеты до неё уже применены.
+ */
+public class MoviesImportHandler extends BaseHttpHandler {
+    private static final int CHUNK_SIZE = 1000;
+
+    private final MoviesStore store;
+
+    public MoviesImportHandler(MoviesStore store) {
+        this.store = store;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!"POST".equals(ex.getRequestMethod())) {
+            sendError(ex, 405, "Метод не поддерживается");
+            return;
+        }
+        DumpFormat format = DumpFormat.fromContentType(ex.getRequestHeaders().getFirst("Content-Type"));
+        if (format == null) {
+            sendError(ex, 415, "Неподдерживаемый Content-Type");
+            return;
+        }
+
+        List<Movie> chunk = new ArrayList<>(CHUNK_SIZE);
+        long imported = 0;
+        long record = 1;
+        try {
+            DumpFormat.Reader reader = format.reader(ex.getRequestBody());
+            Movie movie;
+            while ((movie = reader.next()) != null) {
+                List<String> errors = validate(movie);
+                if (!errors.isEmpty()) {
+                    store.importAll(chunk);
+                    sendImportError(ex, 422, "Ошибка валидации", record, errors, imported + chunk.size());
+                    return;
+                }
+                chunk.add(movie);
+                record++;
+                if (chunk.size() == CHUNK_SIZE) {
+                    store.importAll(chunk);
+                    imported += chunk.size();
+                    chunk.clear();
+                }
+            }
+        } catch (IOException e) {
+            store.importAll(chunk);
+            sendImportError(ex, 400, e.getMessage(), record, List.of(), imported + chunk.size());
+            return;
+        }
+        store.importAll(chunk);
+        imported += chunk.size();
+        sendJson(ex, 200, GSON.toJson(new ImportResult(imported)));
+    }
+
+    private static List<String> validate(Movie movie) {
+        MovieRequest request = new MovieRequest();
+        request.title = movie.getTitle();
+        request.year = movie.getYear();
+        List<String> errors = MovieRequestValidator.validate(request);
+        if (movie.getId() < 1) {
+            errors.add(0, "id должен быть положительным");
+        }
+        return errors;
+    }
+
+    private void sendImportError(HttpExchange ex, int status, String error, long record, List<String> errors,
+                                 long imported) throws IOException {
+        List<String> details = new ArrayList<>();
+        details.add("запись " + record + (errors.isEmpty() ? "" : ": " + String.join(", ", errors)));
+        details.add("записи до неё импортированы: " + imported);
+        sendJson(ex, status, GSON.toJson(new ErrorResponse(error, details)));
+    }
+}
@@ -1,24 +1,66 @@
 package ru.practicum.moviehub.http;
 
-import com.sun.net.httpserver.HttpServer;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.moviehub.metrics.MetricsRegistry;
+import ru.practicum.moviehub.replication.ReplicationNode;
 import ru.practicum.moviehub.store.MoviesStore;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 public class MoviesServer {
-    private final HttpServer server;
+    private final ServerBackend server;
     private final MoviesStore store;
+    private final ExecutorService executor;
+    private final MetricsRegistry metrics;
+    private final AdmissionConfig admission;
+    private final RateLimiter rateLimiter;
+    private final ReplicationNode replication;
 
-    public MoviesServer(MoviesStore moviesServer, int port) {
-        this.store = new MoviesStore();
+    public MoviesServer(MoviesStore store, int port) {
+        this(store, port, ServerConfig.defaults());
+    }
+
+    public MoviesServer(MoviesStore store, int port, ServerConfig config) {
+        this(store, port, config, AdmissionConfig.defaults(config));
+    }
+
+    public MoviesServer(MoviesStore store, int port, ServerConfig config, AdmissionConfig admission) {
+        this(store, port, config, admission, null);
+    }
+
+    /**
+     * @param replication роль в репликации или null для одиночного сервера; на реплике запись не принимается
+     */
+    public MoviesServer(MoviesStore store, int port, ServerConfig config, AdmissionConfig admission,
+                        ReplicationNode replication) {
+        this.store = store;
+        this.admission = admission;
+        this.replication = replication;
+        this.rateLimiter = admission.createRateLimiter();
+        executor = config.createExecutor();
         try {
-            server = HttpServer.create(new InetSocketAddress(port), 0);
+            server = config.getBackend().create(new InetSocketAddress(port), config, executor);
         } catch (IOException e) {
+            executor.shutdownNow();
             throw new RuntimeException("Не удалось создать HTTP-сервер", e);
         }
-        server.createContext("/movies", new MoviesHandler(store));
-        server.createContext("/movies/", new MovieByIdHandler(store));
+        metrics = new MetricsRegistry(store::size);
+        ResponseCache responses = new ResponseCache(store, config.getResponseCacheEntries(),
+                config.getResponseCacheBytes(), metrics.registerCache("movies"));
+        createInstrumentedContext("/movies", "/movies", new MoviesHandler(store, responses));
+        createInstrumentedContext("/movies/", "/movies/{id}", new MovieByIdHandler(store));
+        createInstrumentedContext("/movies/batch", "/movies/batch", new MoviesBatchHandler(store));
+        createInstrumentedContext("/movies/export", "/movies/export", new MoviesExportHandler(store));
+        createInstrumentedContext("/movies/import", "/movies/import", new MoviesImportHandler(store));
+        createInstrumentedContext("/movies/changes", "/movies/changes", new MovieChangesHandler(store));
+        server.createContext("/metrics", new MetricsHandler(metrics));
+        if (replication != null) {
+            server.createContext("/replication", new ReplicationHandler(replication));
+        }
     }
 
     public void start() {
@@ -26,10 +68,28 @@ public class MoviesServer {
     }
 
     public void stop() {
-        server.stop(0);
+        server.stop();
+        executor.shutdownNow();
+    }
+
+    /**
+     * Порт, на котором слушает сервер; нужен, если сервер создан с портом 0.
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
     }
 
     public void clearStore() {
         store.clear();
     }
+
+    private void createInstrumentedContext(String path, String route, HttpHandler handler) {
+        List<Filter> filters = server.createContext(path, handler).getFilters();
+        // метрики снаружи, чтобы в них попадали и отклонённые запросы
+        filters.add(new MetricsFilter(metrics, route));
+        if (replication != null && !replication.acceptsWrites()) {
+            filters.add(new FollowerWriteFilter(replication.getLeaderUrl()));
+        }
+        filters.add(new AdmissionFilter(admission, route, rateLimiter));
+    }
 }
@@ -0,0 +1,505 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.List;
+
+/**
+ * Соединение {@link NioServerBackend}. Чтение и разбор запросов идут в потоке селектора; ответ пишет поток
+ * обработчика — сразу в сокет, если тот успевает принять, а остаток ставится в очередь, которую
+ * дописывает селектор. Пока запрос обрабатывается, соединение не читается: следующие запросы ждут
+ * в буфере сокета, и клиент, отправивший много запросов подряд, не раздувает память сервера.
+ */
+final class NioConnection {
+    private static final int MAX_HEADERS_SIZE = 64 * 1024;
+    private static final int MAX_BODY_SIZE = 64 * 1024 * 1024;
+    private static final int MAX_CHUNK_LINE = 1024;
+    // сколько байт ответа может ждать отправки, прежде чем обработчик остановится и подождёт клиента
+    private static final int MAX_PENDING_BYTES = 256 * 1024;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final NioServerBackend server;
+    private final SocketChannel channel;
+    private final SelectionKey key;
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+
+    // поля ниже меняет только поток селектора
+    // принятые, но ещё не разобранные байты; у простаивающего соединения буфера нет
+    private byte[] input;
+    private int inputStart;
+    private int inputEnd;
+    private boolean busy;
+    private boolean continueSent;
+    private long lastActivity;
+
+    // поля ниже — под монитором соединения
+    private final ArrayDeque<ByteBuffer> pending = new ArrayDeque<>();
+    private int pendingBytes;
+    private boolean responseDone;
+    private boolean closeAfterResponse;
+    private boolean closed;
+
+    NioConnection(NioServerBackend server, SocketChannel channel, SelectionKey key) throws IOException {
+        this.server = server;
+        this.channel = channel;
+        this.key = key;
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+        this.lastActivity = System.nanoTime();
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    /**
+     * Дочитывает из сокета то, что пришло, и, если запрос получен целиком, отдаёт его обработчику.
+     */
+    void read(ByteBuffer buffer) {
+        try {
+            buffer.clear();
+            int read = channel.read(buffer);
+            if (read < 0) {
+                close();
+                return;
+            }
+            buffer.flip();
+            append(buffer);
+            lastActivity = System.nanoTime();
+            processInput();
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    /**
+     * Поток обработчика: отправляет байты ответа. Если клиент читает медленнее, чем сервер пишет,
+     * ждёт, пока неотправленного останется меньше {@value #MAX_PENDING_BYTES} байт.
+     */
+    void write(ByteBuffer... buffers) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Соединение закрыто");
+            }
+            if (pending.isEmpty()) {
+                channel.write(buffers);
+            }
+            int remaining = 0;
+            for (ByteBuffer buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            if (remaining == 0) {
+                return;
+            }
+            ByteBuffer rest = ByteBuffer.allocate(remaining);
+            for (ByteBuffer buffer : buffers) {
+                rest.put(buffer);
+            }
+            if (pending.isEmpty()) {
+                server.wakeup(this);
+            }
+            pending.add(rest.flip());
+            pendingBytes += remaining;
+            try {
+                while (pendingBytes > MAX_PENDING_BYTES && !closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Отправка ответа прервана");
+            }
+            if (closed) {
+                throw new IOException("Соединение закрыто");
+            }
+        }
+    }
+
+    /**
+     * Поток обработчика: ответ записан целиком.
+     *
+     * @param close закрыть соединение, когда ответ уйдёт
+     */
+    void finishResponse(boolean close) {
+        synchronized (this) {
+            responseDone = true;
+            closeAfterResponse = close;
+        }
+        server.wakeup(this);
+    }
+
+    /**
+     * Дописывает очередь ответа; когда ответ ушёл целиком, берётся за следующий запрос соединения.
+     */
+    void flush() {
+        boolean closeNow;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            try {
+                while (!pending.isEmpty()) {
+                    ByteBuffer head = pending.peek();
+                    pendingBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    pending.poll();
+                }
+            } catch (IOException e) {
+                closeLocked();
+                return;
+            }
+            notifyAll();
+            if (!pending.isEmpty()) {
+                key.interestOps(SelectionKey.OP_WRITE);
+                return;
+            }
+            if (!responseDone) {
+                key.interestOps(0);
+                return;
+            }
+            responseDone = false;
+            closeNow = closeAfterResponse;
+        }
+        if (closeNow) {
+            close();
+            return;
+        }
+        busy = false;
+        lastActivity = System.nanoTime();
+        // следующий запрос мог прийти вместе с предыдущим
+        processInput();
+        if (!busy && !closed) {
+            key.interestOps(SelectionKey.OP_READ);
+        }
+    }
+
+    /**
+     * Соединение не занято запросом и молчит дольше тайм-аута; недочитанный запрос тоже считается простоем.
+     */
+    boolean isIdle(long now, long timeoutNanos) {
+        return !busy && now - lastActivity > timeoutNanos;
+    }
+
+    void close() {
+        synchronized (this) {
+            closeLocked();
+        }
+    }
+
+    private void closeLocked() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        pending.clear();
+        pendingBytes = 0;
+        notifyAll();
+        key.cancel();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            // соединение уже не нужно
+        }
+    }
+
+    private void append(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (input == null) {
+            input = new byte[Math.max(length, 512)];
+            inputStart = 0;
+            inputEnd = 0;
+        } else if (input.length - inputEnd < length) {
+            int used = inputEnd - inputStart;
+            byte[] target = used + length <= input.length ? input : new byte[Math.max(input.length * 2, used + length)];
+            System.arraycopy(input, inputStart, target, 0, used);
+            input = target;
+            inputStart = 0;
+            inputEnd = used;
+        }
+        buffer.get(input, inputEnd, length);
+        inputEnd += length;
+    }
+
+    private void processInput() {
+        if (busy || input == null) {
+            return;
+        }
+        NioExchange exchange;
+        try {
+            exchange = parseRequest();
+        } catch (BadRequestException e) {
+            reject(e.status, e.getMessage());
+            return;
+        }
+        if (exchange == null) {
+            return;
+        }
+        if (inputStart == inputEnd) {
+            input = null;
+        }
+        busy = true;
+        continueSent = false;
+        key.interestOps(0);
+        server.dispatch(exchange);
+    }
+
+    /**
+     * @return запрос, если он пришёл целиком, иначе null
+     */
+    private NioExchange parseRequest() throws BadRequestException {
+        // пустые строки перед запросом допускаются
+        while (inputEnd - inputStart >= 2 && input[inputStart] == '\r' && input[inputStart + 1] == '\n') {
+            inputStart += 2;
+        }
+        int headersEnd = indexOfBlankLine(inputStart, Math.min(inputEnd, inputStart + MAX_HEADERS_SIZE));
+        if (headersEnd < 0) {
+            if (inputEnd - inputStart >= MAX_HEADERS_SIZE) {
+                throw new BadRequestException(431, "Слишком большие заголовки запроса");
+            }
+            return null;
+        }
+        String head = new String(input, inputStart, headersEnd - inputStart, StandardCharsets.ISO_8859_1);
+        int lineEnd = head.indexOf("\r\n");
+        String requestLine = lineEnd < 0 ? head : head.substring(0, lineEnd);
+        int methodEnd = requestLine.indexOf(' ');
+        int targetEnd = requestLine.indexOf(' ', methodEnd + 1);
+        if (methodEnd <= 0 || targetEnd < 0 || targetEnd == methodEnd + 1) {
+            throw new BadRequestException(400, "Некорректный запрос");
+        }
+        String method = requestLine.substring(0, methodEnd);
+        String protocol = requestLine.substring(targetEnd + 1);
+        if (!"HTTP/1.1".equals(protocol) && !"HTTP/1.0".equals(protocol)) {
+            throw new BadRequestException(505, "Версия HTTP не поддерживается");
+        }
+        URI uri;
+        try {
+            uri = new URI(requestLine.substring(methodEnd + 1, targetEnd));
+        } catch (URISyntaxException e) {
+            throw new BadRequestException(400, "Некорректный запрос");
+        }
+        Headers headers = parseHeaders(head, lineEnd);
+
+        int bodyStart = headersEnd + 4;
+        byte[] body;
+        int requestEnd;
+        String transferEncoding = headers.getFirst("Transfer-Encoding");
+        if (transferEncoding != null) {
+            if (!"chunked".equalsIgnoreCase(transferEncoding.trim()) || headers.containsKey("Content-Length")) {
+                throw new BadRequestException(501, "Transfer-Encoding не поддерживается");
+            }
+            requestEnd = scanChunked(bodyStart, null);
+            if (requestEnd < 0) {
+                expectContinue(headers);
+                return null;
+            }
+            ByteArrayOutputStream decoded = new ByteArrayOutputStream(requestEnd - bodyStart);
+            scanChunked(bodyStart, decoded);
+            body = decoded.toByteArray();
+        } else {
+            int length = contentLength(headers);
+            if (inputEnd - bodyStart < length) {
+                expectContinue(headers);
+                return null;
+            }
+            requestEnd = bodyStart + length;
+            body = new byte[length];
+            System.arraycopy(input, bodyStart, body, 0, length);
+        }
+        inputStart = requestEnd;
+        return new NioExchange(this, method, uri, protocol, headers, body, isKeepAlive(protocol, headers));
+    }
+
+    private static Headers parseHeaders(String head, int lineEnd) throws BadRequestException {
+        Headers headers = new Headers();
+        int start = lineEnd < 0 ? head.length() : lineEnd + 2;
+        while (start < head.length()) {
+            int end = head.indexOf("\r\n", start);
+            if (end < 0) {
+                end = head.length();
+            }
+            int colon = head.indexOf(':', start);
+            // продолжение заголовка на следующей строке (obs-fold) устарело и не поддерживается
+            if (colon <= start || colon > end || head.charAt(start) == ' ' || head.charAt(start) == '\t') {
+                throw new BadRequestException(400, "Некорректный заголовок запроса");
+            }
+            try {
+                headers.add(head.substring(start, colon), head.substring(colon + 1, end).trim());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException(400, "Некорректный заголовок запроса");
+            }
+            start = end + 2;
+        }
+        return headers;
+    }
+
+    private static int contentLength(Headers headers) throws BadRequestException {
+        List<String> values = headers.get("Content-Length");
+        if (values == null) {
+            return 0;
+        }
+        String value = values.get(0).trim();
+        long length = value.isEmpty() || !Character.isDigit(value.charAt(0))
+                ? RequestParams.NOT_A_NUMBER
+                : RequestParams.parseInt(value, 0, value.length());
+        // несколько разных Content-Length — признак подмены запроса
+        if (length == RequestParams.NOT_A_NUMBER || values.stream().anyMatch(v -> !v.trim().equals(value))) {
+            throw new BadRequestException(400, "Некорректный Content-Length");
+        }
+        if (length > MAX_BODY_SIZE) {
+            throw new BadRequestException(413, "Слишком большое тело запроса");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Проходит тело в кодировке chunked от {@code from}; если {@code out} задан, собирает в него данные.
+     *
+     * @return позиция сразу после тела или -1, если оно пришло не целиком
+     */
+    private int scanChunked(int from, ByteArrayOutputStream out) throws BadRequestException {
+        int position = from;
+        long total = 0;
+        while (true) {
+            int lineEnd = indexOfLineEnd(position, inputEnd);
+            if (lineEnd < 0) {
+                if (inputEnd - position > MAX_CHUNK_LINE) {
+                    throw new BadRequestException(400, "Некорректное тело запроса");
+                }
+                return -1;
+            }
+            int size = chunkSize(position, lineEnd);
+            position = lineEnd + 2;
+            if (size == 0) {
+                // после последнего блока могут идти заголовки-трейлеры; они пропускаются
+                while (true) {
+                    int trailerEnd = indexOfLineEnd(position, inputEnd);
+                    if (trailerEnd < 0) {
+                        return -1;
+                    }
+                    if (trailerEnd == position) {
+                        return position + 2;
+                    }
+                    position = trailerEnd + 2;
+                }
+            }
+            total += size;
+            if (total > MAX_BODY_SIZE) {
+                throw new BadRequestException(413, "Слишком большое тело запроса");
+            }
+            if (inputEnd - position < size + 2) {
+                return -1;
+            }
+            if (input[position + size] != '\r' || input[position + size + 1] != '\n') {
+                throw new BadRequestException(400, "Некорректное тело запроса");
+            }
+            if (out != null) {
+                out.write(input, position, size);
+            }
+            position += size + 2;
+        }
+    }
+
+    private int chunkSize(int start, int end) throws BadRequestException {
+        int size = 0;
+        int i = start;
+        for (; i < end && input[i] != ';'; i++) {
+            int digit = Character.digit(input[i], 16);
+            if (digit < 0 || size > (MAX_BODY_SIZE >> 4)) {
+                throw new BadRequestException(400, "Некорректное тело запроса");
+            }
+            size = size * 16 + digit;
+        }
+        if (i == start) {
+            throw new BadRequestException(400, "Некорректное тело запроса");
+        }
+        return size;
+    }
+
+    private void expectContinue(Headers headers) {
+        if (continueSent || !"100-continue".equalsIgnoreCase(headers.getFirst("Expect"))) {
+            return;
+        }
+        continueSent = true;
+        try {
+            // очередь ответов пуста: соединение не занято запросом, так что запись не ждёт
+            write(ByteBuffer.wrap(CONTINUE));
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private boolean isKeepAlive(String protocol, Headers headers) {
+        if (!server.isKeepAlive()) {
+            return false;
+        }
+        String connection = headers.getFirst("Connection");
+        return "HTTP/1.1".equals(protocol)
+                ? !NioExchange.hasToken(connection, "close")
+                : NioExchange.hasToken(connection, "keep-alive");
+    }
+
+    /**
+     * Отвечает ошибкой на запрос, который не удалось разобрать, и закрывает соединение.
+     */
+    private void reject(int status, String message) {
+        input = null;
+        busy = true;
+        try {
+            write(ByteBuffer.wrap(NioExchange.errorResponse(status, message)));
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        synchronized (this) {
+            responseDone = true;
+            closeAfterResponse = true;
+        }
+        flush();
+    }
+
+    private int indexOfBlankLine(int from, int to) {
+        for (int i = from; i + 3 < to; i++) {
+            if (input[i] == '\r' && input[i + 1] == '\n' && input[i + 2] == '\r' && input[i + 3] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int indexOfLineEnd(int from, int to) {
+        for (int i = from; i + 1 < to; i++) {
+            if (input[i] == '\r' && input[i + 1] == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        final int status;
+
+        BadRequestException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,467 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+import ru.practicum.moviehub.api.ErrorResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Запрос {@link NioServerBackend} в виде {@link HttpExchange}, чтобы на этом сервере работали те же обработчики
+ * и фильтры, что и на встроенном. Заголовки ответа собираются в буфер вместе с началом тела и уходят одной
+ * записью; тело известной длины отправляется как есть, остальное — блоками chunked по мере заполнения буфера.
+ */
+final class NioExchange extends HttpExchange {
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] LAST_CHUNK = {'0', '\r', '\n', '\r', '\n'};
+    private static final byte[] CRLF_LAST_CHUNK = {'\r', '\n', '0', '\r', '\n', '\r', '\n'};
+    private static volatile CachedDate date = new CachedDate(0, "");
+
+    private final NioConnection connection;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final boolean keepAlive;
+    private final Map<String, Object> attributes = new HashMap<>();
+    private final ResponseBody body = new ResponseBody();
+    private InputStream requestStream;
+    private OutputStream responseStream = body;
+    private HttpContext context;
+    private int responseCode = -1;
+    private boolean closeConnection;
+
+    NioExchange(NioConnection connection, String method, URI uri, String protocol, Headers requestHeaders,
+                byte[] requestBody, boolean keepAlive) {
+        this.connection = connection;
+        this.method = method;
+        this.uri = uri;
+        this.protocol = protocol;
+        this.requestHeaders = requestHeaders;
+        this.requestStream = new ByteArrayInputStream(requestBody);
+        this.keepAlive = keepAlive;
+    }
+
+    NioConnection getConnection() {
+        return connection;
+    }
+
+    void setHttpContext(HttpContext context) {
+        this.context = context;
+    }
+
+    /**
+     * Ответ об ошибке от самого сервера, когда до обработчика дело не дошло.
+     */
+    void sendError(int status, String message) throws IOException {
+        byte[] json = errorJson(message);
+        responseHeaders.set("Content-Type", BaseHttpHandler.CT_JSON);
+        sendResponseHeaders(status, json.length);
+        try (OutputStream os = getResponseBody()) {
+            os.write(json);
+        }
+    }
+
+    /**
+     * Обработчик завершился с ошибкой: если ответ ещё не начат, клиент получает 500, иначе соединение рвётся,
+     * потому что часть ответа уже ушла.
+     */
+    void abort() {
+        if (responseCode != -1) {
+            connection.close();
+            return;
+        }
+        try {
+            responseHeaders.clear();
+            responseHeaders.set("Connection", "close");
+            sendError(500, "Внутренняя ошибка сервера");
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        if (responseCode == -1) {
+            // как и встроенный сервер: обработчик не ответил, и соединение закрывается без ответа
+            connection.close();
+            return;
+        }
+        try {
+            requestStream.close();
+            responseStream.close();
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestStream;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseStream;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode != -1) {
+            throw new IOException("Заголовки ответа уже отправлены");
+        }
+        responseCode = rCode;
+        boolean noBody = rCode < 200 || rCode == 204 || rCode == 304 || "HEAD".equals(method);
+        if (!keepAlive || hasToken(responseHeaders.getFirst("Connection"), "close")) {
+            closeConnection = true;
+            responseHeaders.set("Connection", "close");
+        } else if ("HTTP/1.0".equals(protocol)) {
+            responseHeaders.set("Connection", "keep-alive");
+        }
+        responseHeaders.set("Date", currentDate());
+        int mode;
+        if (noBody) {
+            mode = ResponseBody.NONE;
+            if ("HEAD".equals(method) && responseLength > 0) {
+                responseHeaders.set("Content-Length", Long.toString(responseLength));
+            }
+        } else if (responseLength > 0) {
+            mode = ResponseBody.FIXED;
+            responseHeaders.set("Content-Length", Long.toString(responseLength));
+        } else if (responseLength == 0) {
+            mode = ResponseBody.CHUNKED;
+            responseHeaders.set("Transfer-Encoding", "chunked");
+        } else {
+            mode = ResponseBody.NONE;
+            responseHeaders.set("Content-Length", "0");
+        }
+        body.start(statusLine(rCode) + formatHeaders(responseHeaders), mode, responseLength);
+        if (mode == ResponseBody.NONE) {
+            body.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (value == null) {
+            attributes.remove(name);
+        } else {
+            attributes.put(name, value);
+        }
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestStream = i;
+        }
+        if (o != null) {
+            responseStream = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    /**
+     * Полный ответ с ошибкой и закрытием соединения; для запросов, которые не удалось разобрать.
+     */
+    static byte[] errorResponse(int status, String message) {
+        byte[] json = errorJson(message);
+        String head = statusLine(status)
+                + "Content-Type: " + BaseHttpHandler.CT_JSON + "\r\n"
+                + "Content-Length: " + json.length + "\r\n"
+                + "Connection: close\r\n"
+                + "Date: " + currentDate() + "\r\n\r\n";
+        byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] response = new byte[headBytes.length + json.length];
+        System.arraycopy(headBytes, 0, response, 0, headBytes.length);
+        System.arraycopy(json, 0, response, headBytes.length, json.length);
+        return response;
+    }
+
+    /**
+     * Есть ли {@code token} в списке через запятую, как в заголовке Connection.
+     */
+    static boolean hasToken(String header, String token) {
+        if (header == null) {
+            return false;
+        }
+        for (String part : header.split(",")) {
+            if (part.trim().equalsIgnoreCase(token)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] errorJson(String message) {
+        return BaseHttpHandler.GSON.toJson(new ErrorResponse(message, null)).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String statusLine(int status) {
+        return "HTTP/1.1 " + status + " " + reasonPhrase(status) + "\r\n";
+    }
+
+    private static String formatHeaders(Headers headers) {
+        StringBuilder result = new StringBuilder(256);
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            for (String value : header.getValue()) {
+                result.append(header.getKey()).append(": ").append(value).append("\r\n");
+            }
+        }
+        return result.append("\r\n").toString();
+    }
+
+    // дата меняется раз в секунду, а форматировать её на каждый ответ заметно дороже
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        CachedDate cached = date;
+        if (cached.second != second) {
+            cached = new CachedDate(second, DateTimeFormatter.RFC_1123_DATE_TIME
+                    .format(Instant.ofEpochSecond(second).atOffset(ZoneOffset.UTC)));
+            date = cached;
+        }
+        return cached.value;
+    }
+
+    private static String reasonPhrase(int status) {
+        switch (status) {
+            case 100:
+                return "Continue";
+            case 200:
+                return "OK";
+            case 201:
+                return "Created";
+            case 202:
+                return "Accepted";
+            case 204:
+                return "No Content";
+            case 304:
+                return "Not Modified";
+            case 400:
+                return "Bad Request";
+            case 404:
+                return "Not Found";
+            case 405:
+                return "Method Not Allowed";
+            case 409:
+                return "Conflict";
+            case 410:
+                return "Gone";
+            case 412:
+                return "Precondition Failed";
+            case 413:
+                return "Content Too Large";
+            case 415:
+                return "Unsupported Media Type";
+            case 422:
+                return "Unprocessable Content";
+            case 429:
+                return "Too Many Requests";
+            case 431:
+                return "Request Header Fields Too Large";
+            case 500:
+                return "Internal Server Error";
+            case 501:
+                return "Not Implemented";
+            case 503:
+                return "Service Unavailable";
+            case 505:
+                return "HTTP Version Not Supported";
+            default:
+                return "";
+        }
+    }
+
+    private static class CachedDate {
+        final long second;
+        final String value;
+
+        CachedDate(long second, String value) {
+            this.second = second;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Тело ответа. Пока буфер не заполнен, в нём же лежат заголовки, так что небольшой ответ уходит
+     * в сокет одной записью.
+     */
+    private final class ResponseBody extends OutputStream {
+        static final int NONE = 0;
+        static final int FIXED = 1;
+        static final int CHUNKED = 2;
+
+        private byte[] buffer;
+        private int count;
+        // где в буфере кончаются заголовки ещё не отправленного ответа
+        private int bodyStart;
+        private int mode;
+        private long remaining;
+        private boolean closed;
+
+        void start(String head, int mode, long length) {
+            byte[] headBytes = head.getBytes(StandardCharsets.ISO_8859_1);
+            buffer = new byte[Math.max(BUFFER_SIZE, headBytes.length)];
+            System.arraycopy(headBytes, 0, buffer, 0, headBytes.length);
+            count = headBytes.length;
+            bodyStart = count;
+            this.mode = mode;
+            this.remaining = length;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Тело ответа уже закрыто");
+            }
+            if (buffer == null) {
+                throw new IOException("Заголовки ответа ещё не отправлены");
+            }
+            if (len == 0) {
+                return;
+            }
+            if (mode == NONE) {
+                throw new IOException("У этого ответа нет тела");
+            }
+            if (mode == FIXED) {
+                if (len > remaining) {
+                    throw new IOException("Тело ответа длиннее объявленного в Content-Length");
+                }
+                remaining -= len;
+            }
+            if (len > buffer.length - count) {
+                send(false);
+            }
+            if (len > buffer.length - count) {
+                connection.write(frame(ByteBuffer.wrap(b, off, len)));
+                return;
+            }
+            System.arraycopy(b, off, buffer, count, len);
+            count += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (!closed && buffer != null && count > 0) {
+                send(false);
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed || buffer == null) {
+                return;
+            }
+            closed = true;
+            if (mode == FIXED && remaining > 0) {
+                // клиент ждёт больше, чем обработчик записал, и отличить конец ответа сможет только по закрытию
+                closeConnection = true;
+            }
+            send(true);
+            buffer = null;
+            connection.finishResponse(closeConnection);
+        }
+
+        private void send(boolean last) throws IOException {
+            ByteBuffer head = ByteBuffer.wrap(buffer, 0, bodyStart);
+            ByteBuffer data = ByteBuffer.wrap(buffer, bodyStart, count - bodyStart);
+            if (mode != CHUNKED) {
+                connection.write(head, data);
+            } else if (!data.hasRemaining()) {
+                connection.write(head, ByteBuffer.wrap(LAST_CHUNK, 0, last ? LAST_CHUNK.length : 0));
+            } else {
+                connection.write(head, chunkHeader(data.remaining()), data,
+                        ByteBuffer.wrap(last ? CRLF_LAST_CHUNK : CRLF));
+            }
+            count = 0;
+            bodyStart = 0;
+        }
+
+        private ByteBuffer[] frame(ByteBuffer data) {
+            if (mode != CHUNKED) {
+                return new ByteBuffer[]{data};
+            }
+            return new ByteBuffer[]{chunkHeader(data.remaining()), data, ByteBuffer.wrap(CRLF)};
+        }
+
+        private ByteBuffer chunkHeader(int length) {
+            return ByteBuffer.wrap((Integer.toHexString(length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+        }
+    }
+}
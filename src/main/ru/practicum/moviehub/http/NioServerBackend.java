@@ -0,0 +1,320 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Неблокирующий сервер HTTP/1.1. Один поток с селектором принимает соединения, читает и разбирает запросы
+ * и дописывает ответы, которые не ушли в сокет сразу; обработчики выполняются в пуле сервера.
+ * <p>
+ * Простаивающее соединение — это ключ селектора и небольшой объект состояния: буфер чтения общий,
+ * а свой буфер у соединения появляется, только пока запрос пришёл не целиком. Запросы, отправленные
+ * по одному соединению подряд без ожидания ответов (pipelining), обрабатываются по очереди,
+ * и ответы уходят в том же порядке.
+ */
+final class NioServerBackend implements ServerBackend {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long IDLE_CHECK_MILLIS = 1000;
+
+    private final ServerSocketChannel acceptor;
+    private final Selector selector;
+    private final Executor executor;
+    private final boolean keepAlive;
+    private final long idleTimeoutNanos;
+    private final List<Context> contexts = new CopyOnWriteArrayList<>();
+    // соединения, которым обработчик отдал ответ или его часть; их разбирает поток селектора
+    private final Queue<NioConnection> ready = new ConcurrentLinkedQueue<>();
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private final Thread selectorThread;
+    private volatile boolean running;
+
+    NioServerBackend(InetSocketAddress address, ServerConfig config, Executor executor) throws IOException {
+        this.executor = executor;
+        this.keepAlive = config.isKeepAlive();
+        this.idleTimeoutNanos = config.getIdleTimeout().toNanos();
+        selector = Selector.open();
+        acceptor = ServerSocketChannel.open();
+        try {
+            acceptor.bind(address, config.getBacklog());
+            acceptor.configureBlocking(false);
+            acceptor.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            acceptor.close();
+            selector.close();
+            throw e;
+        }
+        selectorThread = new Thread(this::run, "moviehub-nio-selector");
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        Context context = new Context(path, handler);
+        contexts.add(context);
+        return context;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        selectorThread.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (!selectorThread.isAlive()) {
+            closeAll();
+            return;
+        }
+        selector.wakeup();
+        try {
+            selectorThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        return (InetSocketAddress) acceptor.socket().getLocalSocketAddress();
+    }
+
+    boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Передаёт разобранный запрос в пул обработчиков.
+     */
+    void dispatch(NioExchange exchange) {
+        try {
+            executor.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            exchange.getConnection().close();
+        }
+    }
+
+    /**
+     * Просит поток селектора заняться соединением: дописать ответ или, если он готов, взяться за следующий запрос.
+     */
+    void wakeup(NioConnection connection) {
+        ready.add(connection);
+        selector.wakeup();
+    }
+
+    private void handle(NioExchange exchange) {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            Context context = path == null ? null : findContext(path);
+            if (context == null) {
+                exchange.sendError(404, "Не найдено");
+                return;
+            }
+            exchange.setHttpContext(context);
+            new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+        } catch (IOException | RuntimeException e) {
+            exchange.abort();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // как и встроенный сервер, выбирает самый длинный путь контекста, с которого начинается путь запроса
+    private Context findContext(String path) {
+        Context found = null;
+        for (Context context : contexts) {
+            if (path.startsWith(context.path) && (found == null || context.path.length() > found.path.length())) {
+                found = context;
+            }
+        }
+        return found;
+    }
+
+    private void run() {
+        long nextIdleCheck = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(IDLE_CHECK_MILLIS);
+        try {
+            while (running) {
+                selector.select(IDLE_CHECK_MILLIS);
+                Set<SelectionKey> selected = selector.selectedKeys();
+                for (SelectionKey key : selected) {
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    serve(key);
+                }
+                selected.clear();
+                NioConnection connection;
+                while ((connection = ready.poll()) != null) {
+                    try {
+                        connection.flush();
+                    } catch (RuntimeException e) {
+                        drop(connection, e);
+                    }
+                }
+                long now = System.nanoTime();
+                if (now - nextIdleCheck >= 0) {
+                    closeIdle(now);
+                    nextIdleCheck = now + TimeUnit.MILLISECONDS.toNanos(IDLE_CHECK_MILLIS);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("HTTP-сервер остановлен из-за ошибки селектора: " + e.getMessage());
+        } finally {
+            closeAll();
+        }
+    }
+
+    private void serve(SelectionKey key) {
+        NioConnection connection = (NioConnection) key.attachment();
+        try {
+            if (key.isWritable()) {
+                connection.flush();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.read(readBuffer);
+            }
+        } catch (RuntimeException e) {
+            drop(connection, e);
+        }
+    }
+
+    /**
+     * Закрывает соединение, на котором обработка сорвалась, не останавливая единственный поток селектора.
+     * Ключ может отменить рабочий поток, закрывший соединение между проверкой ключа и обращением к нему:
+     * это обычная гонка, а не ошибка.
+     */
+    private void drop(NioConnection connection, RuntimeException e) {
+        if (!(e instanceof CancelledKeyException)) {
+            System.err.println("Ошибка обработки соединения: " + e);
+        }
+        connection.close();
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = acceptor.accept()) != null) {
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new NioConnection(this, channel, key));
+            } catch (IOException e) {
+                channel.close();
+            }
+        }
+    }
+
+    private void closeIdle(long now) {
+        for (SelectionKey key : selector.keys()) {
+            if (key.attachment() instanceof NioConnection connection && connection.isIdle(now, idleTimeoutNanos)) {
+                connection.close();
+            }
+        }
+    }
+
+    private void closeAll() {
+        try {
+            for (SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof NioConnection connection) {
+                    connection.close();
+                }
+            }
+            selector.close();
+        } catch (IOException | RuntimeException e) {
+            // сервер всё равно останавливается
+        }
+        try {
+            acceptor.close();
+        } catch (IOException e) {
+            // сервер всё равно останавливается
+        }
+    }
+
+    /**
+     * Контекст с обработчиком и фильтрами, как у встроенного сервера.
+     */
+    private static final class Context extends HttpContext {
+        private final String path;
+        private final List<Filter> filters = new CopyOnWriteArrayList<>();
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+        private volatile HttpHandler handler;
+        private volatile Authenticator authenticator;
+
+        Context(String path, HttpHandler handler) {
+            this.path = path;
+            this.handler = handler;
+        }
+
+        @Override
+        public HttpHandler getHandler() {
+            return handler;
+        }
+
+        @Override
+        public void setHandler(HttpHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * У этого сервера нет объекта {@link HttpServer}.
+         */
+        @Override
+        public HttpServer getServer() {
+            return null;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public List<Filter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public Authenticator setAuthenticator(Authenticator authenticator) {
+            Authenticator previous = this.authenticator;
+            this.authenticator = authenticator;
+            return previous;
+        }
+
+        @Override
+        public Authenticator getAuthenticator() {
+            return authenticator;
+        }
+    }
+}
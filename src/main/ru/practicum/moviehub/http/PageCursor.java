@@ -0,0 +1,65 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Позиция в выдаче: год и id последнего фильма страницы. Клиенту передаётся как непрозрачная строка.
+ */
+class PageCursor {
+    static final PageCursor START = new PageCursor(Integer.MIN_VALUE, 0);
+
+    private final int year;
+    private final int id;
+
+    private PageCursor(int year, int id) {
+        this.year = year;
+        this.id = id;
+    }
+
+    static PageCursor after(Movie movie) {
+        return new PageCursor(movie.getYear(), movie.getId());
+    }
+
+    /**
+     * @return курсор или null, если строка не похожа на выданный сервером курсор
+     */
+    static PageCursor decode(String value) {
+        // проверяем алфавит заранее, чтобы декодер Base64 не бросал исключений на мусорном вводе
+        if (value == null || value.isEmpty() || value.length() % 4 == 1) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return null;
+            }
+        }
+        String raw = new String(Base64.getUrlDecoder().decode(value), StandardCharsets.US_ASCII);
+        int sep = raw.indexOf(':');
+        if (sep <= 0) {
+            return null;
+        }
+        long year = RequestParams.parseInt(raw, 0, sep);
+        long id = RequestParams.parseInt(raw, sep + 1, raw.length());
+        if (year == RequestParams.NOT_A_NUMBER || id == RequestParams.NOT_A_NUMBER || id < 0) {
+            return null;
+        }
+        return new PageCursor((int) year, (int) id);
+    }
+
+    String encode() {
+        byte[] raw = (year + ":" + id).getBytes(StandardCharsets.US_ASCII);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+    }
+
+    int getYear() {
+        return year;
+    }
+
+    int getId() {
+        return id;
+    }
+}
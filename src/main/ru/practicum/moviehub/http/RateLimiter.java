@@ -0,0 +1,76 @@
+package ru.practicum.moviehub.http;
+
+import java.net.InetAddress;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ограничение частоты запросов с одного адреса по алгоритму token bucket.
+ * <p>
+ * Помнит не больше {@value #MAX_CLIENTS} адресов: сверх того забывается тот, кто дольше всех молчал.
+ * Его корзина к этому времени почти наверняка снова полна, так что забыть её — то же, что завести заново.
+ */
+class RateLimiter {
+    private static final int MAX_CLIENTS = 10_000;
+
+    private final double permitsPerNano;
+    private final double burst;
+    // порядок доступа: первым идёт адрес, от которого дольше всего не было запросов
+    private final Map<InetAddress, Bucket> buckets = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<InetAddress, Bucket> eldest) {
+            return size() > MAX_CLIENTS;
+        }
+    };
+
+    RateLimiter(double permitsPerSecond, int burst) {
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.burst = burst;
+    }
+
+    /**
+     * @return 0, если запрос можно принять, иначе через сколько наносекунд появится следующий токен
+     */
+    long tryAcquire(InetAddress client) {
+        long now = System.nanoTime();
+        Bucket bucket;
+        synchronized (this) {
+            bucket = buckets.computeIfAbsent(client, c -> new Bucket(burst, now));
+        }
+        return bucket.tryAcquire(now);
+    }
+
+    /**
+     * Сколько адресов сейчас отслеживается.
+     */
+    synchronized int size() {
+        return buckets.size();
+    }
+
+    private class Bucket {
+        private double tokens;
+        private long updated;
+
+        Bucket(double tokens, long now) {
+            this.tokens = tokens;
+            this.updated = now;
+        }
+
+        synchronized long tryAcquire(long now) {
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return (long) Math.ceil((1 - tokens) / permitsPerNano);
+        }
+
+        private void refill(long now) {
+            if (now > updated) {
+                tokens = Math.min(burst, tokens + (now - updated) * permitsPerNano);
+                updated = now;
+            }
+        }
+    }
+}
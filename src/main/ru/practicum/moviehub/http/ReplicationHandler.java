@@ -0,0 +1,27 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.replication.ReplicationNode;
+
+import java.io.IOException;
+
+/**
+ * {@code GET /replication}: роль узла, номер последнего события и отставание реплик.
+ */
+public class ReplicationHandler extends BaseHttpHandler {
+    private final ReplicationNode node;
+
+    public ReplicationHandler(ReplicationNode node) {
+        this.node = node;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!"GET".equals(ex.getRequestMethod())) {
+            sendError(ex, 405, "Метод не поддерживается");
+            return;
+        }
+        ex.getResponseHeaders().set("Cache-Control", "no-store");
+        sendJson(ex, 200, GSON.toJson(node.getStatus()));
+    }
+}
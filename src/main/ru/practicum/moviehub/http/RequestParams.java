@@ -0,0 +1,183 @@
+package ru.practicum.moviehub.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Параметры строки запроса, разобранные на месте: для каждого известного параметра запоминаются только
+ * границы значения в исходной строке, без регулярных выражений, промежуточных строк и исключений.
+ * <p>
+ * Параметры могут идти в любом порядке. Набор допустимых имён задаёт обработчик; позиция имени в этом
+ * наборе служит индексом параметра в {@link #has(int)}, {@link #getInt(int)} и {@link #getString(int)}.
+ */
+final class RequestParams {
+    /**
+     * Результат {@link #parseInt}, если в строке не число.
+     */
+    static final long NOT_A_NUMBER = Long.MIN_VALUE;
+
+    private static final RequestParams EMPTY = new RequestParams(null, new int[0], null);
+
+    private final String query;
+    // starts[i] — начало значения i-го параметра в query или -1, если параметра нет
+    private final int[] starts;
+    private final int[] ends;
+    private final String invalidParam;
+
+    private RequestParams(String query, int[] starts, int[] ends) {
+        this.query = query;
+        this.starts = starts;
+        this.ends = ends;
+        this.invalidParam = null;
+    }
+
+    private RequestParams(String invalidParam) {
+        this.query = null;
+        this.starts = null;
+        this.ends = null;
+        this.invalidParam = invalidParam;
+    }
+
+    /**
+     * @param rawQuery строка запроса без декодирования ({@link java.net.URI#getRawQuery()}), может быть null
+     * @param names    допустимые имена параметров
+     * @param malformedParam имя, о котором сообщать, если пара без имени или параметр повторяется
+     */
+    static RequestParams parse(String rawQuery, String[] names, String malformedParam) {
+        if (rawQuery == null || rawQuery.isBlank()) {
+            return EMPTY;
+        }
+        int[] starts = new int[names.length];
+        int[] ends = new int[names.length];
+        Arrays.fill(starts, -1);
+        int length = rawQuery.length();
+        int pairStart = 0;
+        while (pairStart <= length) {
+            int pairEnd = rawQuery.indexOf('&', pairStart);
+            if (pairEnd < 0) {
+                pairEnd = length;
+            }
+            if (pairEnd > pairStart) {
+                int eq = rawQuery.indexOf('=', pairStart);
+                if (eq <= pairStart || eq >= pairEnd) {
+                    return new RequestParams(malformedParam);
+                }
+                int index = indexOf(names, rawQuery, pairStart, eq);
+                if (index < 0) {
+                    return new RequestParams(rawQuery.substring(pairStart, eq));
+                }
+                if (starts[index] >= 0) {
+                    return new RequestParams(malformedParam);
+                }
+                starts[index] = eq + 1;
+                ends[index] = pairEnd;
+            }
+            pairStart = pairEnd + 1;
+        }
+        return new RequestParams(rawQuery, starts, ends);
+    }
+
+    /**
+     * @return имя параметра, из-за которого строка запроса не разобрана, или null, если всё в порядке
+     */
+    String getInvalidParam() {
+        return invalidParam;
+    }
+
+    boolean has(int param) {
+        return param < starts.length && starts[param] >= 0;
+    }
+
+    /**
+     * @return значение как int или {@link #NOT_A_NUMBER}, если это не десятичное число в пределах int
+     */
+    long getInt(int param) {
+        return has(param) ? parseInt(query, starts[param], ends[param]) : NOT_A_NUMBER;
+    }
+
+    /**
+     * @return декодированное значение (с «+» как пробелом) или null, если параметра нет или в нём
+     * некорректная %-последовательность
+     */
+    String getString(int param) {
+        return has(param) ? decode(query, starts[param], ends[param]) : null;
+    }
+
+    /**
+     * Десятичное число с необязательным знаком из {@code value[start, end)}.
+     *
+     * @return число или {@link #NOT_A_NUMBER}, если в отрезке не число либо оно не помещается в int
+     */
+    static long parseInt(CharSequence value, int start, int end) {
+        int i = start;
+        boolean negative = false;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            negative = value.charAt(i) == '-';
+            i++;
+        }
+        if (i == end) {
+            return NOT_A_NUMBER;
+        }
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_A_NUMBER;
+            }
+            result = result * 10 + digit;
+            if (result > (long) Integer.MAX_VALUE + 1) {
+                return NOT_A_NUMBER;
+            }
+        }
+        result = negative ? -result : result;
+        return result > Integer.MAX_VALUE ? NOT_A_NUMBER : result;
+    }
+
+    private static int indexOf(String[] names, String query, int start, int end) {
+        for (int i = 0; i < names.length; i++) {
+            String name = names[i];
+            if (name.length() == end - start && query.regionMatches(start, name, 0, name.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String decode(String query, int start, int end) {
+        boolean plain = true;
+        for (int i = start; i < end && plain; i++) {
+            char c = query.charAt(i);
+            plain = c != '%' && c != '+';
+        }
+        if (plain) {
+            return query.substring(start, end);
+        }
+        StringBuilder result = new StringBuilder(end - start);
+        byte[] bytes = null;
+        int i = start;
+        while (i < end) {
+            char c = query.charAt(i);
+            if (c != '%') {
+                result.append(c == '+' ? ' ' : c);
+                i++;
+                continue;
+            }
+            // подряд идущие %XX — это байты одного UTF-8 фрагмента, декодируем их вместе
+            if (bytes == null) {
+                bytes = new byte[(end - start) / 3];
+            }
+            int count = 0;
+            while (i < end && query.charAt(i) == '%') {
+                int high = i + 2 < end ? Character.digit(query.charAt(i + 1), 16) : -1;
+                int low = high >= 0 ? Character.digit(query.charAt(i + 2), 16) : -1;
+                if (low < 0) {
+                    return null;
+                }
+                bytes[count++] = (byte) (high << 4 | low);
+                i += 3;
+            }
+            result.append(new String(bytes, 0, count, StandardCharsets.UTF_8));
+        }
+        return result.toString();
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.metrics.CacheMetrics;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Готовые тела ответов по нормализованному ключу запроса, вытесняемые по давности использования (LRU),
+ * когда записей или их суммарного объёма становится больше заданного.
+ * <p>
+ * Запись помнит версию хранилища, прочитанную до выборки, и диапазон лет, по которому выбирали. Она
+ * считается устаревшей, только если с тех пор менялись фильмы этих лет ({@link MoviesStore#getYearsVersion}),
+ * и тогда сбрасывается при обращении; изменения других лет записи не трогают.
+ */
+class ResponseCache {
+    // ключ, ссылки и заголовки записи сверх тела, байт
+    private static final int ENTRY_OVERHEAD = 160;
+
+    private final MoviesStore store;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final CacheMetrics metrics;
+    // порядок доступа: первой идёт запись, которую дольше всего не запрашивали
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+
+    ResponseCache(MoviesStore store, int maxEntries, long maxBytes, CacheMetrics metrics) {
+        this.store = store;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+    }
+
+    /**
+     * @return действующая запись или {@code null}, если её нет или она устарела
+     */
+    Entry get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+        }
+        if (entry == null) {
+            metrics.miss();
+            return null;
+        }
+        if (store.getYearsVersion(entry.yearFrom, entry.yearTo) > entry.version) {
+            synchronized (this) {
+                if (entries.remove(key, entry)) {
+                    bytes -= entry.weight;
+                    metrics.size(entries.size(), bytes);
+                }
+            }
+            metrics.invalidated();
+            metrics.miss();
+            return null;
+        }
+        metrics.hit();
+        return entry;
+    }
+
+    void put(String key, Entry entry) {
+        entry.weight = ENTRY_OVERHEAD + 2L * key.length() + entry.body.length
+                + (entry.nextCursor == null ? 0 : 2L * entry.nextCursor.length());
+        if (maxEntries == 0 || entry.weight > maxBytes) {
+            return;
+        }
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.weight;
+            }
+            bytes += entry.weight;
+            Iterator<Entry> eldest = entries.values().iterator();
+            while (entries.size() > maxEntries || bytes > maxBytes) {
+                bytes -= eldest.next().weight;
+                eldest.remove();
+                metrics.evicted();
+            }
+            metrics.size(entries.size(), bytes);
+        }
+    }
+
+    /**
+     * Тело ответа вместе с тем, по чему проверяется его актуальность.
+     */
+    static final class Entry {
+        final long version;
+        final int yearFrom;
+        final int yearTo;
+        final ContentCoding coding;
+        final byte[] body;
+        final String nextCursor;
+        private long weight;
+
+        /**
+         * @param version версия хранилища, прочитанная до выборки
+         * @param coding  сжатие тела или {@code null}, если тело не сжато
+         */
+        Entry(long version, int yearFrom, int yearTo, ContentCoding coding, byte[] body, String nextCursor) {
+            this.version = version;
+            this.yearFrom = yearFrom;
+            this.yearTo = yearTo;
+            this.coding = coding;
+            this.body = body;
+            this.nextCursor = nextCursor;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+
+import java.net.InetSocketAddress;
+
+/**
+ * HTTP-сервер, на котором работают обработчики и фильтры {@code com.sun.net.httpserver}: все реализации
+ * принимают одни и те же {@link HttpHandler}, так что логика маршрутов от сервера не зависит.
+ */
+interface ServerBackend {
+
+    /**
+     * Регистрирует обработчик для запросов, путь которых начинается с {@code path}; из нескольких
+     * подходящих выбирается самый длинный. Фильтры добавляются в {@link HttpContext#getFilters()}.
+     */
+    HttpContext createContext(String path, HttpHandler handler);
+
+    void start();
+
+    void stop();
+
+    InetSocketAddress getAddress();
+}
@@ -0,0 +1,152 @@
+package ru.practicum.moviehub.http;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class ServerConfig {
+    private static final int VIRTUAL = 0;
+    private static final int DEFAULT_BACKLOG = 1024;
+    private static final Duration DEFAULT_IDLE_TIMEOUT = Duration.ofSeconds(30);
+    private static final int DEFAULT_RESPONSE_CACHE_ENTRIES = 1024;
+    private static final long DEFAULT_RESPONSE_CACHE_BYTES = 32L << 20;
+
+    private final int threads;
+    private final HttpBackend backend;
+    private final int backlog;
+    private final boolean keepAlive;
+    private final Duration idleTimeout;
+    private final int responseCacheEntries;
+    private final long responseCacheBytes;
+
+    private ServerConfig(int threads, HttpBackend backend, int backlog, boolean keepAlive, Duration idleTimeout,
+                         int responseCacheEntries, long responseCacheBytes) {
+        this.threads = threads;
+        this.backend = backend;
+        this.backlog = backlog;
+        this.keepAlive = keepAlive;
+        this.idleTimeout = idleTimeout;
+        this.responseCacheEntries = responseCacheEntries;
+        this.responseCacheBytes = responseCacheBytes;
+    }
+
+    public static ServerConfig defaults() {
+        return fixedPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    public static ServerConfig fixedPool(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Количество потоков должно быть положительным: " + threads);
+        }
+        return new ServerConfig(threads, HttpBackend.JDK, DEFAULT_BACKLOG, true, DEFAULT_IDLE_TIMEOUT,
+                DEFAULT_RESPONSE_CACHE_ENTRIES, DEFAULT_RESPONSE_CACHE_BYTES);
+    }
+
+    public static ServerConfig virtualThreads() {
+        return new ServerConfig(VIRTUAL, HttpBackend.JDK, DEFAULT_BACKLOG, true, DEFAULT_IDLE_TIMEOUT,
+                DEFAULT_RESPONSE_CACHE_ENTRIES, DEFAULT_RESPONSE_CACHE_BYTES);
+    }
+
+    /**
+     * Разбирает значение вида {@code "virtual"} или число потоков; пустое значение — настройки по умолчанию.
+     */
+    public static ServerConfig parse(String value) {
+        if (value == null || value.isBlank()) {
+            return defaults();
+        }
+        if ("virtual".equalsIgnoreCase(value.trim())) {
+            return virtualThreads();
+        }
+        try {
+            return fixedPool(Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное количество потоков: " + value, e);
+        }
+    }
+
+    public ServerConfig withBackend(HttpBackend backend) {
+        return new ServerConfig(threads, backend, backlog, keepAlive, idleTimeout,
+                responseCacheEntries, responseCacheBytes);
+    }
+
+    /**
+     * @param backlog длина очереди ещё не принятых соединений; 0 — значение операционной системы
+     */
+    public ServerConfig withBacklog(int backlog) {
+        if (backlog < 0) {
+            throw new IllegalArgumentException("Длина очереди соединений не может быть отрицательной: " + backlog);
+        }
+        return new ServerConfig(threads, backend, backlog, keepAlive, idleTimeout,
+                responseCacheEntries, responseCacheBytes);
+    }
+
+    /**
+     * @param keepAlive оставлять ли соединение открытым для следующих запросов; иначе оно закрывается после ответа
+     */
+    public ServerConfig withKeepAlive(boolean keepAlive) {
+        return new ServerConfig(threads, backend, backlog, keepAlive, idleTimeout,
+                responseCacheEntries, responseCacheBytes);
+    }
+
+    /**
+     * @param idleTimeout сколько соединение может простаивать без запросов, прежде чем сервер его закроет
+     */
+    public ServerConfig withIdleTimeout(Duration idleTimeout) {
+        if (idleTimeout.isNegative() || idleTimeout.isZero()) {
+            throw new IllegalArgumentException("Тайм-аут простоя должен быть положительным: " + idleTimeout);
+        }
+        return new ServerConfig(threads, backend, backlog, keepAlive, idleTimeout,
+                responseCacheEntries, responseCacheBytes);
+    }
+
+    /**
+     * @param maxEntries сколько ответов на списки и выборки держать готовыми; 0 — не кэшировать
+     * @param maxBytes   предел оценки памяти под них
+     */
+    public ServerConfig withResponseCache(int maxEntries, long maxBytes) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Размер кэша ответов не может быть отрицательным: "
+                    + maxEntries + ", " + maxBytes);
+        }
+        return new ServerConfig(threads, backend, backlog, keepAlive, idleTimeout, maxEntries, maxBytes);
+    }
+
+    public boolean isVirtualThreads() {
+        return threads == VIRTUAL;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public HttpBackend getBackend() {
+        return backend;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public boolean isKeepAlive() {
+        return keepAlive;
+    }
+
+    public Duration getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    public int getResponseCacheEntries() {
+        return responseCacheEntries;
+    }
+
+    public long getResponseCacheBytes() {
+        return responseCacheBytes;
+    }
+
+    ExecutorService createExecutor() {
+        if (isVirtualThreads()) {
+            return Executors.newVirtualThreadPerTaskExecutor();
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,67 @@
+package ru.practicum.moviehub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import ru.practicum.moviehub.api.ErrorResponse;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ErrorResponse} в JSON и обратно без отражения; пустые поля, как и у Gson, не выводятся.
+ * Регистрируется через {@link #nullSafe()}.
+ */
+public final class ErrorResponseTypeAdapter extends TypeAdapter<ErrorResponse> {
+
+    @Override
+    public void write(JsonWriter out, ErrorResponse response) throws IOException {
+        out.beginObject();
+        out.name("error").value(response.getError());
+        if (response.getDetails() != null) {
+            out.name("details").beginArray();
+            for (String detail : response.getDetails()) {
+                out.value(detail);
+            }
+            out.endArray();
+        }
+        out.endObject();
+    }
+
+    @Override
+    public ErrorResponse read(JsonReader in) throws IOException {
+        String error = null;
+        List<String> details = null;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "error":
+                    error = JsonValues.nextString(in);
+                    break;
+                case "details":
+                    details = readDetails(in);
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new ErrorResponse(error, details);
+    }
+
+    private static List<String> readDetails(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        List<String> details = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            details.add(JsonValues.nextString(in));
+        }
+        in.endArray();
+        return details;
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.moviehub.json;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON фильма без Gson: байты UTF-8 пишутся сразу в массив точного размера, без отражения и промежуточных
+ * строк. Результат совпадает с тем, что выдаёт {@code new Gson().toJson(movie)}, включая экранирование
+ * HTML-символов.
+ */
+public final class MovieJson {
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] TITLE = ascii(",\"title\":\"");
+    private static final byte[] YEAR_AFTER_TITLE = ascii("\",\"year\":");
+    private static final byte[] YEAR = ascii(",\"year\":");
+    // как в Gson: управляющие символы, кавычка, обратная косая черта и символы, опасные в HTML
+    private static final byte[][] ESCAPES = new byte[128][];
+    private static final byte[] LINE_SEPARATOR = ascii("\\u2028");
+    private static final byte[] PARAGRAPH_SEPARATOR = ascii("\\u2029");
+
+    static {
+        for (int c = 0; c < 0x20; c++) {
+            ESCAPES[c] = ascii(String.format("\\u%04x", c));
+        }
+        ESCAPES['"'] = ascii("\\\"");
+        ESCAPES['\\'] = ascii("\\\\");
+        ESCAPES['\t'] = ascii("\\t");
+        ESCAPES['\b'] = ascii("\\b");
+        ESCAPES['\n'] = ascii("\\n");
+        ESCAPES['\r'] = ascii("\\r");
+        ESCAPES['\f'] = ascii("\\f");
+        ESCAPES['<'] = ascii("\\u003c");
+        ESCAPES['>'] = ascii("\\u003e");
+        ESCAPES['&'] = ascii("\\u0026");
+        ESCAPES['='] = ascii("\\u003d");
+        ESCAPES['\''] = ascii("\\u0027");
+    }
+
+    private MovieJson() {
+    }
+
+    public static byte[] toBytes(Movie movie) {
+        String title = movie.getTitle();
+        int length = ID.length + intLength(movie.getId()) + YEAR.length + intLength(movie.getYear()) + 1;
+        if (title != null) {
+            length += TITLE.length + stringLength(title) + 1;
+        }
+        byte[] json = new byte[length];
+        int position = put(json, 0, ID);
+        position = putInt(json, position, movie.getId());
+        if (title != null) {
+            position = put(json, position, TITLE);
+            position = putString(json, position, title);
+            position = put(json, position, YEAR_AFTER_TITLE);
+        } else {
+            position = put(json, position, YEAR);
+        }
+        position = putInt(json, position, movie.getYear());
+        json[position] = '}';
+        return json;
+    }
+
+    // длина строки в UTF-8 после экранирования
+    private static int stringLength(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length += ESCAPES[c] == null ? 1 : ESCAPES[c].length;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (c == '\u2028' || c == '\u2029') {
+                length += LINE_SEPARATOR.length;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // непарный суррогат String.getBytes заменяет на '?'
+                length += 1;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int putString(byte[] json, int position, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (ESCAPES[c] == null) {
+                    json[position++] = (byte) c;
+                } else {
+                    position = put(json, position, ESCAPES[c]);
+                }
+            } else if (c < 0x800) {
+                json[position++] = (byte) (0xC0 | c >> 6);
+                json[position++] = (byte) (0x80 | c & 0x3F);
+            } else if (c == '\u2028') {
+                position = put(json, position, LINE_SEPARATOR);
+            } else if (c == '\u2029') {
+                position = put(json, position, PARAGRAPH_SEPARATOR);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                json[position++] = (byte) (0xF0 | codePoint >> 18);
+                json[position++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                json[position++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                json[position++] = (byte) (0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                json[position++] = '?';
+            } else {
+                json[position++] = (byte) (0xE0 | c >> 12);
+                json[position++] = (byte) (0x80 | c >> 6 & 0x3F);
+                json[position++] = (byte) (0x80 | c & 0x3F);
+            }
+        }
+        return position;
+    }
+
+    private static int intLength(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return 11;
+        }
+        int length = value < 0 ? 2 : 1;
+        for (int rest = Math.abs(value); rest >= 10; rest /= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    private static int putInt(byte[] json, int position, int value) {
+        if (value == Integer.MIN_VALUE) {
+            return put(json, position, ascii(Integer.toString(value)));
+        }
+        int end = position + intLength(value);
+        if (value < 0) {
+            json[position] = '-';
+        }
+        int rest = Math.abs(value);
+        int i = end;
+        do {
+            json[--i] = (byte) ('0' + rest % 10);
+            rest /= 10;
+        } while (rest != 0);
+        return end;
+    }
+
+    private static int put(byte[] json, int position, byte[] bytes) {
+        System.arraycopy(bytes, 0, json, position, bytes.length);
+        return position + bytes.length;
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.moviehub.json;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+
+/**
+ * {@link Movie} в JSON и обратно без отражения; поля и их порядок те же, что у Gson по умолчанию.
+ * Регистрируется через {@link #nullSafe()}.
+ */
+public final class MovieTypeAdapter extends TypeAdapter<Movie> {
+
+    @Override
+    public void write(JsonWriter out, Movie movie) throws IOException {
+        out.beginObject();
+        out.name("id").value(movie.getId());
+        out.name("title").value(movie.getTitle());
+        out.name("year").value(movie.getYear());
+        out.endObject();
+    }
+
+    @Override
+    public Movie read(JsonReader in) throws IOException {
+        int id = 0;
+        String title = null;
+        int year = 0;
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = in.nextInt();
+                    break;
+                case "title":
+                    title = JsonValues.nextString(in);
+                    break;
+                case "year":
+                    year = in.nextInt();
+                    break;
+                default:
+                    in.skipValue();
+            }
+        }
+        in.endObject();
+        return new Movie(id, title, year);
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.moviehub.json;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+
+/**
+ * Лёгкий декодер UTF-8 для коротких тел запросов. {@link java.io.InputStreamReader} на каждый запрос
+ * создаёт декодер с буфером в 8 КБ, и это дороже самого разбора JSON. Некорректные последовательности
+ * заменяются на U+FFFD так же, как в {@code new String(bytes, UTF_8)}.
+ */
+public final class Utf8Reader extends Reader {
+    private static final int DEFAULT_BUFFER = 512;
+    private static final char REPLACEMENT = '\uFFFD';
+
+    private final InputStream in;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private boolean eof;
+    // вторая половина суррогатной пары, не поместившаяся в прошлый вызов read
+    private int pendingLow = -1;
+
+    public Utf8Reader(InputStream in) {
+        this(in, DEFAULT_BUFFER);
+    }
+
+    Utf8Reader(InputStream in, int bufferSize) {
+        this.in = in;
+        // самая длинная последовательность UTF-8 должна целиком помещаться в буфер
+        this.buffer = new byte[Math.max(4, bufferSize)];
+    }
+
+    @Override
+    public int read(char[] chars, int offset, int length) throws IOException {
+        if (length == 0) {
+            return 0;
+        }
+        int count = 0;
+        if (pendingLow >= 0) {
+            chars[offset + count++] = (char) pendingLow;
+            pendingLow = -1;
+        }
+        while (count < length) {
+            if (position == limit) {
+                // уже прочитанное отдаём, не дожидаясь следующей порции из сети
+                if (count > 0 || !fill()) {
+                    break;
+                }
+            }
+            int b = buffer[position] & 0xFF;
+            if (b < 0x80) {
+                chars[offset + count++] = (char) b;
+                position++;
+                continue;
+            }
+            int codePoint = decode(b);
+            if (codePoint < 0x10000) {
+                chars[offset + count++] = (char) codePoint;
+            } else {
+                chars[offset + count++] = Character.highSurrogate(codePoint);
+                if (count < length) {
+                    chars[offset + count++] = Character.lowSurrogate(codePoint);
+                } else {
+                    pendingLow = Character.lowSurrogate(codePoint);
+                }
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Разбирает многобайтовую последовательность с первым байтом {@code b} по тем же правилам, что и
+     * {@code String}: сколько байт поглощает некорректная последовательность, решается так же, поэтому тело
+     * с битой кодировкой превращается в ту же строку, что и при чтении целиком.
+     */
+    private int decode(int b) throws IOException {
+        if (b >= 0xC2 && b <= 0xDF) {
+            if (available(2) < 2 || !isContinuation(at(1))) {
+                return replace(1);
+            }
+            position += 2;
+            return (b & 0x1F) << 6 | at(-1) & 0x3F;
+        }
+        if (b >= 0xE0 && b <= 0xEF) {
+            int available = available(3);
+            if (available < 3) {
+                if (available == 2 && !isMalformed3(b, at(1))) {
+                    return replace(2);
+                }
+                return replace(1);
+            }
+            int b2 = at(1);
+            int b3 = at(2);
+            if (isMalformed3(b, b2) || !isContinuation(b3)) {
+                return replace(isMalformed3(b, b2) ? 1 : 2);
+            }
+            int c = (b & 0x0F) << 12 | (b2 & 0x3F) << 6 | b3 & 0x3F;
+            position += 3;
+            return Character.isSurrogate((char) c) ? REPLACEMENT : c;
+        }
+        if (b >= 0xF0 && b <= 0xF4) {
+            int available = available(4);
+            if (available < 4) {
+                if (available == 1 || isMalformed4(b, at(1))) {
+                    return replace(1);
+                }
+                return replace(available == 3 && !isContinuation(at(2)) ? 2 : available);
+            }
+            int b2 = at(1);
+            int b3 = at(2);
+            int b4 = at(3);
+            int codePoint = (b & 0x07) << 18 | (b2 & 0x3F) << 12 | (b3 & 0x3F) << 6 | b4 & 0x3F;
+            if (!isContinuation(b2) || !isContinuation(b3) || !isContinuation(b4)
+                    || !Character.isSupplementaryCodePoint(codePoint)) {
+                return replace(isMalformed4(b, b2) ? 1 : !isContinuation(b3) ? 2 : 3);
+            }
+            position += 4;
+            return codePoint;
+        }
+        return replace(1);
+    }
+
+    private static boolean isContinuation(int b) {
+        return (b & 0xC0) == 0x80;
+    }
+
+    private static boolean isMalformed3(int b1, int b2) {
+        return b1 == 0xE0 && (b2 & 0xE0) == 0x80 || !isContinuation(b2);
+    }
+
+    private static boolean isMalformed4(int b1, int b2) {
+        return b1 == 0xF0 && (b2 < 0x90 || b2 > 0xBF) || b1 == 0xF4 && (b2 & 0xF0) != 0x80 || !isContinuation(b2);
+    }
+
+    private int replace(int consumed) {
+        position += consumed;
+        return REPLACEMENT;
+    }
+
+    private int at(int offset) {
+        return buffer[position + offset] & 0xFF;
+    }
+
+    /**
+     * Дочитывает в буфер, пока от текущей позиции не наберётся {@code count} байт или не кончится поток.
+     */
+    private int available(int count) throws IOException {
+        while (limit - position < count && !eof) {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+        return Math.min(count, limit - position);
+    }
+
+    private boolean fill() throws IOException {
+        position = 0;
+        limit = 0;
+        return available(1) > 0;
+    }
+}
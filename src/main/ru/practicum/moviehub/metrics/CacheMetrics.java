@@ -0,0 +1,72 @@
+package ru.practicum.moviehub.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Счётчики одного кэша ответов: попадания, промахи, вытеснения по размеру и сброс устаревших записей.
+ */
+public final class CacheMetrics {
+    private final String name;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private volatile int entries;
+    private volatile long bytes;
+
+    public CacheMetrics(String name) {
+        this.name = name;
+    }
+
+    public void hit() {
+        hits.increment();
+    }
+
+    public void miss() {
+        misses.increment();
+    }
+
+    public void evicted() {
+        evictions.increment();
+    }
+
+    public void invalidated() {
+        invalidations.increment();
+    }
+
+    /**
+     * Текущий размер кэша; вызывается кэшем после каждого изменения под его блокировкой.
+     */
+    public void size(int entries, long bytes) {
+        this.entries = entries;
+        this.bytes = bytes;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    public int getEntries() {
+        return entries;
+    }
+
+    public long getBytes() {
+        return bytes;
+    }
+}
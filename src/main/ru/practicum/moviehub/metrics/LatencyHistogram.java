@@ -0,0 +1,108 @@
+package ru.practicum.moviehub.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Гистограмма задержек в духе HdrHistogram: каждая степень двойки микросекунд делится на
+ * {@value #SUB_BUCKETS} равных корзин, так что относительная погрешность не больше 1/{@value #SUB_BUCKETS}.
+ * <p>
+ * Запись — несколько атомарных инкрементов без блокировок и без выделения памяти. Значения больше
+ * {@link #MAX_MICROS} попадают в последнюю корзину.
+ */
+public final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    static final long MAX_MICROS = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = bucketIndex(MAX_MICROS) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sumNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketIndex(Math.min(TimeUnit.NANOSECONDS.toMicros(value), MAX_MICROS)));
+        sumNanos.addAndGet(value);
+        count.incrementAndGet();
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public long getSumNanos() {
+        return sumNanos.get();
+    }
+
+    /**
+     * Сколько записанных значений не превышает {@code micros}; для значений внутри корзины
+     * учитываются только корзины, целиком лежащие не выше границы.
+     */
+    public long countAtOrBelow(long micros) {
+        long result = 0;
+        for (int i = 0; i < BUCKETS && highestValue(i) <= micros; i++) {
+            result += counts.get(i);
+        }
+        return result;
+    }
+
+    /**
+     * Добавляет к этой гистограмме все значения другой.
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucket = other.counts.get(i);
+            if (bucket != 0) {
+                counts.addAndGet(i, bucket);
+            }
+        }
+        sumNanos.addAndGet(other.sumNanos.get());
+        count.addAndGet(other.count.get());
+    }
+
+    /**
+     * Значение, не меньше которого {@code percentile} процентов записанных, с точностью до корзины:
+     * возвращается верхняя граница корзины, в которую попал процентиль. Для пустой гистограммы — 0.
+     */
+    public long valueAtPercentile(double percentile) {
+        long total = 0;
+        long[] snapshot = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return MAX_MICROS;
+    }
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,184 @@
+package ru.practicum.moviehub.metrics;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Метрики сервера и их выгрузка в текстовом формате Prometheus.
+ * <p>
+ * Счётчики для всех маршрутов и методов создаются при регистрации маршрута, поэтому учёт запроса
+ * сводится к атомарным инкрементам в уже существующих объектах.
+ */
+public final class MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final String[] METHODS = {"GET", "POST", "PUT", "PATCH", "DELETE", "HEAD", "OPTIONS", "OTHER"};
+    // границы корзин гистограммы в выгрузке, мкс
+    private static final long[] BUCKET_BOUNDS = {
+            100, 250, 500, 1_000, 2_500, 5_000, 10_000, 25_000, 50_000,
+            100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000, 10_000_000
+    };
+
+    private final List<RouteMetrics[]> routes = new CopyOnWriteArrayList<>();
+    private final List<CacheMetrics> caches = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final IntSupplier storeSize;
+
+    public MetricsRegistry(IntSupplier storeSize) {
+        this.storeSize = storeSize;
+    }
+
+    /**
+     * Заводит счётчики маршрута для всех методов.
+     *
+     * @return счётчики, индексированные по {@link #methodIndex(String)}
+     */
+    public RouteMetrics[] register(String route) {
+        RouteMetrics[] byMethod = new RouteMetrics[METHODS.length];
+        for (int i = 0; i < METHODS.length; i++) {
+            byMethod[i] = new RouteMetrics(route, METHODS[i]);
+        }
+        routes.add(byMethod);
+        return byMethod;
+    }
+
+    /**
+     * Заводит счётчики кэша ответов с именем {@code name}.
+     */
+    public CacheMetrics registerCache(String name) {
+        CacheMetrics cache = new CacheMetrics(name);
+        caches.add(cache);
+        return cache;
+    }
+
+    public static int methodIndex(String method) {
+        switch (method) {
+            case "GET":
+                return 0;
+            case "POST":
+                return 1;
+            case "PUT":
+                return 2;
+            case "PATCH":
+                return 3;
+            case "DELETE":
+                return 4;
+            case "HEAD":
+                return 5;
+            case "OPTIONS":
+                return 6;
+            default:
+                return METHODS.length - 1;
+        }
+    }
+
+    public void requestStarted() {
+        inFlight.incrementAndGet();
+    }
+
+    public void requestFinished() {
+        inFlight.decrementAndGet();
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * Текущие значения всех метрик; маршруты и методы без запросов пропускаются.
+     */
+    public String scrape() {
+        StringBuilder out = new StringBuilder(4096);
+        out.append("# HELP moviehub_http_requests_total Обработанные HTTP-запросы по маршруту, методу и коду ответа.\n");
+        out.append("# TYPE moviehub_http_requests_total counter\n");
+        for (RouteMetrics[] byMethod : routes) {
+            for (RouteMetrics metrics : byMethod) {
+                if (metrics.getLatency().getCount() == 0) {
+                    continue;
+                }
+                for (int status = 100; status <= RouteMetrics.MAX_STATUS; status++) {
+                    long count = metrics.getStatusCount(status);
+                    if (count > 0) {
+                        out.append("moviehub_http_requests_total{");
+                        labels(out, metrics).append(",status=\"").append(status).append("\"} ")
+                                .append(count).append('\n');
+                    }
+                }
+            }
+        }
+
+        out.append("# HELP moviehub_http_request_duration_seconds Время обработки HTTP-запроса.\n");
+        out.append("# TYPE moviehub_http_request_duration_seconds histogram\n");
+        for (RouteMetrics[] byMethod : routes) {
+            for (RouteMetrics metrics : byMethod) {
+                LatencyHistogram latency = metrics.getLatency();
+                if (latency.getCount() == 0) {
+                    continue;
+                }
+                for (long bound : BUCKET_BOUNDS) {
+                    out.append("moviehub_http_request_duration_seconds_bucket{");
+                    labels(out, metrics).append(",le=\"").append(seconds(bound)).append("\"} ")
+                            .append(latency.countAtOrBelow(bound)).append('\n');
+                }
+                // +Inf и _count берутся из одного прохода по корзинам, чтобы не разойтись при параллельной записи
+                long total = latency.countAtOrBelow(LatencyHistogram.MAX_MICROS);
+                out.append("moviehub_http_request_duration_seconds_bucket{");
+                labels(out, metrics).append(",le=\"+Inf\"} ").append(total).append('\n');
+                out.append("moviehub_http_request_duration_seconds_sum{");
+                labels(out, metrics).append("} ").append(latency.getSumNanos() / 1e9).append('\n');
+                out.append("moviehub_http_request_duration_seconds_count{");
+                labels(out, metrics).append("} ").append(total).append('\n');
+            }
+        }
+
+        out.append("# HELP moviehub_http_requests_in_flight Запросы, обрабатываемые прямо сейчас.\n");
+        out.append("# TYPE moviehub_http_requests_in_flight gauge\n");
+        out.append("moviehub_http_requests_in_flight ").append(inFlight.get()).append('\n');
+        out.append("# HELP moviehub_store_movies Фильмов в хранилище.\n");
+        out.append("# TYPE moviehub_store_movies gauge\n");
+        out.append("moviehub_store_movies ").append(storeSize.getAsInt()).append('\n');
+        if (!caches.isEmpty()) {
+            cacheCounter(out, "hits", "Ответы, отданные из кэша.", CacheMetrics::getHits);
+            cacheCounter(out, "misses", "Запросы, не нашедшие ответа в кэше.", CacheMetrics::getMisses);
+            cacheCounter(out, "evictions", "Записи, вытесненные из кэша по числу или объёму.",
+                    CacheMetrics::getEvictions);
+            cacheCounter(out, "invalidations", "Записи, сброшенные из-за изменения данных.",
+                    CacheMetrics::getInvalidations);
+            out.append("# HELP moviehub_response_cache_entries Записей в кэше ответов.\n");
+            out.append("# TYPE moviehub_response_cache_entries gauge\n");
+            for (CacheMetrics cache : caches) {
+                out.append("moviehub_response_cache_entries{cache=\"").append(cache.getName()).append("\"} ")
+                        .append(cache.getEntries()).append('\n');
+            }
+            out.append("# HELP moviehub_response_cache_bytes Оценка памяти, занятой кэшем ответов.\n");
+            out.append("# TYPE moviehub_response_cache_bytes gauge\n");
+            for (CacheMetrics cache : caches) {
+                out.append("moviehub_response_cache_bytes{cache=\"").append(cache.getName()).append("\"} ")
+                        .append(cache.getBytes()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private void cacheCounter(StringBuilder out, String name, String help, ToLongFunction<CacheMetrics> value) {
+        out.append("# HELP moviehub_response_cache_").append(name).append("_total ").append(help).append('\n');
+        out.append("# TYPE moviehub_response_cache_").append(name).append("_total counter\n");
+        for (CacheMetrics cache : caches) {
+            out.append("moviehub_response_cache_").append(name).append("_total{cache=\"").append(cache.getName())
+                    .append("\"} ").append(value.applyAsLong(cache)).append('\n');
+        }
+    }
+
+    private static StringBuilder labels(StringBuilder out, RouteMetrics metrics) {
+        return out.append("route=\"").append(metrics.getRoute())
+                .append("\",method=\"").append(metrics.getMethod()).append('"');
+    }
+
+    private static String seconds(long micros) {
+        return BigDecimal.valueOf(micros, 6).stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.moviehub.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Счётчики одной пары «маршрут + метод»: ответы по кодам статуса и гистограмма задержек.
+ */
+public final class RouteMetrics {
+    static final int MAX_STATUS = 599;
+
+    private final String route;
+    private final String method;
+    private final AtomicLongArray statuses = new AtomicLongArray(MAX_STATUS + 1);
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    RouteMetrics(String route, String method) {
+        this.route = route;
+        this.method = method;
+    }
+
+    /**
+     * @param status код ответа; коды вне 100..599 (например, если ответ так и не был отправлен) считаются как 500
+     */
+    public void record(int status, long nanos) {
+        statuses.incrementAndGet(status >= 100 && status <= MAX_STATUS ? status : 500);
+        latency.record(nanos);
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    long getStatusCount(int status) {
+        return statuses.get(status);
+    }
+}
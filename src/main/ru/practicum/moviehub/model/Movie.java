@@ -4,11 +4,18 @@ public class Movie {
     private final int id;
     private final String title;
     private final int year;
+    // служебное поле для ETag, в JSON не попадает
+    private final transient long version;
 
     public Movie(int id, String title, int year) {
+        this(id, title, year, 0);
+    }
+
+    public Movie(int id, String title, int year, long version) {
         this.id = id;
         this.title = title;
         this.year = year;
+        this.version = version;
     }
 
     public int getId() {
@@ -22,4 +29,8 @@ public class Movie {
     public int getYear() {
         return year;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.moviehub.model;
+
+public class MovieDraft {
+    private final String title;
+    private final int year;
+
+    public MovieDraft(String title, int year) {
+        this.title = title;
+        this.year = year;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public int getYear() {
+        return year;
+    }
+}
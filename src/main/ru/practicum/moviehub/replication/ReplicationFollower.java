@@ -0,0 +1,214 @@
+package ru.practicum.moviehub.replication;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реплика: держит соединение с лидером, применяет его изменения к своему хранилищу по порядку
+ * и переподключается, если соединение пропало. После переподключения лидер продолжает с последнего
+ * применённого события, а если не может — присылает полную копию.
+ * <p>
+ * Хранилище реплики не должно меняться ничем, кроме репликации: сервер с репликой запись не принимает.
+ */
+public class ReplicationFollower implements ReplicationNode {
+    private static final int CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final long RECONNECT_DELAY_MILLIS = 500;
+
+    private final MoviesStore store;
+    private final InetSocketAddress leader;
+    private final URI leaderUrl;
+    private final Thread thread;
+    private final byte[] title = ReplicationProtocol.titleBuffer();
+    private volatile Socket socket;
+    private volatile boolean closed;
+    private volatile boolean connected;
+    // эпоха и номер последнего применённого события лидера; пишет только поток репликации
+    private volatile long epoch;
+    private volatile long appliedSeq;
+    private volatile long leaderSeq;
+    private volatile long lastContactNanos;
+
+    private ReplicationFollower(MoviesStore store, InetSocketAddress leader, URI leaderUrl) {
+        this.store = store;
+        this.leader = leader;
+        this.leaderUrl = leaderUrl;
+        this.thread = new Thread(this::run, "moviehub-replication-follower");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * @param leader    адрес порта репликации лидера
+     * @param leaderUrl HTTP-адрес лидера, куда сервер реплики перенаправляет запись; null — запись отклоняется
+     */
+    public static ReplicationFollower start(MoviesStore store, InetSocketAddress leader, URI leaderUrl) {
+        ReplicationFollower follower = new ReplicationFollower(store, leader, leaderUrl);
+        follower.thread.start();
+        return follower;
+    }
+
+    @Override
+    public boolean acceptsWrites() {
+        return false;
+    }
+
+    @Override
+    public URI getLeaderUrl() {
+        return leaderUrl;
+    }
+
+    @Override
+    public ReplicationStatus getStatus() {
+        long contact = lastContactNanos;
+        Long ago = contact == 0 ? null : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - contact);
+        return ReplicationStatus.follower(epoch, appliedSeq, leaderSeq, connected, ago);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        closeSocket();
+        thread.interrupt();
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        while (!closed) {
+            try (Socket connection = new Socket()) {
+                socket = connection;
+                connection.connect(leader, CONNECT_TIMEOUT_MILLIS);
+                connection.setSoTimeout(ReplicationProtocol.READ_TIMEOUT_MILLIS);
+                connection.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(connection.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+                out.writeInt(ReplicationProtocol.MAGIC);
+                out.writeInt(ReplicationProtocol.VERSION);
+                out.writeLong(epoch);
+                out.writeLong(appliedSeq);
+                out.flush();
+                connected = true;
+                while (!closed) {
+                    if (applyFrame(in)) {
+                        out.writeByte(ReplicationProtocol.ACK);
+                        out.writeLong(appliedSeq);
+                        out.flush();
+                    }
+                }
+            } catch (IOException e) {
+                if (!closed && connected) {
+                    System.err.println("Репликация: соединение с лидером потеряно: " + e.getMessage());
+                }
+            } finally {
+                connected = false;
+                socket = null;
+            }
+            if (!closed) {
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return {@code true}, если после кадра нужно подтверждение
+     */
+    private boolean applyFrame(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        lastContactNanos = System.nanoTime();
+        switch (type) {
+            case ReplicationProtocol.SNAPSHOT_START: {
+                long snapshotEpoch = in.readLong();
+                long seq = in.readLong();
+                store.clear();
+                // пока копия не дочитана, номер не сдвигаем: при обрыве она начнётся заново
+                epoch = 0;
+                appliedSeq = 0;
+                readSnapshot(in);
+                epoch = snapshotEpoch;
+                appliedSeq = seq;
+                leaderSeq = Math.max(leaderSeq, seq);
+                return true;
+            }
+            case ReplicationProtocol.EVENTS:
+                leaderSeq = in.readLong();
+                applyEvents(in);
+                return true;
+            case ReplicationProtocol.HEARTBEAT:
+                leaderSeq = in.readLong();
+                return true;
+            default:
+                throw new IOException("неизвестный кадр от лидера: " + type);
+        }
+    }
+
+    private void readSnapshot(DataInputStream in) throws IOException {
+        byte type;
+        while ((type = in.readByte()) == ReplicationProtocol.MOVIES) {
+            int count = in.readInt();
+            List<Movie> movies = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                movies.add(ReplicationProtocol.readMovie(in, title));
+            }
+            store.importAll(movies);
+        }
+        if (type != ReplicationProtocol.SNAPSHOT_END) {
+            throw new IOException("копия каталога оборвана");
+        }
+    }
+
+    // подряд идущие добавления применяются одним пакетом
+    private void applyEvents(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        List<Movie> added = new ArrayList<>();
+        long seq = appliedSeq;
+        for (int i = 0; i < count; i++) {
+            seq = in.readLong();
+            byte type = in.readByte();
+            if (type == ReplicationProtocol.ADDED) {
+                added.add(ReplicationProtocol.readMovie(in, title));
+                continue;
+            }
+            store.importAll(added);
+            added.clear();
+            if (type == ReplicationProtocol.DELETED) {
+                store.deleteById(in.readInt());
+            } else if (type == ReplicationProtocol.CLEARED) {
+                store.clear();
+            } else {
+                throw new IOException("неизвестное событие от лидера: " + type);
+            }
+        }
+        store.importAll(added);
+        appliedSeq = seq;
+    }
+
+    private void closeSocket() {
+        Socket current = socket;
+        if (current == null) {
+            return;
+        }
+        try {
+            current.close();
+        } catch (IOException ignored) {
+            // поток репликации заметит закрытие сам
+        }
+    }
+}
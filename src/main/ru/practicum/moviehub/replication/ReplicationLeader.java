@@ -0,0 +1,246 @@
+package ru.practicum.moviehub.replication;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ChangeEvent;
+import ru.practicum.moviehub.store.ChangeFeed;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Лидер: принимает реплики на отдельном TCP-порту и рассылает им изменения хранилища из его ленты
+ * {@link ChangeFeed}, пакетами до {@link ReplicationProtocol#MAX_BATCH} событий. У каждой реплики свой поток,
+ * медленная реплика отстаёт сама и остальных не задерживает.
+ * <p>
+ * Реплика, которая подключилась впервые, пришла от прошлого запуска лидера (другая эпоха) или отстала больше,
+ * чем хранит лента, сначала получает полную копию каталога, затем изменения после неё.
+ */
+public class ReplicationLeader implements ReplicationNode {
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final MoviesStore store;
+    private final ChangeFeed feed;
+    private final ServerSocket serverSocket;
+    // эпоха отличает этот запуск от прошлых: после перезапуска нумерация ленты начинается заново
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+    private final Set<FollowerConnection> followers = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    private ReplicationLeader(MoviesStore store, ServerSocket serverSocket) {
+        this.store = store;
+        this.feed = store.getChanges();
+        this.serverSocket = serverSocket;
+        this.acceptor = new Thread(this::acceptLoop, "moviehub-replication-acceptor");
+        acceptor.setDaemon(true);
+    }
+
+    /**
+     * @param port порт для реплик; 0 — любой свободный
+     */
+    public static ReplicationLeader start(MoviesStore store, int port) throws IOException {
+        ServerSocket serverSocket = new ServerSocket();
+        serverSocket.setReuseAddress(true);
+        serverSocket.bind(new InetSocketAddress(port));
+        ReplicationLeader leader = new ReplicationLeader(store, serverSocket);
+        leader.acceptor.start();
+        return leader;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public boolean acceptsWrites() {
+        return true;
+    }
+
+    @Override
+    public URI getLeaderUrl() {
+        return null;
+    }
+
+    @Override
+    public ReplicationStatus getStatus() {
+        long lastSeq = feed.getLastSeq();
+        List<ReplicationStatus.FollowerStatus> statuses = new ArrayList<>();
+        for (FollowerConnection follower : followers) {
+            long acked = follower.ackedSeq;
+            statuses.add(new ReplicationStatus.FollowerStatus(follower.address, acked, Math.max(0, lastSeq - acked)));
+        }
+        return ReplicationStatus.leader(epoch, lastSeq, statuses);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // закрываем в любом случае
+        }
+        for (FollowerConnection follower : followers) {
+            follower.close();
+        }
+        try {
+            acceptor.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (!closed) {
+                    System.err.println("Репликация: не удалось принять соединение: " + e.getMessage());
+                }
+                continue;
+            }
+            FollowerConnection follower = new FollowerConnection(socket);
+            followers.add(follower);
+            Thread thread = new Thread(follower, "moviehub-replication-" + follower.address);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private class FollowerConnection implements Runnable {
+        final Socket socket;
+        final String address;
+        volatile long ackedSeq;
+
+        FollowerConnection(Socket socket) {
+            this.socket = socket;
+            this.address = socket.getRemoteSocketAddress().toString();
+        }
+
+        @Override
+        public void run() {
+            try {
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(
+                        new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE));
+                if (in.readInt() != ReplicationProtocol.MAGIC || in.readInt() != ReplicationProtocol.VERSION) {
+                    throw new IOException("не реплика или другая версия протокола");
+                }
+                long followerEpoch = in.readLong();
+                long cursor = in.readLong();
+                ackedSeq = cursor;
+                // подтверждения читает свой поток: так они видны сразу, а отключение реплики замечается без записи
+                Thread.ofVirtual().name("moviehub-replication-acks-" + address).start(() -> readAcks(in));
+                if (followerEpoch != epoch || feed.since(cursor, 0) == null) {
+                    cursor = sendSnapshot(out);
+                }
+                while (!closed && !socket.isClosed()) {
+                    List<ChangeEvent> events = feed.await(cursor, ReplicationProtocol.MAX_BATCH,
+                            ReplicationProtocol.HEARTBEAT_MILLIS);
+                    if (events == null) {
+                        cursor = sendSnapshot(out);
+                        continue;
+                    }
+                    if (events.isEmpty()) {
+                        out.writeByte(ReplicationProtocol.HEARTBEAT);
+                        out.writeLong(feed.getLastSeq());
+                    } else {
+                        writeEvents(out, events);
+                        cursor = events.get(events.size() - 1).getSeq();
+                    }
+                    out.flush();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (IOException e) {
+                if (!closed && !(e instanceof SocketException)) {
+                    System.err.println("Репликация: реплика " + address + " отключена: " + e.getMessage());
+                }
+            } finally {
+                followers.remove(this);
+                close();
+            }
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // соединение уже не нужно
+            }
+        }
+
+        /**
+         * Полная копия каталога: сначала номер, до которого изменения в ней точно учтены, затем фильмы
+         * страницами. Изменения после этого номера реплика получит следом; часть из них копия может уже
+         * содержать, но их повторение приводит к тому же состоянию.
+         */
+        private long sendSnapshot(DataOutputStream out) throws IOException {
+            long seq = store.getSettledChangeSeq();
+            out.writeByte(ReplicationProtocol.SNAPSHOT_START);
+            out.writeLong(epoch);
+            out.writeLong(seq);
+            List<Movie> page = store.getPage(0, ReplicationProtocol.MAX_BATCH);
+            while (!page.isEmpty()) {
+                out.writeByte(ReplicationProtocol.MOVIES);
+                out.writeInt(page.size());
+                for (Movie movie : page) {
+                    ReplicationProtocol.writeMovie(out, movie);
+                }
+                page = store.getPage(page.get(page.size() - 1).getId(), ReplicationProtocol.MAX_BATCH);
+            }
+            out.writeByte(ReplicationProtocol.SNAPSHOT_END);
+            out.flush();
+            return seq;
+        }
+
+        private void writeEvents(DataOutputStream out, List<ChangeEvent> events) throws IOException {
+            out.writeByte(ReplicationProtocol.EVENTS);
+            out.writeLong(feed.getLastSeq());
+            out.writeInt(events.size());
+            for (ChangeEvent event : events) {
+                out.writeLong(event.getSeq());
+                switch (event.getType()) {
+                    case ADDED:
+                        out.writeByte(ReplicationProtocol.ADDED);
+                        ReplicationProtocol.writeMovie(out, event.getMovie());
+                        break;
+                    case DELETED:
+                        out.writeByte(ReplicationProtocol.DELETED);
+                        out.writeInt(event.getMovieId());
+                        break;
+                    default:
+                        out.writeByte(ReplicationProtocol.CLEARED);
+                }
+            }
+        }
+
+        private void readAcks(DataInputStream in) {
+            try {
+                while (in.readByte() == ReplicationProtocol.ACK) {
+                    ackedSeq = in.readLong();
+                }
+            } catch (IOException e) {
+                // реплика отключилась; поток рассылки выйдет, как только проснётся
+            }
+            close();
+        }
+    }
+}
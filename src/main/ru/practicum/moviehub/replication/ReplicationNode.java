@@ -0,0 +1,22 @@
+package ru.practicum.moviehub.replication;
+
+import java.io.Closeable;
+import java.net.URI;
+
+/**
+ * Роль сервера в репликации: лидер принимает запись и рассылает изменения, реплика только читает.
+ */
+public interface ReplicationNode extends Closeable {
+
+    boolean acceptsWrites();
+
+    /**
+     * @return HTTP-адрес лидера, куда перенаправлять запись, или null, если он неизвестен
+     */
+    URI getLeaderUrl();
+
+    ReplicationStatus getStatus();
+
+    @Override
+    void close();
+}
@@ -0,0 +1,68 @@
+package ru.practicum.moviehub.replication;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Протокол репликации поверх TCP; все числа big-endian, фильм — (id, год, длина названия, UTF-8 название),
+ * как в снимке хранилища.
+ * <p>
+ * Реплика начинает с приветствия: сигнатура, версия, эпоха лидера и номер последнего применённого события
+ * (0 и 0, если реплика новая). Лидер отвечает кадрами; первый байт кадра — его тип:
+ * <ul>
+ *     <li>{@link #SNAPSHOT_START} эпоха, номер — реплика очищает хранилище, дальше идёт полная копия;</li>
+ *     <li>{@link #MOVIES} количество, фильмы — часть полной копии;</li>
+ *     <li>{@link #SNAPSHOT_END} — копия передана, реплика догнала лидера до номера из начала копии;</li>
+ *     <li>{@link #EVENTS} последний номер у лидера, количество, события (номер, тип, фильм или id) —
+ *     пакет изменений по порядку;</li>
+ *     <li>{@link #HEARTBEAT} последний номер у лидера — изменений нет, соединение живо.</li>
+ * </ul>
+ * На каждый кадр, кроме частей копии, реплика отвечает {@link #ACK} с номером последнего применённого события.
+ */
+final class ReplicationProtocol {
+    static final int MAGIC = 0x4D565250; // "MVRP"
+    static final int VERSION = 1;
+
+    static final byte SNAPSHOT_START = 1;
+    static final byte MOVIES = 2;
+    static final byte SNAPSHOT_END = 3;
+    static final byte EVENTS = 4;
+    static final byte HEARTBEAT = 5;
+    static final byte ACK = 6;
+
+    static final byte ADDED = 1;
+    static final byte DELETED = 2;
+    static final byte CLEARED = 3;
+
+    static final int MAX_BATCH = 1000;
+    static final long HEARTBEAT_MILLIS = 1000;
+    // реплика считает лидера пропавшим, если он молчит дольше нескольких сердцебиений
+    static final int READ_TIMEOUT_MILLIS = (int) (5 * HEARTBEAT_MILLIS);
+
+    private ReplicationProtocol() {
+    }
+
+    static void writeMovie(DataOutputStream out, Movie movie) throws IOException {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        out.writeInt(movie.getId());
+        out.writeInt(movie.getYear());
+        out.writeShort(title.length);
+        out.write(title);
+    }
+
+    static Movie readMovie(DataInputStream in, byte[] buffer) throws IOException {
+        int id = in.readInt();
+        int year = in.readInt();
+        int length = in.readUnsignedShort();
+        in.readFully(buffer, 0, length);
+        return new Movie(id, new String(buffer, 0, length, StandardCharsets.UTF_8), year);
+    }
+
+    static byte[] titleBuffer() {
+        return new byte[0xFFFF];
+    }
+}
@@ -0,0 +1,102 @@
+package ru.practicum.moviehub.replication;
+
+import java.util.List;
+
+/**
+ * Состояние репликации для {@code GET /replication}. Отставание — в событиях ленты изменений лидера;
+ * поля, которые к роли не относятся, равны null и в JSON не попадают.
+ */
+public class ReplicationStatus {
+    private final String role;
+    private final long epoch;
+    private final long lastSeq;
+    private final Long leaderSeq;
+    private final Long lag;
+    private final Boolean connected;
+    private final Long lastContactMillisAgo;
+    private final List<FollowerStatus> followers;
+
+    private ReplicationStatus(String role, long epoch, long lastSeq, Long leaderSeq, Long lag, Boolean connected,
+                              Long lastContactMillisAgo, List<FollowerStatus> followers) {
+        this.role = role;
+        this.epoch = epoch;
+        this.lastSeq = lastSeq;
+        this.leaderSeq = leaderSeq;
+        this.lag = lag;
+        this.connected = connected;
+        this.lastContactMillisAgo = lastContactMillisAgo;
+        this.followers = followers;
+    }
+
+    static ReplicationStatus leader(long epoch, long lastSeq, List<FollowerStatus> followers) {
+        return new ReplicationStatus("leader", epoch, lastSeq, null, null, null, null, followers);
+    }
+
+    /**
+     * @param lastContactMillisAgo сколько прошло с последнего кадра от лидера; null, если его ещё не было
+     */
+    static ReplicationStatus follower(long epoch, long appliedSeq, long leaderSeq, boolean connected,
+                                      Long lastContactMillisAgo) {
+        return new ReplicationStatus("follower", epoch, appliedSeq, leaderSeq, Math.max(0, leaderSeq - appliedSeq),
+                connected, lastContactMillisAgo, null);
+    }
+
+    public String getRole() {
+        return role;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * @return у лидера — последний номер его ленты, у реплики — последний применённый номер лидера
+     */
+    public long getLastSeq() {
+        return lastSeq;
+    }
+
+    public Long getLeaderSeq() {
+        return leaderSeq;
+    }
+
+    public Long getLag() {
+        return lag;
+    }
+
+    public Boolean getConnected() {
+        return connected;
+    }
+
+    public Long getLastContactMillisAgo() {
+        return lastContactMillisAgo;
+    }
+
+    public List<FollowerStatus> getFollowers() {
+        return followers;
+    }
+
+    public static class FollowerStatus {
+        private final String address;
+        private final long ackedSeq;
+        private final long lag;
+
+        FollowerStatus(String address, long ackedSeq, long lag) {
+            this.address = address;
+            this.ackedSeq = ackedSeq;
+            this.lag = lag;
+        }
+
+        public String getAddress() {
+            return address;
+        }
+
+        public long getAckedSeq() {
+            return ackedSeq;
+        }
+
+        public long getLag() {
+            return lag;
+        }
+    }
+}
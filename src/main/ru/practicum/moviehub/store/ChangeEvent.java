@@ -0,0 +1,96 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.json.MovieJson;
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Изменение хранилища из ленты {@link ChangeFeed}. Событие неизменяемо и общее для всех подписчиков,
+ * поэтому его JSON вычисляется один раз, сколько бы клиентов его ни получили.
+ */
+public final class ChangeEvent {
+    public enum Type {
+        ADDED("added"),
+        DELETED("deleted"),
+        // после очистки подписчику проще всего забыть всё, что он знал о каталоге
+        CLEARED("cleared");
+
+        private final String token;
+
+        Type(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+    }
+
+    private final long seq;
+    private final Type type;
+    private final int movieId;
+    private final Movie movie;
+    private volatile byte[] json;
+
+    ChangeEvent(long seq, Type type, int movieId, Movie movie) {
+        this.seq = seq;
+        this.type = type;
+        this.movieId = movieId;
+        this.movie = movie;
+    }
+
+    public long getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return id добавленного или удалённого фильма; 0 для очистки
+     */
+    public int getMovieId() {
+        return movieId;
+    }
+
+    /**
+     * @return добавленный фильм или null
+     */
+    public Movie getMovie() {
+        return movie;
+    }
+
+    /**
+     * UTF-8 JSON события: {@code {"seq":1,"type":"added","movie":{...}}}, {@code {"seq":2,"type":"deleted","id":1}}
+     * или {@code {"seq":3,"type":"cleared"}}.
+     */
+    public byte[] toJson() {
+        byte[] result = json;
+        if (result == null) {
+            result = encode();
+            json = result;
+        }
+        return result;
+    }
+
+    private byte[] encode() {
+        String head = "{\"seq\":" + seq + ",\"type\":\"" + type.getToken() + "\"";
+        switch (type) {
+            case ADDED: {
+                byte[] prefix = (head + ",\"movie\":").getBytes(StandardCharsets.US_ASCII);
+                byte[] movieJson = MovieJson.toBytes(movie);
+                byte[] result = new byte[prefix.length + movieJson.length + 1];
+                System.arraycopy(prefix, 0, result, 0, prefix.length);
+                System.arraycopy(movieJson, 0, result, prefix.length, movieJson.length);
+                result[result.length - 1] = '}';
+                return result;
+            }
+            case DELETED:
+                return (head + ",\"id\":" + movieId + "}").getBytes(StandardCharsets.US_ASCII);
+            default:
+                return (head + "}").getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+}
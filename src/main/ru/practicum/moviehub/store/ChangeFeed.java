@@ -0,0 +1,109 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Последние изменения хранилища в кольцевом буфере ограниченного размера. У каждого события свой номер,
+ * номера идут подряд с 1; подписчик помнит номер последнего полученного события и спрашивает, что было после.
+ * Все подписчики читают один и тот же буфер, копий на каждого не делается.
+ * <p>
+ * Лента живёт только в памяти: после перезапуска нумерация начинается заново, и клиент, пришедший
+ * с номером из прошлой жизни сервера, как и отставший больше чем на ёмкость буфера, должен
+ * перечитать каталог целиком.
+ */
+public class ChangeFeed {
+    public static final int DEFAULT_CAPACITY = 10_000;
+
+    private final ChangeEvent[] events;
+    // номер последнего события; защищён монитором ленты
+    private long lastSeq;
+
+    public ChangeFeed() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public ChangeFeed(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Ёмкость ленты изменений должна быть положительной: " + capacity);
+        }
+        this.events = new ChangeEvent[capacity];
+    }
+
+    public int getCapacity() {
+        return events.length;
+    }
+
+    public synchronized long getLastSeq() {
+        return lastSeq;
+    }
+
+    /**
+     * Не больше {@code limit} событий с номерами после {@code since}; пустой список, если новых нет.
+     *
+     * @return события или null, если нужных уже нет в буфере (или {@code since} из будущего)
+     *         и клиенту нужна полная синхронизация
+     */
+    public synchronized List<ChangeEvent> since(long since, int limit) {
+        if (!isRetained(since)) {
+            return null;
+        }
+        int count = (int) Math.min(limit, lastSeq - since);
+        List<ChangeEvent> result = new ArrayList<>(count);
+        for (long seq = since + 1; seq <= since + count; seq++) {
+            result.add(events[slot(seq)]);
+        }
+        return result;
+    }
+
+    /**
+     * То же, что {@link #since}, но если новых событий нет, ждёт их не дольше {@code timeoutMillis}.
+     */
+    public synchronized List<ChangeEvent> await(long since, int limit, long timeoutMillis) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (lastSeq == since) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                break;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return since(since, limit);
+    }
+
+    void added(Movie movie) {
+        append(ChangeEvent.Type.ADDED, movie.getId(), movie);
+    }
+
+    synchronized void addedAll(List<Movie> movies) {
+        for (Movie movie : movies) {
+            append(ChangeEvent.Type.ADDED, movie.getId(), movie);
+        }
+    }
+
+    void deleted(int id) {
+        append(ChangeEvent.Type.DELETED, id, null);
+    }
+
+    void cleared() {
+        append(ChangeEvent.Type.CLEARED, 0, null);
+    }
+
+    private synchronized void append(ChangeEvent.Type type, int movieId, Movie movie) {
+        long seq = ++lastSeq;
+        events[slot(seq)] = new ChangeEvent(seq, type, movieId, movie);
+        notifyAll();
+    }
+
+    private boolean isRetained(long since) {
+        // событие since + 1 ещё не вытеснено, если с него набралось не больше ёмкости буфера
+        return since >= 0 && since <= lastSeq && lastSeq - since <= events.length;
+    }
+
+    private int slot(long seq) {
+        return (int) (seq % events.length);
+    }
+}
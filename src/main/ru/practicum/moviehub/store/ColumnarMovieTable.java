@@ -0,0 +1,314 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Компактная таблица: id, годы, версии и ссылки на названия лежат в примитивных массивах, отсортированных
+ * по id, а названия — в общем UTF-8 буфере. Объекты {@link Movie} создаются только при чтении.
+ * <p>
+ * Обходится в несколько десятков байт на фильм против ~300 у {@link SkipListMovieTable} с кэшем JSON
+ * и почти не создаёт работы сборщику мусора. Запись сериализуется блокировкой; чтение по id и страницы
+ * идут оптимистично, без блокировки, и повторяются под разделяемой блокировкой, только если
+ * параллельно шла запись.
+ * <p>
+ * Цена компактности — запись: массивы упорядочены по id, поэтому удаление, а также вставка и замена
+ * не в конце сдвигают хвост всех пяти массивов, то есть стоят O(n) под блокировкой записи. Новые id
+ * растут, и обычное добавление идёт в конец за O(1); при частых удалениях лучше {@link StoreLayout#OBJECTS}.
+ */
+class ColumnarMovieTable implements MovieTable {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MIN_COMPACTION_BYTES = 1 << 16;
+
+    private final StampedLock lock = new StampedLock();
+
+    private int[] ids = new int[INITIAL_CAPACITY];
+    private int[] years = new int[INITIAL_CAPACITY];
+    private long[] versions = new long[INITIAL_CAPACITY];
+    private int[] titleOffsets = new int[INITIAL_CAPACITY];
+    private short[] titleLengths = new short[INITIAL_CAPACITY];
+    private int size;
+
+    private byte[] titles = new byte[INITIAL_CAPACITY * 16];
+    private int titlesUsed;
+    private int titlesDead;
+
+    // год -> отсортированные id; лет в каталоге немного, поэтому ключи можно держать в TreeMap
+    private final NavigableMap<Integer, IntList> idsByYear = new TreeMap<>();
+
+    @Override
+    public Movie get(int id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                Movie movie = find(id);
+                if (lock.validate(stamp)) {
+                    return movie;
+                }
+            } catch (RuntimeException e) {
+                // массивы менялись во время чтения; перечитаем под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return find(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void put(Movie movie) {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        if (title.length > 0xFFFF) {
+            throw new IllegalArgumentException("Название слишком длинное: " + title.length + " байт");
+        }
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, movie.getId());
+            if (index >= 0) {
+                removeAt(index);
+                index = Arrays.binarySearch(ids, 0, size, movie.getId());
+            }
+            insertAt(-index - 1, movie, title);
+            idsByYear.computeIfAbsent(movie.getYear(), y -> new IntList()).insert(movie.getId());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Movie remove(int id) {
+        long stamp = lock.writeLock();
+        try {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return null;
+            }
+            Movie removed = materialize(index);
+            removeAt(index);
+            return removed;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            ids = new int[INITIAL_CAPACITY];
+            years = new int[INITIAL_CAPACITY];
+            versions = new long[INITIAL_CAPACITY];
+            titleOffsets = new int[INITIAL_CAPACITY];
+            titleLengths = new short[INITIAL_CAPACITY];
+            size = 0;
+            titles = new byte[INITIAL_CAPACITY * 16];
+            titlesUsed = 0;
+            titlesDead = 0;
+            idsByYear.clear();
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int result = size;
+        if (lock.validate(stamp)) {
+            return result;
+        }
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Movie> page(int afterId, int limit) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                List<Movie> result = pageUnlocked(afterId, limit);
+                if (lock.validate(stamp)) {
+                    return result;
+                }
+            } catch (RuntimeException e) {
+                // массивы менялись во время чтения; перечитаем под блокировкой
+            }
+        }
+        stamp = lock.readLock();
+        try {
+            return pageUnlocked(afterId, limit);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public List<Movie> byYearRange(int from, int to, int afterYear, int afterId, int limit) {
+        List<Movie> result = new ArrayList<>(Math.min(limit, 64));
+        int start = Math.max(from, afterYear);
+        if (start > to) {
+            return result;
+        }
+        // TreeMap нельзя безопасно обходить параллельно с изменением, поэтому здесь только разделяемая блокировка
+        long stamp = lock.readLock();
+        try {
+            for (Map.Entry<Integer, IntList> bucket : idsByYear.subMap(start, true, to, true).entrySet()) {
+                IntList yearIds = bucket.getValue();
+                int first = bucket.getKey() == afterYear ? yearIds.upperBound(afterId) : 0;
+                for (int i = first; i < yearIds.size && result.size() < limit; i++) {
+                    result.add(materialize(Arrays.binarySearch(ids, 0, size, yearIds.values[i])));
+                }
+                if (result.size() >= limit) {
+                    break;
+                }
+            }
+            return result;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private Movie find(int id) {
+        int index = Arrays.binarySearch(ids, 0, size, id);
+        return index < 0 ? null : materialize(index);
+    }
+
+    private List<Movie> pageUnlocked(int afterId, int limit) {
+        int index = Arrays.binarySearch(ids, 0, size, afterId);
+        int start = index >= 0 ? index + 1 : -index - 1;
+        int end = (int) Math.min((long) start + limit, size);
+        List<Movie> result = new ArrayList<>(Math.max(0, Math.min(end - start, 64)));
+        for (int i = start; i < end; i++) {
+            result.add(materialize(i));
+        }
+        return result;
+    }
+
+    private Movie materialize(int index) {
+        String title = new String(titles, titleOffsets[index], Short.toUnsignedInt(titleLengths[index]),
+                StandardCharsets.UTF_8);
+        return new Movie(ids[index], title, years[index], versions[index]);
+    }
+
+    private void insertAt(int index, Movie movie, byte[] title) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            years = Arrays.copyOf(years, capacity);
+            versions = Arrays.copyOf(versions, capacity);
+            titleOffsets = Arrays.copyOf(titleOffsets, capacity);
+            titleLengths = Arrays.copyOf(titleLengths, capacity);
+        }
+        // id выдаются по возрастанию, так что обычно это вставка в конец без сдвига
+        int tail = size - index;
+        if (tail > 0) {
+            System.arraycopy(ids, index, ids, index + 1, tail);
+            System.arraycopy(years, index, years, index + 1, tail);
+            System.arraycopy(versions, index, versions, index + 1, tail);
+            System.arraycopy(titleOffsets, index, titleOffsets, index + 1, tail);
+            System.arraycopy(titleLengths, index, titleLengths, index + 1, tail);
+        }
+        ids[index] = movie.getId();
+        years[index] = movie.getYear();
+        versions[index] = movie.getVersion();
+        titleOffsets[index] = appendTitle(title);
+        titleLengths[index] = (short) title.length;
+        size++;
+    }
+
+    // сдвиг хвоста делает удаление O(n); см. описание класса
+    private void removeAt(int index) {
+        IntList yearIds = idsByYear.get(years[index]);
+        if (yearIds != null) {
+            yearIds.remove(ids[index]);
+        }
+        titlesDead += Short.toUnsignedInt(titleLengths[index]);
+        int tail = size - index - 1;
+        if (tail > 0) {
+            System.arraycopy(ids, index + 1, ids, index, tail);
+            System.arraycopy(years, index + 1, years, index, tail);
+            System.arraycopy(versions, index + 1, versions, index, tail);
+            System.arraycopy(titleOffsets, index + 1, titleOffsets, index, tail);
+            System.arraycopy(titleLengths, index + 1, titleLengths, index, tail);
+        }
+        size--;
+        if (titlesDead > MIN_COMPACTION_BYTES && titlesDead > titlesUsed / 2) {
+            compactTitles();
+        }
+    }
+
+    private int appendTitle(byte[] title) {
+        if (titlesUsed + title.length > titles.length) {
+            titles = Arrays.copyOf(titles, Math.max(titles.length * 2, titlesUsed + title.length));
+        }
+        int offset = titlesUsed;
+        System.arraycopy(title, 0, titles, offset, title.length);
+        titlesUsed += title.length;
+        return offset;
+    }
+
+    private void compactTitles() {
+        byte[] compacted = new byte[Math.max(INITIAL_CAPACITY * 16, (titlesUsed - titlesDead) * 2)];
+        int used = 0;
+        for (int i = 0; i < size; i++) {
+            int length = Short.toUnsignedInt(titleLengths[i]);
+            System.arraycopy(titles, titleOffsets[i], compacted, used, length);
+            titleOffsets[i] = used;
+            used += length;
+        }
+        titles = compacted;
+        titlesUsed = used;
+        titlesDead = 0;
+    }
+
+    /**
+     * Отсортированный список int без упаковки.
+     */
+    private static class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void insert(int value) {
+            int index = size == 0 || values[size - 1] < value ? size : Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0 && index < size && values[index] == value) {
+                return;
+            }
+            if (index < 0) {
+                index = -index - 1;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+        }
+
+        void remove(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+        }
+
+        int upperBound(int value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            return index >= 0 ? index + 1 : -index - 1;
+        }
+    }
+}
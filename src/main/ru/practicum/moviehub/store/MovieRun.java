@@ -0,0 +1,220 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Неизменяемая последовательность фильмов, упорядоченная по id. Хранится блоками по {@value #CHUNK_SIZE}
+ * фильмов, поэтому изменение копирует один блок и таблицу блоков, а не всю последовательность,
+ * а прежняя версия остаётся целой для тех, кто её читает.
+ */
+final class MovieRun {
+    static final int CHUNK_SIZE = 512;
+    static final MovieRun EMPTY = new MovieRun(new Movie[0][], 0);
+
+    private final Movie[][] chunks;
+    // offsets[i] — позиция первого фильма блока i во всей последовательности
+    private final int[] offsets;
+    private final int size;
+
+    private MovieRun(Movie[][] chunks, int size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.offsets = new int[chunks.length];
+        int offset = 0;
+        for (int i = 0; i < chunks.length; i++) {
+            offsets[i] = offset;
+            offset += chunks[i].length;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    Movie get(int index) {
+        int chunk = Arrays.binarySearch(offsets, index);
+        if (chunk < 0) {
+            chunk = -chunk - 2;
+        }
+        return chunks[chunk][index - offsets[chunk]];
+    }
+
+    Movie find(int id) {
+        int chunk = chunkFor(id);
+        if (chunk == chunks.length) {
+            return null;
+        }
+        int position = search(chunks[chunk], id);
+        return position >= 0 ? chunks[chunk][position] : null;
+    }
+
+    /**
+     * @return позиция первого фильма с id больше {@code id}
+     */
+    int upperBound(int id) {
+        int chunk = chunkFor(id);
+        if (chunk == chunks.length) {
+            return size;
+        }
+        int position = search(chunks[chunk], id);
+        return offsets[chunk] + (position >= 0 ? position + 1 : -position - 1);
+    }
+
+    /**
+     * Фильмы с позиции {@code from} до {@code to} без копирования.
+     */
+    List<Movie> slice(int from, int to) {
+        return new Slice(this, from, to);
+    }
+
+    /**
+     * Последовательность с добавленным фильмом; фильм с тем же id заменяется.
+     */
+    MovieRun with(Movie movie) {
+        int id = movie.getId();
+        int chunk = chunkFor(id);
+        if (chunk == chunks.length) {
+            // id выдаются по возрастанию, так что обычно это дописывание в конец
+            Movie[] last = chunks.length == 0 ? null : chunks[chunks.length - 1];
+            if (last == null || last.length >= CHUNK_SIZE) {
+                return splice(chunks.length, 0, size + 1, new Movie[]{movie});
+            }
+            Movie[] extended = Arrays.copyOf(last, last.length + 1);
+            extended[last.length] = movie;
+            return splice(chunks.length - 1, 1, size + 1, extended);
+        }
+        Movie[] target = chunks[chunk];
+        int position = search(target, id);
+        if (position >= 0) {
+            Movie[] replaced = target.clone();
+            replaced[position] = movie;
+            return splice(chunk, 1, size, replaced);
+        }
+        position = -position - 1;
+        Movie[] inserted = new Movie[target.length + 1];
+        System.arraycopy(target, 0, inserted, 0, position);
+        inserted[position] = movie;
+        System.arraycopy(target, position, inserted, position + 1, target.length - position);
+        if (inserted.length <= CHUNK_SIZE) {
+            return splice(chunk, 1, size + 1, inserted);
+        }
+        int half = inserted.length / 2;
+        return splice(chunk, 1, size + 1,
+                Arrays.copyOfRange(inserted, 0, half), Arrays.copyOfRange(inserted, half, inserted.length));
+    }
+
+    /**
+     * Дописывает фильмы, id которых больше всех имеющихся и идут по возрастанию.
+     */
+    MovieRun withAll(List<Movie> ascending) {
+        if (ascending.isEmpty()) {
+            return this;
+        }
+        Movie[] last = chunks.length == 0 ? new Movie[0] : chunks[chunks.length - 1];
+        int total = last.length + ascending.size();
+        Movie[][] tail = new Movie[(total + CHUNK_SIZE - 1) / CHUNK_SIZE][];
+        int source = -last.length;
+        for (int i = 0; i < tail.length; i++) {
+            Movie[] chunk = new Movie[Math.min(CHUNK_SIZE, total - i * CHUNK_SIZE)];
+            for (int j = 0; j < chunk.length; j++, source++) {
+                chunk[j] = source < 0 ? last[last.length + source] : ascending.get(source);
+            }
+            tail[i] = chunk;
+        }
+        return splice(Math.max(0, chunks.length - 1), chunks.length == 0 ? 0 : 1, size + ascending.size(), tail);
+    }
+
+    MovieRun without(int id) {
+        int chunk = chunkFor(id);
+        if (chunk == chunks.length) {
+            return this;
+        }
+        Movie[] target = chunks[chunk];
+        int position = search(target, id);
+        if (position < 0) {
+            return this;
+        }
+        if (target.length == 1) {
+            return splice(chunk, 1, size - 1);
+        }
+        Movie[] removed = new Movie[target.length - 1];
+        System.arraycopy(target, 0, removed, 0, position);
+        System.arraycopy(target, position + 1, removed, position, removed.length - position);
+        return splice(chunk, 1, size - 1, removed);
+    }
+
+    Movie last() {
+        return size == 0 ? null : chunks[chunks.length - 1][chunks[chunks.length - 1].length - 1];
+    }
+
+    // первый блок, последний id которого не меньше id; chunks.length, если таких нет
+    private int chunkFor(int id) {
+        int low = 0;
+        int high = chunks.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Movie[] chunk = chunks[middle];
+            if (chunk[chunk.length - 1].getId() < id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private MovieRun splice(int at, int removeCount, int newSize, Movie[]... insert) {
+        Movie[][] result = new Movie[chunks.length - removeCount + insert.length][];
+        System.arraycopy(chunks, 0, result, 0, at);
+        System.arraycopy(insert, 0, result, at, insert.length);
+        System.arraycopy(chunks, at + removeCount, result, at + insert.length, chunks.length - at - removeCount);
+        return new MovieRun(result, newSize);
+    }
+
+    private static int search(Movie[] chunk, int id) {
+        int low = 0;
+        int high = chunk.length - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleId = chunk[middle].getId();
+            if (middleId < id) {
+                low = middle + 1;
+            } else if (middleId > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private static class Slice extends AbstractList<Movie> implements RandomAccess {
+        private final MovieRun run;
+        private final int from;
+        private final int to;
+
+        Slice(MovieRun run, int from, int to) {
+            this.run = run;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Movie get(int index) {
+            if (index < 0 || index >= to - from) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            return run.get(from + index);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Основная таблица хранилища: фильмы по id и индекс по году. Потокобезопасна; согласованность
+ * с журналом и версией хранилища обеспечивает {@link MoviesStore}.
+ */
+interface MovieTable extends Iterable<Movie> {
+    int ITERATION_PAGE = 1024;
+
+    Movie get(int id);
+
+    void put(Movie movie);
+
+    /**
+     * Добавляет пакет фильмов; таблица может применить его целиком дешевле, чем по одному.
+     */
+    default void putAll(List<Movie> movies) {
+        for (Movie movie : movies) {
+            put(movie);
+        }
+    }
+
+    /**
+     * @return удалённый фильм или {@code null}, если его не было
+     */
+    Movie remove(int id);
+
+    void clear();
+
+    int size();
+
+    /**
+     * Не более {@code limit} фильмов с id больше {@code afterId}, по возрастанию id.
+     */
+    List<Movie> page(int afterId, int limit);
+
+    /**
+     * Фильмы с годом из [from, to] по возрастанию (год, id), начиная после позиции (afterYear, afterId).
+     */
+    List<Movie> byYearRange(int from, int to, int afterYear, int afterId, int limit);
+
+    /**
+     * Обход всех фильмов по возрастанию id страницами, без копирования таблицы целиком.
+     */
+    @Override
+    default Iterator<Movie> iterator() {
+        return new Iterator<>() {
+            private List<Movie> page = page(0, ITERATION_PAGE);
+            private int position;
+
+            @Override
+            public boolean hasNext() {
+                if (position < page.size()) {
+                    return true;
+                }
+                if (page.size() < ITERATION_PAGE) {
+                    return false;
+                }
+                page = page(page.get(page.size() - 1).getId(), ITERATION_PAGE);
+                position = 0;
+                return !page.isEmpty();
+            }
+
+            @Override
+            public Movie next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return page.get(position++);
+            }
+        };
+    }
+}
@@ -1,48 +1,579 @@
 package ru.practicum.moviehub.store;
 
+import ru.practicum.moviehub.json.MovieJson;
 import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-public class MoviesStore {
-    private final Map<Integer, Movie> movies = new HashMap<>();
-    private int nextId = 1;
+public class MoviesStore implements Closeable {
+    private static final String LOG_FILE = "movies.wal";
+    private static final String ARCHIVED_LOG_FILE = "movies.wal.old";
+    private static final String SNAPSHOT_FILE = "movies.snapshot";
+    private static final int DEFAULT_SNAPSHOT_EVERY = 100_000;
+
+    private final MovieTable movies;
+    // Movie неизменяем, поэтому его JSON сериализуется один раз при добавлении; в компактной раскладке кэша нет
+    private final Map<Integer, byte[]> jsonById;
+    private final TitleIndex titleIndex = new TitleIndex();
+    private final AtomicInteger nextId = new AtomicInteger(1);
+    // растёт после каждого изменения, уже видимого читателям: версия, прочитанная до выборки, не опережает данные
+    private final AtomicLong version = new AtomicLong();
+    // добавление попадает в ленту до вставки в таблицы: удалить фильм можно, только когда он уже виден,
+    // поэтому удаление всегда получает номер больше, чем добавление того же фильма
+    private final ChangeFeed changes = new ChangeFeed();
+    // годы помечаются версией, которую хранилище получит сразу после изменения, и до того, как её получит:
+    // кто увидел новую версию, увидит и пометку
+    private final YearVersions yearVersions = new YearVersions();
+    // изменения держат общую блокировку от записи в журнал до применения к таблицам,
+    // clear — исключительную, чтобы порядок в журнале совпадал с порядком в памяти; чтение её не берёт
+    private final ReadWriteLock mutationLock = new ReentrantReadWriteLock();
+    private final WriteAheadLog log;
+    private final Path dataDir;
+    private final int snapshotEvery;
+    private final AtomicLong mutationsSinceSnapshot = new AtomicLong();
+    private final AtomicBoolean snapshotScheduled = new AtomicBoolean();
+    private final ExecutorService snapshotExecutor;
+    private final Object snapshotMonitor = new Object();
+
+    public MoviesStore() {
+        this(StoreLayout.OBJECTS);
+    }
+
+    public MoviesStore(StoreLayout layout) {
+        this(layout, 1);
+    }
+
+    /**
+     * Хранилище, таблица которого разбита на {@code shards} частей по хэшу id, каждая со своим индексом
+     * по году; большие списки и выборки по году собираются из частей параллельно.
+     */
+    public MoviesStore(StoreLayout layout, int shards) {
+        this.movies = layout.createTable(shards);
+        this.jsonById = layout.cachesJson() ? new ConcurrentHashMap<>() : null;
+        this.log = null;
+        this.dataDir = null;
+        this.snapshotEvery = 0;
+        this.snapshotExecutor = null;
+    }
+
+    private MoviesStore(Path dataDir, int snapshotEvery, StoreLayout layout, int shards) throws IOException {
+        this.movies = layout.createTable(shards);
+        this.jsonById = layout.cachesJson() ? new ConcurrentHashMap<>() : null;
+        this.dataDir = dataDir;
+        this.snapshotEvery = snapshotEvery;
+        LogReplay replay = new LogReplay();
+        nextId.set(Math.max(1, SnapshotFile.load(dataDir.resolve(SNAPSHOT_FILE), replay)));
+        // архив остаётся, если прошлый снимок не дописался; повторное проигрывание уже учтённых записей безвредно
+        boolean archived = Files.exists(dataDir.resolve(ARCHIVED_LOG_FILE));
+        if (archived) {
+            WriteAheadLog.replay(dataDir.resolve(ARCHIVED_LOG_FILE), replay);
+        }
+        this.log = WriteAheadLog.open(dataDir.resolve(LOG_FILE), replay);
+        this.snapshotExecutor = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "movies-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (archived) {
+            snapshot();
+        }
+    }
+
+    /**
+     * Хранилище, которое восстанавливает данные из снимка и журнала в {@code dataDir}
+     * и дописывает в журнал все изменения.
+     */
+    public static MoviesStore open(Path dataDir) throws IOException {
+        return open(dataDir, DEFAULT_SNAPSHOT_EVERY);
+    }
+
+    public static MoviesStore open(Path dataDir, StoreLayout layout) throws IOException {
+        return open(dataDir, DEFAULT_SNAPSHOT_EVERY, layout);
+    }
+
+    public static MoviesStore open(Path dataDir, StoreLayout layout, int shards) throws IOException {
+        return open(dataDir, DEFAULT_SNAPSHOT_EVERY, layout, shards);
+    }
+
+    /**
+     * То же, что {@link #open(Path)}; снимок снимается в фоне после каждых {@code snapshotEvery} изменений.
+     */
+    public static MoviesStore open(Path dataDir, int snapshotEvery) throws IOException {
+        return open(dataDir, snapshotEvery, StoreLayout.OBJECTS);
+    }
+
+    public static MoviesStore open(Path dataDir, int snapshotEvery, StoreLayout layout) throws IOException {
+        return open(dataDir, snapshotEvery, layout, 1);
+    }
+
+    /**
+     * То же, что {@link #open(Path, int)}, с таблицей, разбитой на {@code shards} частей (см. {@link #MoviesStore(StoreLayout, int)}).
+     */
+    public static MoviesStore open(Path dataDir, int snapshotEvery, StoreLayout layout, int shards) throws IOException {
+        if (snapshotEvery < 1) {
+            throw new IllegalArgumentException("Период снимков должен быть положительным: " + snapshotEvery);
+        }
+        Files.createDirectories(dataDir);
+        return new MoviesStore(dataDir, snapshotEvery, layout, shards);
+    }
 
     public Movie add(String title, int year) {
-        int id = nextId++;
-        Movie movie = new Movie(id, title, year);
-        movies.put(id, movie);
+        Movie movie;
+        mutationLock.readLock().lock();
+        try {
+            int id = nextId.getAndIncrement();
+            movie = new Movie(id, title, year, version.incrementAndGet());
+            if (log != null) {
+                log.appendAdd(movie);
+            }
+            changes.added(movie);
+            insert(movie);
+            yearVersions.touched(year, version.get() + 1);
+            version.incrementAndGet();
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        onMutations(1);
         return movie;
     }
 
+    /**
+     * Добавляет фильмы одной операцией: диапазон id резервируется сразу, версия хранилища растёт один раз.
+     */
+    public List<Movie> addAll(List<MovieDraft> drafts) {
+        List<Movie> added = new ArrayList<>(drafts.size());
+        if (drafts.isEmpty()) {
+            return added;
+        }
+        mutationLock.readLock().lock();
+        try {
+            int firstId = nextId.getAndAdd(drafts.size());
+            long batchVersion = version.incrementAndGet();
+            for (int i = 0; i < drafts.size(); i++) {
+                MovieDraft draft = drafts.get(i);
+                added.add(new Movie(firstId + i, draft.getTitle(), draft.getYear(), batchVersion));
+            }
+            if (log != null) {
+                log.appendAddAll(added);
+            }
+            changes.addedAll(added);
+            insertAll(added);
+            yearVersions.touched(added, version.get() + 1);
+            version.incrementAndGet();
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        onMutations(added.size());
+        return added;
+    }
+
+    /**
+     * Переносит фильмы вместе с их id, например из экспорта другого экземпляра: фильм с тем же id
+     * заменяется, nextId сдвигается за наибольший импортированный id. Пакет применяется под исключительной
+     * блокировкой, чтобы одновременное добавление не получило id, который как раз импортируется.
+     */
+    public void importAll(List<Movie> imported) {
+        if (imported.isEmpty()) {
+            return;
+        }
+        mutationLock.writeLock().lock();
+        try {
+            long batchVersion = version.incrementAndGet();
+            List<Movie> movies = new ArrayList<>(imported.size());
+            int maxId = 0;
+            for (Movie movie : imported) {
+                movies.add(new Movie(movie.getId(), movie.getTitle(), movie.getYear(), batchVersion));
+                maxId = Math.max(maxId, movie.getId());
+            }
+            if (log != null) {
+                log.appendAddAll(movies);
+            }
+            changes.addedAll(movies);
+            List<Movie> replaced = new ArrayList<>();
+            for (Movie movie : movies) {
+                Movie previous = forgetTitle(movie.getId());
+                if (previous != null) {
+                    replaced.add(previous);
+                }
+            }
+            insertAll(movies);
+            nextId.accumulateAndGet(maxId + 1, Math::max);
+            yearVersions.touched(movies, version.get() + 1);
+            yearVersions.touched(replaced, version.get() + 1);
+            version.incrementAndGet();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+        onMutations(imported.size());
+    }
+
+    /**
+     * Номер события ленты, все изменения до которого включительно уже видны в таблицах. Добавление попадает
+     * в ленту раньше, чем в таблицы, поэтому {@code getChanges().getLastSeq()} для этого не годится: выборка,
+     * начатая после такого номера, и события после него вместе дают полное состояние хранилища.
+     */
+    public long getSettledChangeSeq() {
+        mutationLock.writeLock().lock();
+        try {
+            return changes.getLastSeq();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Лента изменений с момента запуска; восстановление из журнала в неё не попадает.
+     */
+    public ChangeFeed getChanges() {
+        return changes;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Версия хранилища, начиная с которой видно последнее изменение фильмов с годом из [from, to]. Выборка
+     * по этим годам, перед которой {@link #getVersion()} вернул {@code v}, верна, пока результат не больше
+     * {@code v}: изменения других лет её не затрагивают. Без фильтра по году — {@code from = Integer.MIN_VALUE},
+     * {@code to = Integer.MAX_VALUE}.
+     */
+    public long getYearsVersion(int from, int to) {
+        return yearVersions.get(from, to);
+    }
+
     public List<Movie> getAll() {
-        return new ArrayList<>(movies.values());
+        return movies.page(0, Integer.MAX_VALUE);
+    }
+
+    public int size() {
+        return movies.size();
+    }
+
+    /**
+     * Не более {@code limit} фильмов с id больше {@code afterId}, по возрастанию id.
+     */
+    public List<Movie> getPage(int afterId, int limit) {
+        return movies.page(afterId, limit);
     }
 
     public Optional<Movie> getById(int id) {
         return Optional.ofNullable(movies.get(id));
     }
 
+    /**
+     * UTF-8 JSON фильма из кэша. Фильмы, восстановленные при запуске, попадают в кэш при первом обращении;
+     * фильм, удалённый после выборки, сериализуется заново без кэширования.
+     */
+    public byte[] toJson(Movie movie) {
+        if (jsonById == null) {
+            return MovieJson.toBytes(movie);
+        }
+        byte[] json = jsonById.get(movie.getId());
+        if (json != null) {
+            return json;
+        }
+        json = MovieJson.toBytes(movie);
+        if (movies.get(movie.getId()) == movie) {
+            jsonById.putIfAbsent(movie.getId(), json);
+        }
+        return json;
+    }
+
     public boolean deleteById(int id) {
-        return movies.remove(id) != null;
+        mutationLock.readLock().lock();
+        try {
+            if (movies.get(id) == null) {
+                return false;
+            }
+            if (log != null) {
+                // при гонке двух удалений в журнал попадут обе записи, повторное удаление безвредно
+                log.appendDelete(id);
+            }
+            Movie removed = remove(id);
+            if (removed == null) {
+                return false;
+            }
+            changes.deleted(id);
+            yearVersions.touched(removed.getYear(), version.get() + 1);
+            version.incrementAndGet();
+        } finally {
+            mutationLock.readLock().unlock();
+        }
+        onMutations(1);
+        return true;
     }
 
     public List<Movie> getByYear(int year) {
-        List<Movie> result = new ArrayList<>();
-        for (Movie movie : movies.values()) {
-            if (movie.getYear() == year) {
-                result.add(movie);
+        return getByYear(year, 0, Integer.MAX_VALUE);
+    }
+
+    public List<Movie> getByYear(int year, int afterId, int limit) {
+        return getByYearRange(year, year, year, afterId, limit);
+    }
+
+    /**
+     * Фильмы с годом выпуска в диапазоне [from, to], упорядоченные по году, затем по id.
+     */
+    public List<Movie> getByYearRange(int from, int to) {
+        return getByYearRange(from, to, from, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Продолжает выборку по диапазону лет с позиции (afterYear, afterId) — последнего фильма предыдущей страницы.
+     */
+    public List<Movie> getByYearRange(int from, int to, int afterYear, int afterId, int limit) {
+        return movies.byYearRange(from, to, afterYear, afterId, limit);
+    }
+
+    /**
+     * Поиск по словам названия без учёта регистра: все слова запроса должны встретиться в названии
+     * целиком или как начало слова. Результаты упорядочены по убыванию качества совпадения
+     * (см. {@link TitleIndex#score}), затем по длине названия и id.
+     */
+    public List<Movie> search(String query, int yearFrom, int yearTo, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(TitleIndex.tokenize(query)));
+        if (tokens.isEmpty() || limit < 1) {
+            return new ArrayList<>();
+        }
+        List<Set<Integer>> postings = new ArrayList<>(tokens.size());
+        for (String token : tokens) {
+            postings.add(titleIndex.get(TitleIndex.key(token)));
+        }
+        postings.sort(Comparator.comparingInt(Set::size));
+
+        // в куче лежит лучшая на данный момент страница, сверху — её худший элемент
+        PriorityQueue<ScoredMovie> best = new PriorityQueue<>(Math.min(limit, 64) + 1, ScoredMovie.ORDER.reversed());
+        for (Integer id : postings.get(0)) {
+            if (!containsAll(postings, id)) {
+                continue;
+            }
+            Movie movie = movies.get(id);
+            if (movie == null || movie.getYear() < yearFrom || movie.getYear() > yearTo) {
+                continue;
+            }
+            int score = TitleIndex.score(tokens, movie.getTitle());
+            if (score < 0) {
+                continue;
             }
+            best.add(new ScoredMovie(movie, score));
+            if (best.size() > limit) {
+                best.poll();
+            }
+        }
+        List<ScoredMovie> ranked = new ArrayList<>(best);
+        ranked.sort(ScoredMovie.ORDER);
+        List<Movie> result = new ArrayList<>(ranked.size());
+        for (ScoredMovie scored : ranked) {
+            result.add(scored.movie);
         }
         return result;
     }
 
     public void clear() {
+        mutationLock.writeLock().lock();
+        try {
+            if (log != null) {
+                log.appendClear();
+            }
+            reset();
+            changes.cleared();
+            yearVersions.touchedAll(version.get() + 1);
+            version.incrementAndGet();
+        } finally {
+            mutationLock.writeLock().unlock();
+        }
+        onMutations(1);
+    }
+
+    /**
+     * Сохраняет снимок хранилища и отбрасывает журнал, который в нём уже учтён.
+     * Запись снимка идёт параллельно с изменениями: журнал переключается на новый файл под блокировкой,
+     * а всё, что изменится после переключения, попадёт и в новый журнал, и, возможно, в снимок —
+     * проигрывание таких записей поверх снимка ничего не портит.
+     */
+    public void snapshot() throws IOException {
+        if (log == null) {
+            throw new IllegalStateException("Хранилище работает без журнала");
+        }
+        synchronized (snapshotMonitor) {
+            Path archive = dataDir.resolve(ARCHIVED_LOG_FILE);
+            int snapshotNextId;
+            mutationLock.writeLock().lock();
+            try {
+                // архив от неудавшегося снимка переиспользуется: текущее состояние всё равно его включает
+                if (!Files.exists(archive)) {
+                    log.rotate(archive);
+                }
+                snapshotNextId = nextId.get();
+                mutationsSinceSnapshot.set(0);
+            } finally {
+                mutationLock.writeLock().unlock();
+            }
+            SnapshotFile.write(dataDir.resolve(SNAPSHOT_FILE), snapshotNextId, movies);
+            Files.delete(archive);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (log == null) {
+            return;
+        }
+        snapshotExecutor.shutdown();
+        try {
+            snapshotExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            snapshot();
+        } finally {
+            log.close();
+        }
+    }
+
+    private void onMutations(int count) {
+        if (log == null || mutationsSinceSnapshot.addAndGet(count) < snapshotEvery
+                || !snapshotScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        snapshotExecutor.execute(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Не удалось сохранить снимок хранилища: " + e.getMessage());
+            } finally {
+                snapshotScheduled.set(false);
+            }
+        });
+    }
+
+    private Movie remove(int id) {
+        Movie removed = movies.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        titleIndex.remove(id, removed.getTitle());
+        if (jsonById != null) {
+            jsonById.remove(id);
+        }
+        return removed;
+    }
+
+    private void reset() {
         movies.clear();
-        nextId = 1;
+        titleIndex.clear();
+        if (jsonById != null) {
+            jsonById.clear();
+        }
+        nextId.set(1);
+    }
+
+    private void insert(Movie movie) {
+        if (jsonById != null) {
+            jsonById.put(movie.getId(), MovieJson.toBytes(movie));
+        }
+        movies.put(movie);
+        titleIndex.add(movie.getId(), movie.getTitle());
+    }
+
+    private void insertAll(List<Movie> added) {
+        if (jsonById != null) {
+            for (Movie movie : added) {
+                jsonById.put(movie.getId(), MovieJson.toBytes(movie));
+            }
+        }
+        movies.putAll(added);
+        for (Movie movie : added) {
+            titleIndex.add(movie.getId(), movie.getTitle());
+        }
+    }
+
+    // заменяемый фильм остаётся в таблице до вставки нового, из индекса уходит только прежнее название
+    private Movie forgetTitle(int id) {
+        Movie previous = movies.get(id);
+        if (previous != null) {
+            titleIndex.remove(id, previous.getTitle());
+        }
+        return previous;
+    }
+
+    // без сериализации: так восстанавливаются миллионы фильмов при запуске, JSON досчитает toJson
+    private void restore(Movie movie) {
+        if (jsonById != null) {
+            jsonById.remove(movie.getId());
+        }
+        movies.put(movie);
+        titleIndex.add(movie.getId(), movie.getTitle());
+    }
+
+    private static boolean containsAll(List<Set<Integer>> postings, Integer id) {
+        for (int i = 1; i < postings.size(); i++) {
+            if (!postings.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class ScoredMovie {
+        static final Comparator<ScoredMovie> ORDER = Comparator.<ScoredMovie>comparingInt(scored -> -scored.score)
+                .thenComparingInt(scored -> scored.movie.getTitle().length())
+                .thenComparingInt(scored -> scored.movie.getId());
+
+        final Movie movie;
+        final int score;
+
+        ScoredMovie(Movie movie, int score) {
+            this.movie = movie;
+            this.score = score;
+        }
+    }
+
+    private class LogReplay implements WriteAheadLog.Replay {
+        @Override
+        public void onAdd(int id, String title, int year) {
+            // фильм мог заменяться импортом; снимок и обычные добавления идут по возрастанию id,
+            // и для них лишний поиск не нужен
+            if (id < nextId.get()) {
+                forgetTitle(id);
+            }
+            restore(new Movie(id, title, year, version.incrementAndGet()));
+            nextId.accumulateAndGet(id + 1, Math::max);
+        }
+
+        @Override
+        public void onDelete(int id) {
+            remove(id);
+            version.incrementAndGet();
+        }
+
+        @Override
+        public void onClear() {
+            reset();
+            version.incrementAndGet();
+        }
     }
 }
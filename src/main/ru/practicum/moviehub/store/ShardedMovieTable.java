@@ -0,0 +1,391 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Таблица, разбитая на несколько независимых таблиц одной раскладки по хэшу id. У каждой части
+ * свои структуры и индекс по году, поэтому запись в разные части не конкурирует за одну блокировку.
+ * <p>
+ * Списки и выборки по году опрашивают все части и сливают их ответы в общий порядок. Если каждой части
+ * достаётся заметная доля работы, части опрашиваются параллельно в общем fork-join пуле; у очень больших
+ * выборок между потоками делится и слияние, по отрезкам ключей. Id выдаёт {@link MoviesStore} из одного счётчика, так что они уникальны
+ * во всех частях сразу.
+ */
+class ShardedMovieTable implements MovieTable {
+    // с этого размера выборки и слияние делится между потоками пула
+    static final int PARALLEL_LIMIT = 4096;
+    // сколько фильмов должна отдать каждая часть, чтобы опрос частей окупил раздачу задач пулу;
+    // страница API в 1000 фильмов набирает столько при числе частей до 16
+    static final int PARALLEL_SHARE = 128;
+
+    private final MovieTable[] shards;
+
+    ShardedMovieTable(StoreLayout layout, int shardCount) {
+        if (shardCount < 2) {
+            throw new IllegalArgumentException("Частей должно быть хотя бы две: " + shardCount);
+        }
+        this.shards = new MovieTable[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = layout.createTable();
+        }
+    }
+
+    @Override
+    public Movie get(int id) {
+        return shard(id).get(id);
+    }
+
+    @Override
+    public void put(Movie movie) {
+        shard(movie.getId()).put(movie);
+    }
+
+    /**
+     * Пакет раскладывается по частям с сохранением порядка, и каждая часть применяет свою долю целиком.
+     */
+    @Override
+    public void putAll(List<Movie> movies) {
+        List<List<Movie>> parts = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            parts.add(new ArrayList<>(movies.size() / shards.length + 1));
+        }
+        for (Movie movie : movies) {
+            parts.get(shardIndex(movie.getId())).add(movie);
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (!parts.get(i).isEmpty()) {
+                shards[i].putAll(parts.get(i));
+            }
+        }
+    }
+
+    @Override
+    public Movie remove(int id) {
+        return shard(id).remove(id);
+    }
+
+    @Override
+    public void clear() {
+        for (MovieTable shard : shards) {
+            shard.clear();
+        }
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (MovieTable shard : shards) {
+            size += shard.size();
+        }
+        return size;
+    }
+
+    @Override
+    public List<Movie> page(int afterId, int limit) {
+        return query(new Query() {
+            @Override
+            List<Movie> ask(MovieTable shard, long after, int limit) {
+                return shard.page((int) after, limit);
+            }
+
+            @Override
+            long key(Movie movie) {
+                return movie.getId();
+            }
+        }, afterId, limit);
+    }
+
+    @Override
+    public List<Movie> byYearRange(int from, int to, int afterYear, int afterId, int limit) {
+        return query(new Query() {
+            @Override
+            List<Movie> ask(MovieTable shard, long after, int limit) {
+                return shard.byYearRange(from, to, (int) (after >> 32), (int) after, limit);
+            }
+
+            @Override
+            long key(Movie movie) {
+                return yearKey(movie.getYear(), movie.getId());
+            }
+        }, yearKey(afterYear, afterId), limit);
+    }
+
+    /**
+     * Слияние обходов частей по возрастанию id: каждая часть отдаёт фильмы своими страницами.
+     */
+    @Override
+    public Iterator<Movie> iterator() {
+        PriorityQueue<Cursor> cursors = new PriorityQueue<>(shards.length,
+                (a, b) -> Integer.compare(a.head.getId(), b.head.getId()));
+        for (MovieTable shard : shards) {
+            Iterator<Movie> iterator = shard.iterator();
+            if (iterator.hasNext()) {
+                cursors.add(new Cursor(iterator));
+            }
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return !cursors.isEmpty();
+            }
+
+            @Override
+            public Movie next() {
+                Cursor cursor = cursors.poll();
+                if (cursor == null) {
+                    throw new NoSuchElementException();
+                }
+                Movie movie = cursor.head;
+                if (cursor.iterator.hasNext()) {
+                    cursor.head = cursor.iterator.next();
+                    cursors.add(cursor);
+                }
+                return movie;
+            }
+        };
+    }
+
+    int shardIndex(int id) {
+        // id выдаются подряд; перемешивание не даёт соседним id выстраиваться по частям в шаблон
+        int hash = id * 0x9E3779B9;
+        return Math.floorMod(hash ^ (hash >>> 16), shards.length);
+    }
+
+    private MovieTable shard(int id) {
+        return shards[shardIndex(id)];
+    }
+
+    private static long yearKey(int year, int id) {
+        return (long) year << 32 | (id & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Большая выборка целиком собирается в пуле (см. {@link #fetch}). Маленькая собирается в вызывающем
+     * потоке раундами: каждая часть отдаёт лишь долю {@code limit}, и после слияния окончательны только
+     * фильмы не дальше самого раннего последнего фильма среди частей, отдавших долю полностью, —
+     * у такой части могли остаться фильмы за ним. Id распределены по частям равномерно,
+     * так что обычно хватает одного раунда, а не {@code limit} фильмов с каждой части. Если доля части
+     * не меньше {@link #PARALLEL_SHARE}, части раунда опрашиваются параллельно.
+     */
+    private List<Movie> query(Query query, long after, int limit) {
+        if (limit >= PARALLEL_LIMIT) {
+            long from = after;
+            return ForkJoinPool.commonPool().invoke(ForkJoinTask.adapt(() -> fetch(query, from, limit)));
+        }
+        List<Movie> result = new ArrayList<>(Math.min(limit, 64));
+        while (result.size() < limit) {
+            int remaining = limit - result.size();
+            int share = Math.min(remaining, remaining / shards.length * 2 + 8);
+            List<Movie> round = List.of();
+            long bound = Long.MAX_VALUE;
+            for (List<Movie> part : askAll(query, after, share)) {
+                if (part.size() == share) {
+                    bound = Math.min(bound, query.key(part.get(share - 1)));
+                }
+                round = merge(query, round, part, remaining);
+            }
+            for (Movie movie : round) {
+                if (query.key(movie) > bound) {
+                    break;
+                }
+                result.add(movie);
+            }
+            if (bound == Long.MAX_VALUE) {
+                break;
+            }
+            after = bound;
+        }
+        return result;
+    }
+
+    private List<List<Movie>> askAll(Query query, long after, int share) {
+        List<List<Movie>> parts = new ArrayList<>(shards.length);
+        if (share < PARALLEL_SHARE) {
+            for (MovieTable shard : shards) {
+                parts.add(query.ask(shard, after, share));
+            }
+            return parts;
+        }
+        List<ForkJoinTask<List<Movie>>> asks = new ArrayList<>(shards.length);
+        for (MovieTable shard : shards) {
+            asks.add(ForkJoinTask.adapt(() -> query.ask(shard, after, share)));
+        }
+        // вне пула первая часть опрашивается в вызывающем потоке, остальные уходят в общий пул
+        for (ForkJoinTask<List<Movie>> ask : ForkJoinTask.invokeAll(asks)) {
+            parts.add(ask.join());
+        }
+        return parts;
+    }
+
+    private static List<Movie> merge(Query query, List<Movie> left, List<Movie> right, int limit) {
+        if (left.isEmpty()) {
+            return right;
+        }
+        if (right.isEmpty()) {
+            return left;
+        }
+        List<Movie> result = new ArrayList<>((int) Math.min(limit, (long) left.size() + right.size()));
+        int i = 0;
+        int j = 0;
+        long leftKey = query.key(left.get(0));
+        long rightKey = query.key(right.get(0));
+        while (result.size() < limit) {
+            if (leftKey < rightKey) {
+                result.add(left.get(i++));
+                leftKey = i < left.size() ? query.key(left.get(i)) : Long.MAX_VALUE;
+            } else if (j < right.size()) {
+                result.add(right.get(j++));
+                rightKey = j < right.size() ? query.key(right.get(j)) : Long.MAX_VALUE;
+            } else {
+                break;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Выборка из одной части и порядок, в котором сливаются ответы частей: позиция фильма сводится к числу.
+     */
+    private abstract static class Query implements Comparator<Movie> {
+        /**
+         * Не более {@code limit} фильмов части после позиции {@code after} в порядке выборки.
+         */
+        abstract List<Movie> ask(MovieTable shard, long after, int limit);
+
+        abstract long key(Movie movie);
+
+        @Override
+        public int compare(Movie left, Movie right) {
+            return Long.compare(key(left), key(right));
+        }
+    }
+
+    /**
+     * Параллельная выборка: части опрашиваются отдельными задачами, затем диапазон ключей делится
+     * на отрезки по квантилям самого длинного ответа, и каждый отрезок сливается своей задачей
+     * прямо на своё место в общем массиве. Место отрезка известно заранее: это число фильмов всех
+     * ответов до его начала. Вызывается задачей общего пула, так что подзадачи запускаются в нём же.
+     */
+    private List<Movie> fetch(Query query, long after, int limit) {
+        List<ForkJoinTask<List<Movie>>> asks = new ArrayList<>(shards.length);
+        for (MovieTable shard : shards) {
+            asks.add(ForkJoinTask.adapt(() -> query.ask(shard, after, limit)));
+        }
+        List<List<Movie>> parts = new ArrayList<>(shards.length);
+        List<Movie> longest = List.of();
+        long total = 0;
+        for (ForkJoinTask<List<Movie>> ask : ForkJoinTask.invokeAll(asks)) {
+            List<Movie> part = ask.join();
+            parts.add(part);
+            total += part.size();
+            if (part.size() > longest.size()) {
+                longest = part;
+            }
+        }
+        Movie[] result = new Movie[(int) Math.min(total, limit)];
+        int segments = total < PARALLEL_LIMIT ? 1 : shards.length;
+        // starts[s][p] — первый фильм ответа p, попадающий в отрезок s
+        int[][] starts = new int[segments + 1][parts.size()];
+        int[] offsets = new int[segments + 1];
+        for (int s = 1; s <= segments; s++) {
+            long split = s == segments ? Long.MAX_VALUE
+                    : query.key(longest.get((int) ((long) longest.size() * s / segments)));
+            for (int p = 0; p < parts.size(); p++) {
+                starts[s][p] = s == segments ? parts.get(p).size() : upperBound(query, parts.get(p), split);
+                offsets[s] += starts[s][p];
+            }
+        }
+        List<ForkJoinTask<?>> merges = new ArrayList<>(segments);
+        for (int s = 0; s < segments && offsets[s] < result.length; s++) {
+            int segment = s;
+            merges.add(ForkJoinTask.adapt(() -> mergeSegment(query, parts, starts[segment],
+                    starts[segment + 1], result, offsets[segment])));
+        }
+        ForkJoinTask.invokeAll(merges);
+        return Arrays.asList(result);
+    }
+
+    private static int upperBound(Query query, List<Movie> part, long key) {
+        int low = 0;
+        int high = part.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (query.key(part.get(middle)) <= key) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Сливает фильмы ответов с позиций [from[p], to[p]) в {@code result}, начиная с {@code offset}, пока
+     * хватает места.
+     * <p>
+     * Ключи отрезка обычно плотные: id выдаются подряд, а в пределах одного года ключ отличается только
+     * id. Тогда каждый фильм сразу кладётся в ячейку по разнице ключей, и остаётся выбросить пустые
+     * ячейки — без сравнений. Иначе отрезок складывается подряд и сортируется: сортировка массива
+     * находит упорядоченные ответы частей и сливает их сериями.
+     */
+    private static void mergeSegment(Query query, List<List<Movie>> parts, int[] from, int[] to,
+                                     Movie[] result, int offset) {
+        int size = 0;
+        long lowest = Long.MAX_VALUE;
+        long highest = Long.MIN_VALUE;
+        for (int p = 0; p < parts.size(); p++) {
+            if (from[p] < to[p]) {
+                size += to[p] - from[p];
+                lowest = Math.min(lowest, query.key(parts.get(p).get(from[p])));
+                highest = Math.max(highest, query.key(parts.get(p).get(to[p] - 1)));
+            }
+        }
+        // последний отрезок может не поместиться в limit: он сливается отдельно, и берётся его начало
+        Movie[] target = offset + size <= result.length ? result : new Movie[size];
+        int start = target == result ? offset : 0;
+        int position = start;
+        if (size > 0 && highest - lowest < 2L * size) {
+            Movie[] slots = new Movie[(int) (highest - lowest + 1)];
+            for (int p = 0; p < parts.size(); p++) {
+                for (Movie movie : parts.get(p).subList(from[p], to[p])) {
+                    slots[(int) (query.key(movie) - lowest)] = movie;
+                }
+            }
+            for (Movie movie : slots) {
+                if (movie != null) {
+                    target[position++] = movie;
+                }
+            }
+        } else {
+            for (int p = 0; p < parts.size(); p++) {
+                for (Movie movie : parts.get(p).subList(from[p], to[p])) {
+                    target[position++] = movie;
+                }
+            }
+            Arrays.sort(target, start, position, query);
+        }
+        if (target != result) {
+            System.arraycopy(target, 0, result, offset, result.length - offset);
+        }
+    }
+
+    private static final class Cursor {
+        private final Iterator<Movie> iterator;
+        private Movie head;
+
+        Cursor(Iterator<Movie> iterator) {
+            this.iterator = iterator;
+            this.head = iterator.next();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Таблица на неблокирующих skip-list структурах: чтение не берёт блокировок.
+ */
+class SkipListMovieTable implements MovieTable {
+    private final NavigableMap<Integer, Movie> movies = new ConcurrentSkipListMap<>();
+    // год -> id фильмов этого года; пустые корзины не удаляются, лет в каталоге немного
+    private final NavigableMap<Integer, NavigableSet<Integer>> idsByYear = new ConcurrentSkipListMap<>();
+
+    @Override
+    public Movie get(int id) {
+        return movies.get(id);
+    }
+
+    @Override
+    public void put(Movie movie) {
+        Movie previous = movies.put(movie.getId(), movie);
+        idsByYear.computeIfAbsent(movie.getYear(), y -> new ConcurrentSkipListSet<>()).add(movie.getId());
+        if (previous != null && previous.getYear() != movie.getYear()) {
+            NavigableSet<Integer> ids = idsByYear.get(previous.getYear());
+            if (ids != null) {
+                ids.remove(movie.getId());
+            }
+        }
+    }
+
+    @Override
+    public Movie remove(int id) {
+        Movie removed = movies.remove(id);
+        if (removed == null) {
+            return null;
+        }
+        NavigableSet<Integer> ids = idsByYear.get(removed.getYear());
+        if (ids != null) {
+            ids.remove(id);
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        movies.clear();
+        idsByYear.clear();
+    }
+
+    @Override
+    public int size() {
+        return movies.size();
+    }
+
+    @Override
+    public List<Movie> page(int afterId, int limit) {
+        List<Movie> result = new ArrayList<>(Math.min(limit, 64));
+        for (Movie movie : movies.tailMap(afterId, false).values()) {
+            if (result.size() >= limit) {
+                break;
+            }
+            result.add(movie);
+        }
+        return result;
+    }
+
+    @Override
+    public List<Movie> byYearRange(int from, int to, int afterYear, int afterId, int limit) {
+        List<Movie> result = new ArrayList<>(Math.min(limit, 64));
+        int start = Math.max(from, afterYear);
+        if (start > to) {
+            return result;
+        }
+        for (Map.Entry<Integer, NavigableSet<Integer>> bucket : idsByYear.subMap(start, true, to, true).entrySet()) {
+            NavigableSet<Integer> ids = bucket.getValue();
+            if (bucket.getKey() == afterYear) {
+                ids = ids.tailSet(afterId, false);
+            }
+            if (!collect(bucket.getKey(), ids, result, limit)) {
+                break;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Movie> iterator() {
+        return movies.values().iterator();
+    }
+
+    private boolean collect(int year, NavigableSet<Integer> ids, List<Movie> result, int limit) {
+        for (Integer id : ids) {
+            if (result.size() >= limit) {
+                return false;
+            }
+            // индекс обновляется после основной таблицы, поэтому удалённый фильм или фильм, сменивший год
+            // при замене, может ещё мелькнуть в прежней корзине
+            Movie movie = movies.get(id);
+            if (movie != null && movie.getYear() == year) {
+                result.add(movie);
+            }
+        }
+        return result.size() < limit;
+    }
+}
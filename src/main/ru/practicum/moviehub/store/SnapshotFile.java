@@ -0,0 +1,126 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Снимок таблицы фильмов в компактном двоичном формате.
+ * <p>
+ * Заголовок: сигнатура, версия формата, nextId. Затем записи (id, год, длина названия, UTF-8 название)
+ * и завершающая запись с id = 0, после неё — CRC32 всего предыдущего содержимого.
+ */
+final class SnapshotFile {
+    private static final int MAGIC = 0x4D56534E; // "MVSN"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private SnapshotFile() {
+    }
+
+    /**
+     * Пишет снимок во временный файл и атомарно подменяет им прежний. Когда метод вернулся, подмена
+     * уже на диске, и журнал, учтённый в снимке, можно удалять.
+     */
+    static void write(Path file, int nextId, Iterable<Movie> movies) throws IOException {
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            OutputStream raw = Channels.newOutputStream(channel);
+            DataOutputStream out = new DataOutputStream(
+                    new CheckedOutputStream(new BufferedOutputStream(raw, BUFFER_SIZE), crc));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeInt(nextId);
+            for (Movie movie : movies) {
+                byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+                out.writeInt(movie.getId());
+                out.writeInt(movie.getYear());
+                out.writeShort(title.length);
+                out.write(title);
+            }
+            out.writeInt(0);
+            out.flush();
+            // сама контрольная сумма в CRC не входит
+            DataOutputStream tail = new DataOutputStream(raw);
+            tail.writeInt((int) crc.getValue());
+            tail.flush();
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        forceDirectory(file.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Сбрасывает на диск сам каталог: без этого переименование может не пережить сбой, а удаление
+     * архива журнала после него — пережить. Где каталог нельзя открыть как файл (Windows), шаг пропускается.
+     */
+    private static void forceDirectory(Path dir) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(dir, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Читает снимок через отображение файла в память.
+     *
+     * @return nextId из снимка или 0, если снимка нет
+     */
+    static int load(Path file, WriteAheadLog.Replay replay) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Снимок слишком велик: " + size + " байт");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < HEADER_SIZE + 2 * Integer.BYTES
+                    || buffer.getInt(0) != MAGIC || buffer.getInt(Integer.BYTES) != FORMAT_VERSION) {
+                throw new IOException("Файл не является снимком хранилища: " + file);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(0, (int) size - Integer.BYTES));
+            if ((int) crc.getValue() != buffer.getInt((int) size - Integer.BYTES)) {
+                throw new IOException("Контрольная сумма снимка не совпадает: " + file);
+            }
+
+            buffer.position(2 * Integer.BYTES);
+            int nextId = buffer.getInt();
+            byte[] title = new byte[0xFFFF];
+            while (true) {
+                int id = buffer.getInt();
+                if (id == 0) {
+                    break;
+                }
+                int year = buffer.getInt();
+                int length = Short.toUnsignedInt(buffer.getShort());
+                buffer.get(title, 0, length);
+                replay.onAdd(id, new String(title, 0, length, StandardCharsets.UTF_8), year);
+            }
+            return nextId;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Таблица копирования при записи: все фильмы и индекс по году лежат в неизменяемом снимке, который
+ * публикуется через volatile-ссылку. Чтение — одно чтение этой ссылки, без блокировок, а выборки
+ * возвращают представления поверх снимка без копирования. Запись строит новый снимок, заменяя
+ * только затронутые блоки (см. {@link MovieRun}), и сериализуется монитором таблицы.
+ */
+class SnapshotMovieTable implements MovieTable {
+    private volatile Snapshot snapshot = Snapshot.EMPTY;
+
+    @Override
+    public Movie get(int id) {
+        return snapshot.all.find(id);
+    }
+
+    @Override
+    public synchronized void put(Movie movie) {
+        Snapshot current = snapshot;
+        Movie previous = current.all.find(movie.getId());
+        Snapshot next = current;
+        if (previous != null && previous.getYear() != movie.getYear()) {
+            next = next.withYear(previous.getYear(), next.year(previous.getYear()).without(previous.getId()));
+        }
+        snapshot = next.withAll(next.all.with(movie))
+                .withYear(movie.getYear(), next.year(movie.getYear()).with(movie));
+    }
+
+    /**
+     * Пакет публикуется одним снимком; фильмы с новыми возрастающими id дописываются блоками целиком.
+     */
+    @Override
+    public synchronized void putAll(List<Movie> movies) {
+        Movie last = snapshot.all.last();
+        int previousId = last == null ? Integer.MIN_VALUE : last.getId();
+        for (Movie movie : movies) {
+            if (movie.getId() <= previousId) {
+                for (Movie each : movies) {
+                    put(each);
+                }
+                return;
+            }
+            previousId = movie.getId();
+        }
+        Snapshot next = snapshot.withAll(snapshot.all.withAll(movies));
+        int from = 0;
+        List<Movie> byYear = new ArrayList<>(movies);
+        byYear.sort((a, b) -> a.getYear() != b.getYear()
+                ? Integer.compare(a.getYear(), b.getYear())
+                : Integer.compare(a.getId(), b.getId()));
+        for (int i = 1; i <= byYear.size(); i++) {
+            if (i == byYear.size() || byYear.get(i).getYear() != byYear.get(from).getYear()) {
+                int year = byYear.get(from).getYear();
+                next = next.withYear(year, next.year(year).withAll(byYear.subList(from, i)));
+                from = i;
+            }
+        }
+        snapshot = next;
+    }
+
+    @Override
+    public synchronized Movie remove(int id) {
+        Snapshot current = snapshot;
+        Movie removed = current.all.find(id);
+        if (removed == null) {
+            return null;
+        }
+        snapshot = current.withAll(current.all.without(id))
+                .withYear(removed.getYear(), current.year(removed.getYear()).without(id));
+        return removed;
+    }
+
+    @Override
+    public synchronized void clear() {
+        snapshot = Snapshot.EMPTY;
+    }
+
+    @Override
+    public int size() {
+        return snapshot.all.size();
+    }
+
+    @Override
+    public List<Movie> page(int afterId, int limit) {
+        MovieRun all = snapshot.all;
+        int from = all.upperBound(afterId);
+        return all.slice(from, (int) Math.min(all.size(), (long) from + limit));
+    }
+
+    @Override
+    public List<Movie> byYearRange(int from, int to, int afterYear, int afterId, int limit) {
+        Snapshot current = snapshot;
+        int start = Math.max(from, afterYear);
+        List<List<Movie>> parts = new ArrayList<>();
+        int remaining = limit;
+        int index = Arrays.binarySearch(current.years, start);
+        for (int i = index >= 0 ? index : -index - 1; i < current.years.length && current.years[i] <= to; i++) {
+            if (remaining == 0) {
+                break;
+            }
+            MovieRun run = current.byYear[i];
+            int first = current.years[i] == afterYear ? run.upperBound(afterId) : 0;
+            int last = (int) Math.min(run.size(), (long) first + remaining);
+            if (last > first) {
+                parts.add(run.slice(first, last));
+                remaining -= last - first;
+            }
+        }
+        if (parts.size() == 1) {
+            return parts.get(0);
+        }
+        return new Concatenation(parts, limit - remaining);
+    }
+
+    @Override
+    public Iterator<Movie> iterator() {
+        MovieRun all = snapshot.all;
+        return all.slice(0, all.size()).iterator();
+    }
+
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(MovieRun.EMPTY, new int[0], new MovieRun[0]);
+
+        final MovieRun all;
+        // годы по возрастанию и фильмы каждого года по id
+        final int[] years;
+        final MovieRun[] byYear;
+
+        Snapshot(MovieRun all, int[] years, MovieRun[] byYear) {
+            this.all = all;
+            this.years = years;
+            this.byYear = byYear;
+        }
+
+        MovieRun year(int year) {
+            int index = Arrays.binarySearch(years, year);
+            return index >= 0 ? byYear[index] : MovieRun.EMPTY;
+        }
+
+        Snapshot withAll(MovieRun all) {
+            return new Snapshot(all, years, byYear);
+        }
+
+        Snapshot withYear(int year, MovieRun run) {
+            int index = Arrays.binarySearch(years, year);
+            if (index >= 0 && run.size() > 0) {
+                MovieRun[] runs = byYear.clone();
+                runs[index] = run;
+                return new Snapshot(all, years, runs);
+            }
+            if (index >= 0) {
+                int[] newYears = new int[years.length - 1];
+                MovieRun[] runs = new MovieRun[byYear.length - 1];
+                System.arraycopy(years, 0, newYears, 0, index);
+                System.arraycopy(years, index + 1, newYears, index, newYears.length - index);
+                System.arraycopy(byYear, 0, runs, 0, index);
+                System.arraycopy(byYear, index + 1, runs, index, runs.length - index);
+                return new Snapshot(all, newYears, runs);
+            }
+            if (run.size() == 0) {
+                return this;
+            }
+            int position = -index - 1;
+            int[] newYears = new int[years.length + 1];
+            MovieRun[] runs = new MovieRun[byYear.length + 1];
+            System.arraycopy(years, 0, newYears, 0, position);
+            System.arraycopy(years, position, newYears, position + 1, years.length - position);
+            System.arraycopy(byYear, 0, runs, 0, position);
+            System.arraycopy(byYear, position, runs, position + 1, byYear.length - position);
+            newYears[position] = year;
+            runs[position] = run;
+            return new Snapshot(all, newYears, runs);
+        }
+    }
+
+    /**
+     * Несколько выборок по годам подряд, как один список.
+     */
+    private static class Concatenation extends AbstractList<Movie> implements RandomAccess {
+        private final List<List<Movie>> parts;
+        private final int size;
+
+        Concatenation(List<List<Movie>> parts, int size) {
+            this.parts = parts;
+            this.size = size;
+        }
+
+        @Override
+        public Movie get(int index) {
+            if (index < 0 || index >= size) {
+                throw new IndexOutOfBoundsException(index);
+            }
+            for (List<Movie> part : parts) {
+                if (index < part.size()) {
+                    return part.get(index);
+                }
+                index -= part.size();
+            }
+            throw new IndexOutOfBoundsException(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.moviehub.store;
+
+/**
+ * Способ хранения фильмов в памяти.
+ */
+public enum StoreLayout {
+    /**
+     * Объекты {@link ru.practicum.moviehub.model.Movie} в неблокирующих skip-list структурах
+     * и кэш готового JSON каждого фильма: быстрее всего на чтение.
+     */
+    OBJECTS,
+    /**
+     * Примитивные массивы и общий буфер названий: примерно в 5 раз меньше памяти на фильм (~60 байт
+     * против ~300), JSON и объекты фильмов создаются при чтении. Удаление и вставка не в конец сдвигают
+     * массивы и стоят O(n), так что раскладка рассчитана на каталоги, куда в основном добавляют.
+     */
+    COLUMNAR,
+    /**
+     * Неизменяемый снимок, упорядоченный по id, публикуется через volatile-ссылку: списки и выборки
+     * по году отдаются без копирования и блокировок ценой более дорогой записи.
+     */
+    SNAPSHOT;
+
+    MovieTable createTable() {
+        switch (this) {
+            case COLUMNAR:
+                return new ColumnarMovieTable();
+            case SNAPSHOT:
+                return new SnapshotMovieTable();
+            default:
+                return new SkipListMovieTable();
+        }
+    }
+
+    /**
+     * Таблица этой раскладки, разбитая на {@code shards} частей по id; при одной части — обычная таблица.
+     */
+    MovieTable createTable(int shards) {
+        if (shards < 1) {
+            throw new IllegalArgumentException("Число частей должно быть положительным: " + shards);
+        }
+        return shards == 1 ? createTable() : new ShardedMovieTable(this, shards);
+    }
+
+    /**
+     * Держит ли хранилище при такой раскладке готовый JSON каждого фильма.
+     */
+    boolean cachesJson() {
+        return this != COLUMNAR;
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.moviehub.store;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Инвертированный индекс названий: нормализованный префикс слова -> id фильмов.
+ * <p>
+ * Индексируются префиксы длиной от {@value #MIN_PREFIX} до {@value #MAX_PREFIX} символов и однобуквенные слова
+ * целиком; более длинные запросы ищутся по усечённому префиксу и дофильтровываются при ранжировании.
+ */
+class TitleIndex {
+    static final int MIN_PREFIX = 2;
+    static final int MAX_PREFIX = 10;
+
+    private final Map<String, Set<Integer>> idsByPrefix = new ConcurrentHashMap<>();
+
+    /**
+     * Слова названия в нижнем регистре, «ё» приравнена к «е»; разделитель — всё, кроме букв и цифр.
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Ключ индекса, по которому ищется слово запроса.
+     */
+    static String key(String token) {
+        return token.length() > MAX_PREFIX ? token.substring(0, MAX_PREFIX) : token;
+    }
+
+    void add(int id, String title) {
+        for (String key : keys(title)) {
+            idsByPrefix.compute(key, (k, ids) -> {
+                Set<Integer> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                result.add(id);
+                return result;
+            });
+        }
+    }
+
+    void remove(int id, String title) {
+        for (String key : keys(title)) {
+            idsByPrefix.computeIfPresent(key, (k, ids) -> {
+                ids.remove(id);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    void clear() {
+        idsByPrefix.clear();
+    }
+
+    /**
+     * @return id фильмов с этим ключом; пустое множество, если таких нет
+     */
+    Set<Integer> get(String key) {
+        Set<Integer> ids = idsByPrefix.get(key);
+        return ids != null ? ids : Set.of();
+    }
+
+    /**
+     * Оценка совпадения названия с запросом: за каждое слово запроса 3 балла, если в названии есть такое же
+     * слово, и 2 — если есть слово, которое с него начинается; совпадение всего названия даёт ещё 10,
+     * совпадение первого слова — ещё 1.
+     *
+     * @return оценка или -1, если какое-то слово запроса в названии не нашлось
+     */
+    static int score(List<String> queryTokens, String title) {
+        List<String> titleTokens = tokenize(title);
+        int score = 0;
+        for (String queryToken : queryTokens) {
+            int best = 0;
+            for (String titleToken : titleTokens) {
+                if (titleToken.equals(queryToken)) {
+                    best = 3;
+                    break;
+                }
+                if (queryToken.length() >= MIN_PREFIX && titleToken.startsWith(queryToken)) {
+                    best = 2;
+                }
+            }
+            if (best == 0) {
+                return -1;
+            }
+            score += best;
+        }
+        if (titleTokens.equals(queryTokens)) {
+            score += 10;
+        }
+        if (!titleTokens.isEmpty() && titleTokens.get(0).startsWith(queryTokens.get(0))) {
+            score += 1;
+        }
+        return score;
+    }
+
+    private static Set<String> keys(String title) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String token : tokenize(title)) {
+            if (token.length() < MIN_PREFIX) {
+                keys.add(token);
+                continue;
+            }
+            for (int length = MIN_PREFIX; length <= Math.min(token.length(), MAX_PREFIX); length++) {
+                keys.add(token.substring(0, length));
+            }
+        }
+        return keys;
+    }
+}
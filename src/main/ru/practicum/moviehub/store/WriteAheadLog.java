@@ -0,0 +1,325 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.zip.CRC32;
+
+/**
+ * Журнал изменений хранилища. Записи от разных потоков копятся в очереди, отдельный поток пишет
+ * накопившуюся пачку одним вызовом и делает один fsync на всех (group commit).
+ * <p>
+ * Формат записи: длина тела (int), тело (тип операции и данные), CRC32 тела (int).
+ * Недописанный или повреждённый хвост при восстановлении отбрасывается.
+ * <p>
+ * Если пачку записать не удалось, файл обрезается до её начала, чтобы следующие пачки не легли за
+ * недописанную запись: восстановление остановилось бы на ней и потеряло их. Если не удалось и это,
+ * журнал считается сломанным и отклоняет все дальнейшие записи.
+ */
+class WriteAheadLog implements Closeable {
+    private static final byte OP_ADD = 1;
+    private static final byte OP_DELETE = 2;
+    private static final byte OP_CLEAR = 3;
+    private static final PendingWrite SHUTDOWN = new PendingWrite(new byte[0]);
+
+    private final Path file;
+    private volatile FileChannel channel;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    // проверка closed и постановка в очередь атомарны относительно close: запись, попавшая в очередь
+    // после SHUTDOWN, так и ждала бы завершившийся поток сброса
+    private boolean closed;
+    // пишет и читает только поток сброса
+    private IOException failure;
+
+    WriteAheadLog(Path file, FileChannel channel) {
+        this.file = file;
+        this.channel = channel;
+        this.flusher = new Thread(this::flushLoop, "movies-wal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Проигрывает журнал и открывает его на дозапись, отрезав повреждённый хвост.
+     */
+    static WriteAheadLog open(Path file, Replay replay) throws IOException {
+        long validLength = replay(file, replay);
+        FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ);
+        channel.truncate(validLength);
+        channel.position(validLength);
+        return new WriteAheadLog(file, channel);
+    }
+
+    /**
+     * @return длина корректной части журнала в байтах
+     */
+    static long replay(Path file, Replay replay) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        long valid = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            while (true) {
+                byte[] body = readRecord(in);
+                if (body == null) {
+                    break;
+                }
+                apply(body, replay);
+                valid += Integer.BYTES + body.length + Integer.BYTES;
+            }
+        }
+        return valid;
+    }
+
+    void appendAdd(Movie movie) {
+        await(submit(encodeAdd(movie)));
+    }
+
+    void appendAddAll(List<Movie> movies) {
+        ByteArrayOutputStream records = new ByteArrayOutputStream(movies.size() * 48);
+        for (Movie movie : movies) {
+            records.writeBytes(encodeAdd(movie));
+        }
+        await(submit(records.toByteArray()));
+    }
+
+    void appendDelete(int id) {
+        await(submit(encode(OP_DELETE, out -> out.writeInt(id))));
+    }
+
+    void appendClear() {
+        await(submit(encode(OP_CLEAR, out -> {
+        })));
+    }
+
+    /**
+     * Переносит текущий журнал в {@code archive} и начинает новый пустой файл.
+     * Вызывающий гарантирует, что незавершённых записей в этот момент нет.
+     */
+    void rotate(Path archive) throws IOException {
+        FileChannel current = channel;
+        current.force(false);
+        current.close();
+        Files.move(file, archive, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(SHUTDOWN);
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        channel.close();
+    }
+
+    private PendingWrite submit(byte[] records) {
+        PendingWrite write = new PendingWrite(records);
+        synchronized (queue) {
+            if (closed) {
+                throw new IllegalStateException("Журнал закрыт");
+            }
+            queue.add(write);
+        }
+        return write;
+    }
+
+    private void await(PendingWrite write) {
+        try {
+            write.done.join();
+        } catch (CompletionException e) {
+            throw new UncheckedIOException("Не удалось записать журнал", (IOException) e.getCause());
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingWrite> group = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            // всё, что накопилось, пока шёл предыдущий fsync, уходит одной пачкой
+            queue.drainTo(group);
+            int size = 0;
+            for (PendingWrite write : group) {
+                if (write == SHUTDOWN) {
+                    running = false;
+                }
+                size += write.records.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            for (PendingWrite write : group) {
+                buffer.put(write.records);
+            }
+            buffer.flip();
+            FileChannel target = channel;
+            long start = -1;
+            try {
+                if (failure != null) {
+                    throw failure;
+                }
+                start = target.position();
+                while (buffer.hasRemaining()) {
+                    target.write(buffer);
+                }
+                target.force(false);
+                for (PendingWrite write : group) {
+                    write.done.complete(null);
+                }
+            } catch (IOException e) {
+                if (failure == null) {
+                    rollBack(target, start, e);
+                }
+                for (PendingWrite write : group) {
+                    write.done.completeExceptionally(e);
+                }
+            }
+            group.clear();
+        }
+    }
+
+    /**
+     * Отрезает то, что успело попасть в файл из неудавшейся пачки, и возвращает позицию на её начало.
+     */
+    private void rollBack(FileChannel target, long start, IOException cause) {
+        try {
+            if (start < 0) {
+                throw new IOException("Позиция журнала неизвестна");
+            }
+            target.truncate(start);
+            target.position(start);
+        } catch (IOException e) {
+            failure = new IOException("Журнал повреждён после сбоя записи", cause);
+            failure.addSuppressed(e);
+        }
+    }
+
+    private static byte[] encodeAdd(Movie movie) {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        return encode(OP_ADD, out -> {
+            out.writeInt(movie.getId());
+            out.writeInt(movie.getYear());
+            out.writeInt(title.length);
+            out.write(title);
+        });
+    }
+
+    private static byte[] encode(byte op, BodyWriter payload) {
+        try {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(32);
+            DataOutputStream bodyOut = new DataOutputStream(body);
+            bodyOut.writeByte(op);
+            payload.write(bodyOut);
+            byte[] bytes = body.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+
+            ByteArrayOutputStream record = new ByteArrayOutputStream(bytes.length + 2 * Integer.BYTES);
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+            out.writeInt((int) crc.getValue());
+            return record.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readRecord(DataInputStream in) throws IOException {
+        try {
+            int length = in.readInt();
+            if (length <= 0) {
+                return null;
+            }
+            // длина из повреждённой записи может быть любой, поэтому читаем не больше, чем есть в файле
+            byte[] body = in.readNBytes(length);
+            if (body.length != length) {
+                return null;
+            }
+            int expected = in.readInt();
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            return (int) crc.getValue() == expected ? body : null;
+        } catch (EOFException e) {
+            return null;
+        }
+    }
+
+    private static void apply(byte[] body, Replay replay) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+        byte op = in.readByte();
+        switch (op) {
+            case OP_ADD: {
+                int id = in.readInt();
+                int year = in.readInt();
+                byte[] title = in.readNBytes(in.readInt());
+                replay.onAdd(id, new String(title, StandardCharsets.UTF_8), year);
+                return;
+            }
+            case OP_DELETE:
+                replay.onDelete(in.readInt());
+                return;
+            case OP_CLEAR:
+                replay.onClear();
+                return;
+            default:
+                throw new IOException("Неизвестный тип записи журнала: " + op);
+        }
+    }
+
+    interface Replay {
+        void onAdd(int id, String title, int year);
+
+        void onDelete(int id);
+
+        void onClear();
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    private static class PendingWrite {
+        final byte[] records;
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        PendingWrite(byte[] records) {
+            this.records = records;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Для каждого года — версия хранилища, начиная с которой видно последнее изменение фильмов этого года.
+ * По ней можно понять, устарела ли выборка по нескольким годам, не сбрасывая выборки по остальным.
+ */
+class YearVersions {
+    private final NavigableMap<Integer, Long> byYear = new ConcurrentSkipListMap<>();
+    // затрагивает все годы: очистка хранилища
+    private final AtomicLong everyYear = new AtomicLong();
+    private final AtomicLong latest = new AtomicLong();
+
+    void touched(int year, long version) {
+        byYear.merge(year, version, Math::max);
+        latest.accumulateAndGet(version, Math::max);
+    }
+
+    void touched(Iterable<Movie> movies, long version) {
+        boolean first = true;
+        int previousYear = 0;
+        for (Movie movie : movies) {
+            // один и тот же год подряд не трогает карту повторно
+            if (first || previousYear != movie.getYear()) {
+                touched(movie.getYear(), version);
+                previousYear = movie.getYear();
+                first = false;
+            }
+        }
+    }
+
+    void touchedAll(long version) {
+        everyYear.accumulateAndGet(version, Math::max);
+        latest.accumulateAndGet(version, Math::max);
+    }
+
+    long get(int from, int to) {
+        if (from == Integer.MIN_VALUE && to == Integer.MAX_VALUE) {
+            return latest.get();
+        }
+        long result = everyYear.get();
+        for (long version : byYear.subMap(from, true, to, true).values()) {
+            result = Math.max(result, version);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,184 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdmissionTest {
+
+    @Test
+    void bulkhead_rejectsWhenConcurrencyAndQueueAreFull() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, 1, 5_000);
+        assertTrue(bulkhead.tryEnter());
+
+        ExecutorService pool = Executors.newFixedThreadPool(1);
+        try {
+            Future<Boolean> queued = pool.submit(bulkhead::tryEnter);
+            while (bulkhead.getQueued() == 0) {
+                Thread.sleep(1);
+            }
+            assertFalse(bulkhead.tryEnter(), "очередь из одного места уже занята");
+
+            bulkhead.exit();
+            assertTrue(queued.get(), "ждущий запрос должен пройти, когда место освободится");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void defaults_sizeSubscriberLimitByServerThreads() {
+        Bulkhead virtual = AdmissionConfig.defaults(ServerConfig.virtualThreads())
+                .createBulkhead("GET", "/movies/changes");
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(virtual.tryEnter(), "на виртуальных потоках подписчик не занимает поток пула");
+        }
+
+        Bulkhead pooled = AdmissionConfig.defaults(ServerConfig.fixedPool(8)).createBulkhead("GET", "/movies/changes");
+        for (int i = 0; i < 4; i++) {
+            assertTrue(pooled.tryEnter());
+        }
+        assertFalse(pooled.tryEnter(), "в пуле подписчикам отдаётся не больше половины потоков");
+    }
+
+    @Test
+    void rateLimiter_allowsBurstThenAsksToWait() throws Exception {
+        RateLimiter limiter = new RateLimiter(1, 2);
+        InetAddress client = InetAddress.getByName("10.0.0.1");
+
+        assertEquals(0, limiter.tryAcquire(client));
+        assertEquals(0, limiter.tryAcquire(client));
+        assertTrue(limiter.tryAcquire(client) > 0);
+        assertEquals(0, limiter.tryAcquire(InetAddress.getByName("10.0.0.2")), "у другого клиента свой лимит");
+    }
+
+    @Test
+    void rateLimiter_manyClients_forgetsLeastRecentlySeen() throws Exception {
+        RateLimiter limiter = new RateLimiter(0.01, 1);
+        InetAddress active = InetAddress.getByName("10.0.0.1");
+        assertEquals(0, limiter.tryAcquire(active));
+
+        for (int i = 0; i < 20_000; i++) {
+            limiter.tryAcquire(InetAddress.getByAddress(new byte[]{10, 1, (byte) (i >> 8), (byte) i}));
+            if (i % 1000 == 0) {
+                assertTrue(limiter.tryAcquire(active) > 0, "активный клиент остаётся под лимитом");
+            }
+        }
+
+        assertEquals(10_000, limiter.size(), "число отслеживаемых адресов ограничено");
+        assertTrue(limiter.tryAcquire(active) > 0, "недавно активный клиент не вытеснен");
+    }
+
+    @Test
+    void insertCoalescer_concurrentAddsGetUniqueIds() throws Exception {
+        MoviesStore store = new MoviesStore();
+        InsertCoalescer inserts = new InsertCoalescer(store);
+        int threads = 8;
+        int perThread = 500;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Set<Integer> ids = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Movie movie = inserts.add("Movie " + thread + "-" + i, 2000);
+                    assertEquals("Movie " + thread + "-" + i, movie.getTitle());
+                    ids.add(movie.getId());
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+
+        assertEquals(threads * perThread, ids.size());
+        assertEquals(threads * perThread, store.size());
+    }
+
+    @Test
+    void insertCoalescer_errorInBatch_failsEveryWaitingAdd() throws Exception {
+        MoviesStore store = new MoviesStore() {
+            @Override
+            public List<Movie> addAll(List<MovieDraft> drafts) {
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new OutOfMemoryError("нет памяти");
+            }
+        };
+        InsertCoalescer inserts = new InsertCoalescer(store);
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Throwable>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                try {
+                    inserts.add("Movie", 2000);
+                    return null;
+                } catch (Throwable e) {
+                    return e;
+                }
+            }));
+        }
+        start.countDown();
+        try {
+            for (Future<Throwable> future : futures) {
+                assertTrue(future.get(5, TimeUnit.SECONDS) instanceof OutOfMemoryError,
+                        "ошибка пакета должна дойти до каждого ждущего запроса");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void server_overRateLimit_returns429WithRetryAfter() throws Exception {
+        MoviesServer server = new MoviesServer(new MoviesStore(), 0, ServerConfig.fixedPool(2),
+                AdmissionConfig.unlimited().withRateLimit(0.01, 1));
+        server.start();
+        try (HttpClient client = HttpClient.newHttpClient()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                    .GET()
+                    .uri(URI.create("http://localhost:" + server.getPort() + "/movies"))
+                    .build();
+
+            assertEquals(200, client.send(request, HttpResponse.BodyHandlers.ofString()).statusCode());
+            HttpResponse<String> limited = client.send(request, HttpResponse.BodyHandlers.ofString());
+
+            assertEquals(429, limited.statusCode());
+            assertTrue(Long.parseLong(limited.headers().firstValue("Retry-After").orElse("0")) >= 1);
+        } finally {
+            server.stop();
+        }
+    }
+}
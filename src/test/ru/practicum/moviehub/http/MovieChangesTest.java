@@ -0,0 +1,130 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovieChangesTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @Test
+    void longPoll_returnsEventsAfterSince() throws Exception {
+        MoviesStore store = new MoviesStore();
+        MoviesServer server = start(store);
+        try {
+            int id = store.add("Alien", 1979).getId();
+            store.add("Aliens", 1986);
+            store.deleteById(id);
+
+            HttpResponse<String> response = get(server, "/movies/changes?since=1&wait=0", null);
+
+            assertEquals(200, response.statusCode());
+            assertEquals("3", response.headers().firstValue("X-Last-Seq").orElse(null));
+            assertEquals("[{\"seq\":2,\"type\":\"added\",\"movie\":{\"id\":2,\"title\":\"Aliens\",\"year\":1986}},"
+                    + "{\"seq\":3,\"type\":\"deleted\",\"id\":1}]", response.body());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void longPoll_waitsForNextChange() throws Exception {
+        MoviesStore store = new MoviesStore();
+        MoviesServer server = start(store);
+        try {
+            CompletableFuture<HttpResponse<String>> pending = CLIENT.sendAsync(
+                    request(server, "/movies/changes?wait=30", null).build(),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            Thread.sleep(200);
+            assertFalse(pending.isDone(), "без изменений запрос ждёт");
+
+            store.add("Alien", 1979);
+
+            HttpResponse<String> response = pending.get(10, TimeUnit.SECONDS);
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().contains("\"title\":\"Alien\""));
+            assertEquals("1", response.headers().firstValue("X-Last-Seq").orElse(null));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void longPoll_unknownSince_requiresResync() throws Exception {
+        MoviesStore store = new MoviesStore();
+        MoviesServer server = start(store);
+        try {
+            store.add("Alien", 1979);
+
+            HttpResponse<String> response = get(server, "/movies/changes?since=100&wait=0", null);
+
+            assertEquals(410, response.statusCode());
+            assertEquals("1", response.headers().firstValue("X-Last-Seq").orElse(null));
+            assertTrue(response.body().contains("Требуется полная синхронизация"));
+            assertEquals(400, get(server, "/movies/changes?since=-1", null).statusCode());
+            assertEquals(400, get(server, "/movies/changes?wait=3600", null).statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void eventStream_sendsEventsAsTheyHappen() throws Exception {
+        MoviesStore store = new MoviesStore();
+        MoviesServer server = start(store);
+        try {
+            store.add("Alien", 1979);
+            HttpResponse<InputStream> response = CLIENT.send(
+                    request(server, "/movies/changes?wait=10", "text/event-stream")
+                            .header("Last-Event-ID", "0").build(),
+                    HttpResponse.BodyHandlers.ofInputStream());
+            assertEquals(200, response.statusCode());
+            assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/event-stream"));
+
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+                assertEquals("id: 1", reader.readLine());
+                assertEquals("event: added", reader.readLine());
+                assertTrue(reader.readLine().startsWith("data: {\"seq\":1,"));
+                assertEquals("", reader.readLine());
+
+                store.deleteById(1);
+
+                assertEquals("id: 2", reader.readLine());
+                assertEquals("event: deleted", reader.readLine());
+                assertEquals("data: {\"seq\":2,\"type\":\"deleted\",\"id\":1}", reader.readLine());
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static MoviesServer start(MoviesStore store) {
+        MoviesServer server = new MoviesServer(store, 0, ServerConfig.fixedPool(4), AdmissionConfig.unlimited());
+        server.start();
+        return server;
+    }
+
+    private static HttpRequest.Builder request(MoviesServer server, String path, String accept) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path));
+        return accept == null ? builder.GET() : builder.header("Accept", accept).GET();
+    }
+
+    private static HttpResponse<String> get(MoviesServer server, String path, String accept) throws Exception {
+        return CLIENT.send(request(server, path, accept).build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+}
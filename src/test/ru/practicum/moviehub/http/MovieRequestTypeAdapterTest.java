@@ -0,0 +1,59 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MovieRequestTypeAdapterTest {
+    private static final Gson REFLECTIVE = new Gson();
+
+    @Test
+    void read_acceptsAndRejectsTheSameBodiesAsGson() {
+        List<String> bodies = List.of(
+                "{\"title\":\"Inception\",\"year\":2010}",
+                "  {\"year\":2010,\"title\":\"Inception\",\"rating\":{\"imdb\":8.8}}  ",
+                "{title:'Inception',year:'2010'}",
+                "{\"title\":123,\"year\":2010.0}",
+                "{\"title\":true,\"year\":null}",
+                "{\"title\":\"A\",\"title\":\"B\",\"year\":1}",
+                "{}",
+                "null",
+                "",
+                "   ",
+                "[]",
+                "\"Inception\"",
+                "{\"title\":\"Inception\",\"year\":2010.5}",
+                "{\"title\":\"Inception\",\"year\":\"soon\"}",
+                "{\"title\":{},\"year\":2010}",
+                "{\"title\":\"Inception\",\"year\":2010} {}",
+                "{\"title\":\"Inception\",\"year\":2010",
+                "{\"title\":\"Inception\" \"year\":2010}",
+                "{\"title\":\"Кино\",\"year\":2010}");
+        for (String body : bodies) {
+            assertEquals(describe(() -> REFLECTIVE.fromJson(body, MovieRequest.class)),
+                    describe(() -> MovieRequestTypeAdapter.read(
+                            new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)))),
+                    body);
+        }
+    }
+
+    // обработчик различает только «разобрано», «null» и «ошибка», поэтому сравниваются они
+    private static String describe(Parse parse) {
+        try {
+            MovieRequest request = parse.run();
+            return request == null ? "некорректный JSON" : request.title + "/" + request.year;
+        } catch (Exception e) {
+            return "некорректный JSON";
+        }
+    }
+
+    @FunctionalInterface
+    private interface Parse {
+        MovieRequest run() throws Exception;
+    }
+}
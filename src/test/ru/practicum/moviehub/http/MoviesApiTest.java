@@ -7,9 +7,12 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import ru.practicum.moviehub.model.Movie;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.api.BatchItemResult;
 import ru.practicum.moviehub.api.ErrorResponse;
 
+import java.io.ByteArrayInputStream;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
@@ -17,8 +20,12 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.Year;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -154,6 +161,51 @@ public class MoviesApiTest {
         assertErrorMessage(resp, "Некорректный JSON");
     }
 
+    @Test
+    void postMoviesBatch_insertsValidItemsAndReportsFailures() throws Exception {
+        String json = "[{\"title\":\"Alien\",\"year\":1979},{\"title\":\"\",\"year\":1979},"
+                + "{\"title\":\"Aliens\",\"year\":1986}]";
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .uri(URI.create(BASE + "/movies/batch"))
+                .header("Content-Type", "application/json")
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        assertContentType(resp);
+        BatchItemResult[] results = GSON.fromJson(resp.body(), BatchItemResult[].class);
+        assertEquals(3, results.length);
+        assertEquals(201, results[0].getStatus());
+        assertEquals("Alien", results[0].getMovie().getTitle());
+        assertEquals(422, results[1].getStatus());
+        assertTrue(results[1].getDetails().contains("название не должно быть пустым"));
+        assertEquals(201, results[2].getStatus());
+
+        HttpResponse<String> listResp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies"))
+                .build());
+        List<Movie> movies = GSON.fromJson(listResp.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(2, movies.size());
+    }
+
+    @Test
+    void postMoviesBatch_ndjson_rejectsOnlyBrokenLines() throws Exception {
+        String ndjson = "{\"title\":\"Alien\",\"year\":1979}\n{broken\n{\"title\":\"Aliens\",\"year\":1986}\n";
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(ndjson))
+                .uri(URI.create(BASE + "/movies/batch"))
+                .header("Content-Type", "application/x-ndjson")
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        BatchItemResult[] results = GSON.fromJson(resp.body(), BatchItemResult[].class);
+        assertEquals(3, results.length);
+        assertEquals(201, results[0].getStatus());
+        assertEquals(400, results[1].getStatus());
+        assertEquals(201, results[2].getStatus());
+    }
+
     @Test
     void getMovieById_returnsMovie() throws Exception {
         Movie created = createMovie("Interstellar", 2014);
@@ -168,6 +220,51 @@ public class MoviesApiTest {
         assertTrue(resp.body().contains("Interstellar"));
     }
 
+    @Test
+    void getMovieById_withMatchingEtag_returns304() throws Exception {
+        Movie created = createMovie("Interstellar", 2014);
+        URI uri = URI.create(BASE + "/movies/" + created.getId());
+
+        HttpResponse<String> first = send(HttpRequest.newBuilder().GET().uri(uri).build());
+        String etag = first.headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+
+        HttpResponse<String> second = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(uri)
+                .header("If-None-Match", etag)
+                .build());
+
+        assertEquals(304, second.statusCode());
+        assertEquals("", second.body());
+    }
+
+    @Test
+    void getMovies_etagChangesAfterWrite() throws Exception {
+        createMovie("Movie 1", 2000);
+        URI uri = URI.create(BASE + "/movies");
+        String etag = send(HttpRequest.newBuilder().GET().uri(uri).build())
+                .headers().firstValue("ETag").orElse(null);
+        assertNotNull(etag);
+
+        HttpResponse<String> unchanged = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(uri)
+                .header("If-None-Match", etag)
+                .build());
+        assertEquals(304, unchanged.statusCode());
+
+        createMovie("Movie 2", 2001);
+        HttpResponse<String> changed = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(uri)
+                .header("If-None-Match", etag)
+                .build());
+        assertEquals(200, changed.statusCode());
+        List<Movie> movies = GSON.fromJson(changed.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(2, movies.size());
+    }
+
     @Test
     void getMovieById_notFound_returns404() throws Exception {
         HttpResponse<String> resp = send(HttpRequest.newBuilder()
@@ -180,6 +277,17 @@ public class MoviesApiTest {
         assertErrorMessage(resp, "Фильм не найден");
     }
 
+    @Test
+    void getMovieById_overflowingId_returns400() throws Exception {
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies/99999999999999999999"))
+                .build());
+
+        assertEquals(400, resp.statusCode());
+        assertErrorMessage(resp, "Некорректный ID");
+    }
+
     @Test
     void getMovieById_invalidId_returns400() throws Exception {
         HttpResponse<String> resp = send(HttpRequest.newBuilder()
@@ -275,6 +383,135 @@ public class MoviesApiTest {
         assertErrorMessage(resp, "Некорректный параметр запроса — 'year'");
     }
 
+    @Test
+    void getMoviesByYearRange_returnsMatchesOrderedByYear() throws Exception {
+        createMovie("Movie 1", 2003);
+        createMovie("Movie 2", 1999);
+        createMovie("Movie 3", 2001);
+        createMovie("Movie 4", 2010);
+
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?yearFrom=2000&yearTo=2005"))
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        assertContentType(resp);
+        List<Movie> movies = GSON.fromJson(resp.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(2, movies.size());
+        assertEquals("Movie 3", movies.get(0).getTitle());
+        assertEquals("Movie 1", movies.get(1).getTitle());
+    }
+
+    @Test
+    void getMoviesByYearRange_invalidRange_returns400() throws Exception {
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?yearFrom=2005&yearTo=2000"))
+                .build());
+
+        assertEquals(400, resp.statusCode());
+        assertContentType(resp);
+        assertErrorMessage(resp, "Некорректный параметр запроса — 'yearTo'");
+    }
+
+    @Test
+    void getMovies_withLimit_pagesThroughCursor() throws Exception {
+        createMovie("Movie 1", 2000);
+        createMovie("Movie 2", 2001);
+        createMovie("Movie 3", 2002);
+
+        HttpResponse<String> first = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?limit=2"))
+                .build());
+
+        assertEquals(200, first.statusCode());
+        List<Movie> firstPage = GSON.fromJson(first.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(2, firstPage.size());
+        assertEquals("Movie 1", firstPage.get(0).getTitle());
+        String cursor = first.headers().firstValue("X-Next-Cursor").orElse(null);
+        assertNotNull(cursor);
+
+        HttpResponse<String> second = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?limit=2&cursor=" + cursor))
+                .build());
+
+        assertEquals(200, second.statusCode());
+        List<Movie> secondPage = GSON.fromJson(second.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(1, secondPage.size());
+        assertEquals("Movie 3", secondPage.get(0).getTitle());
+        assertTrue(second.headers().firstValue("X-Next-Cursor").isEmpty());
+    }
+
+    @Test
+    void getMovies_paramsInAnyOrder() throws Exception {
+        createMovie("Alien", 1979);
+        createMovie("Aliens", 1986);
+        createMovie("Alien 3", 1992);
+
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?limit=1&yearTo=1990&q=alien&yearFrom=1980"))
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        List<Movie> movies = GSON.fromJson(resp.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(1, movies.size());
+        assertEquals("Aliens", movies.get(0).getTitle());
+    }
+
+    @Test
+    void getMovies_invalidLimit_returns400() throws Exception {
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?limit=0"))
+                .build());
+
+        assertEquals(400, resp.statusCode());
+        assertContentType(resp);
+        assertErrorMessage(resp, "Некорректный параметр запроса — 'limit'");
+    }
+
+    @Test
+    void searchMovies_matchesPrefixesAndRanksExactTitleFirst() throws Exception {
+        createMovie("Чужой", 1979);
+        createMovie("Чужие среди нас", 2019);
+        createMovie("Alien", 1979);
+        createMovie("Aliens", 1986);
+
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?q=" + URLEncoder.encode("ЧУЖОЙ", StandardCharsets.UTF_8)))
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        List<Movie> movies = GSON.fromJson(resp.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(1, movies.size());
+        assertEquals("Чужой", movies.get(0).getTitle());
+
+        HttpResponse<String> prefix = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?q=alien"))
+                .build());
+        List<Movie> aliens = GSON.fromJson(prefix.body(), ListOfMoviesTypeToken.getListType());
+        assertEquals(2, aliens.size());
+        assertEquals("Alien", aliens.get(0).getTitle());
+        assertEquals("Aliens", aliens.get(1).getTitle());
+    }
+
+    @Test
+    void searchMovies_blankQuery_returns400() throws Exception {
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies?q=%20"))
+                .build());
+
+        assertEquals(400, resp.statusCode());
+        assertErrorMessage(resp, "Некорректный параметр запроса — 'q'");
+    }
+
     @Test
     void methodNotAllowed_returns405() throws Exception {
         HttpRequest req = HttpRequest.newBuilder()
@@ -317,6 +554,121 @@ public class MoviesApiTest {
         assertErrorMessage(resp, "Метод не поддерживается");
     }
 
+    @Test
+    void getMetrics_reportsRequestsByRouteAndStatus() throws Exception {
+        createMovie("Alien", 1979);
+        send(HttpRequest.newBuilder().GET().uri(URI.create(BASE + "/movies/999")).build());
+
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/metrics"))
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+        String body = resp.body();
+        assertTrue(body.contains("moviehub_http_requests_total{route=\"/movies\",method=\"POST\",status=\"201\"}"));
+        assertTrue(body.contains("moviehub_http_requests_total{route=\"/movies/{id}\",method=\"GET\",status=\"404\"}"));
+        assertTrue(body.contains("moviehub_http_request_duration_seconds_bucket{route=\"/movies/{id}\",method=\"GET\",le=\"+Inf\"}"));
+        assertTrue(body.contains("moviehub_store_movies 1\n"));
+        assertTrue(body.contains("moviehub_http_requests_in_flight 0\n"));
+    }
+
+    @Test
+    void getMovies_withAcceptEncoding_compressesLargeLists() throws Exception {
+        StringBuilder batch = new StringBuilder("[");
+        for (int i = 0; i < 100; i++) {
+            batch.append(i == 0 ? "" : ",").append("{\"title\":\"Movie ").append(i).append("\",\"year\":2000}");
+        }
+        send(HttpRequest.newBuilder()
+                .POST(HttpRequest.BodyPublishers.ofString(batch.append(']').toString()))
+                .uri(URI.create(BASE + "/movies/batch"))
+                .header("Content-Type", "application/json")
+                .build());
+        String plain = send(HttpRequest.newBuilder().GET().uri(URI.create(BASE + "/movies")).build()).body();
+
+        HttpResponse<byte[]> gzip = client.send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies"))
+                .header("Accept-Encoding", "br;q=1.0, gzip;q=0.8")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> cached = client.send(gzip.request(), HttpResponse.BodyHandlers.ofByteArray());
+        HttpResponse<byte[]> deflate = client.send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies"))
+                .header("Accept-Encoding", "gzip;q=0, deflate")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(""));
+        assertTrue(gzip.body().length < plain.length() / 2);
+        assertEquals(plain, new String(new GZIPInputStream(new ByteArrayInputStream(gzip.body())).readAllBytes(),
+                StandardCharsets.UTF_8));
+        assertArrayEquals(gzip.body(), cached.body());
+        assertNotEquals(gzip.headers().firstValue("ETag"), deflate.headers().firstValue("ETag"));
+        assertEquals("deflate", deflate.headers().firstValue("Content-Encoding").orElse(""));
+        assertEquals(plain, new String(new InflaterInputStream(new ByteArrayInputStream(deflate.body())).readAllBytes(),
+                StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void getMovieById_smallResponse_isNotCompressed() throws Exception {
+        Movie created = createMovie("Alien", 1979);
+
+        HttpResponse<String> resp = send(HttpRequest.newBuilder()
+                .GET()
+                .uri(URI.create(BASE + "/movies/" + created.getId()))
+                .header("Accept-Encoding", "gzip")
+                .build());
+
+        assertEquals(200, resp.statusCode());
+        assertTrue(resp.headers().firstValue("Content-Encoding").isEmpty());
+        assertEquals("Alien", GSON.fromJson(resp.body(), Movie.class).getTitle());
+    }
+
+    @Test
+    void getMovies_byYear_servedFromCacheUntilThatYearChanges() throws Exception {
+        Movie alien = createMovie("Alien", 1979);
+        createMovie("Blade Runner", 1982);
+        List<Movie> of1979 = getMovies("/movies?year=1979");
+        long hits = cacheMetric("hits");
+
+        // тот же запрос в другой записи — тот же ключ кэша
+        assertEquals(ids(of1979), ids(getMovies("/movies?limit=5000&yearTo=1979&yearFrom=1979")));
+        createMovie("Blade Runner 2049", 2017);
+        assertEquals(ids(of1979), ids(getMovies("/movies?year=1979")));
+        assertEquals(hits + 2, cacheMetric("hits"));
+
+        createMovie("Alien 2", 1979);
+        assertEquals(2, getMovies("/movies?year=1979").size());
+        send(HttpRequest.newBuilder().DELETE().uri(URI.create(BASE + "/movies/" + alien.getId())).build());
+        assertEquals(List.of("Alien 2"),
+                getMovies("/movies?year=1979").stream().map(Movie::getTitle).toList());
+        assertEquals(3, getMovies("/movies").size());
+        assertEquals(hits + 2, cacheMetric("hits"));
+        assertTrue(cacheMetric("invalidations") >= 2);
+    }
+
+    private List<Movie> getMovies(String path) throws Exception {
+        HttpResponse<String> resp = send(HttpRequest.newBuilder().GET().uri(URI.create(BASE + path)).build());
+        assertEquals(200, resp.statusCode());
+        return GSON.fromJson(resp.body(), ListOfMoviesTypeToken.getListType());
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+
+    private long cacheMetric(String name) throws Exception {
+        String prefix = "moviehub_response_cache_" + name + "_total{cache=\"movies\"} ";
+        String body = send(HttpRequest.newBuilder().GET().uri(URI.create(BASE + "/metrics")).build()).body();
+        for (String line : body.split("\n")) {
+            if (line.startsWith(prefix)) {
+                return Long.parseLong(line.substring(prefix.length()));
+            }
+        }
+        throw new AssertionError("Нет метрики " + prefix);
+    }
+
     private HttpRequest postMovies(String json) {
         return HttpRequest.newBuilder()
                 .POST(HttpRequest.BodyPublishers.ofString(json))
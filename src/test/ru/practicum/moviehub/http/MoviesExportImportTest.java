@@ -0,0 +1,136 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MoviesExportImportTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @Test
+    void exportThenImport_copiesCatalogWithIds() throws Exception {
+        for (DumpFormat format : DumpFormat.values()) {
+            MoviesStore source = new MoviesStore();
+            List<MovieDraft> drafts = new ArrayList<>();
+            for (int i = 0; i < 2500; i++) {
+                drafts.add(new MovieDraft("Фильм <" + i + ">", 1900 + i % 100));
+            }
+            source.addAll(drafts);
+            source.deleteById(1);
+            source.deleteById(1500);
+            MoviesStore target = new MoviesStore();
+            MoviesServer from = start(source);
+            MoviesServer to = start(target);
+            try {
+                HttpResponse<byte[]> export = CLIENT.send(HttpRequest.newBuilder(
+                                uri(from, "/movies/export?format=" + format.name().toLowerCase())).GET().build(),
+                        HttpResponse.BodyHandlers.ofByteArray());
+                assertEquals(200, export.statusCode());
+                assertEquals(format.getContentType(), export.headers().firstValue("Content-Type").orElse(null));
+
+                HttpResponse<String> imported = post(to, format.getContentType(), export.body());
+
+                assertEquals(200, imported.statusCode(), imported.body());
+                assertEquals("{\"imported\":2498}", imported.body());
+                assertEquals(ids(source.getAll()), ids(target.getAll()));
+                assertEquals("Фильм <2499>", target.getById(2500).orElseThrow().getTitle());
+                assertEquals(2501, target.add("Новый", 2000).getId(), format + ": nextId после импорта");
+            } finally {
+                from.stop();
+                to.stop();
+            }
+        }
+    }
+
+    @Test
+    void import_stopsAtInvalidRecordKeepingEarlierOnes() throws Exception {
+        MoviesStore store = new MoviesStore();
+        store.add("Alien", 1979);
+        MoviesServer server = start(store);
+        try {
+            String body = "{\"id\":1,\"title\":\"Aliens\",\"year\":1986}\n"
+                    + "{\"id\":7,\"title\":\"Heat\",\"year\":1995}\n"
+                    + "{\"id\":8,\"title\":\"\",\"year\":1995}\n"
+                    + "{\"id\":9,\"title\":\"Ronin\",\"year\":1998}\n";
+
+            HttpResponse<String> response = post(server, "application/x-ndjson", body.getBytes(StandardCharsets.UTF_8));
+
+            assertEquals(422, response.statusCode());
+            assertTrue(response.body().contains("запись 3: название не должно быть пустым"), response.body());
+            assertEquals(List.of(1, 7), ids(store.getAll()));
+            assertEquals("Aliens", store.getById(1).orElseThrow().getTitle(), "фильм с тем же id заменяется");
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void import_rejectsMalformedBodies() throws Exception {
+        MoviesServer server = start(new MoviesStore());
+        try {
+            assertEquals(415, post(server, "application/json", "[]".getBytes(StandardCharsets.UTF_8)).statusCode());
+            assertEquals(400, post(server, "application/x-ndjson", "{\"id\":1,".getBytes(StandardCharsets.UTF_8))
+                    .statusCode());
+            assertEquals(400, post(server, "application/x-moviehub-dump", new byte[]{1, 2, 3}).statusCode());
+
+            byte[] dump = CLIENT.send(HttpRequest.newBuilder(uri(server, "/movies/export?format=binary")).GET().build(),
+                    HttpResponse.BodyHandlers.ofByteArray()).body();
+            HttpResponse<String> truncated = post(server, "application/x-moviehub-dump",
+                    Arrays.copyOf(dump, dump.length - 1));
+            assertEquals(400, truncated.statusCode());
+            assertTrue(truncated.body().contains("Выгрузка оборвана"));
+            assertEquals(400, CLIENT.send(HttpRequest.newBuilder(uri(server, "/movies/export?format=xml")).GET().build(),
+                    HttpResponse.BodyHandlers.ofString()).statusCode());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void export_unknownParam_returns400NamingIt() throws Exception {
+        MoviesServer server = start(new MoviesStore());
+        try {
+            HttpResponse<String> response = CLIENT.send(HttpRequest.newBuilder(uri(server, "/movies/export?foo=1"))
+                    .GET().build(), HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+
+            assertEquals(400, response.statusCode());
+            assertTrue(response.body().contains("foo"), response.body());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static MoviesServer start(MoviesStore store) {
+        MoviesServer server = new MoviesServer(store, 0, ServerConfig.fixedPool(2), AdmissionConfig.unlimited());
+        server.start();
+        return server;
+    }
+
+    private static URI uri(MoviesServer server, String path) {
+        return URI.create("http://localhost:" + server.getPort() + path);
+    }
+
+    private static HttpResponse<String> post(MoviesServer server, String contentType, byte[] body) throws Exception {
+        return CLIENT.send(HttpRequest.newBuilder(uri(server, "/movies/import"))
+                        .header("Content-Type", contentType)
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(body)).build(),
+                HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+}
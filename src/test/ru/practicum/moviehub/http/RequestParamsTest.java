@@ -0,0 +1,52 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RequestParamsTest {
+    private static final String[] NAMES = {"year", "limit", "cursor", "q"};
+
+    @Test
+    void parse_acceptsParamsInAnyOrder() {
+        RequestParams params = RequestParams.parse("q=alien&limit=5&year=1979", NAMES, "year");
+
+        assertNull(params.getInvalidParam());
+        assertEquals(1979, params.getInt(0));
+        assertEquals(5, params.getInt(1));
+        assertFalse(params.has(2));
+        assertEquals("alien", params.getString(3));
+    }
+
+    @Test
+    void parse_reportsUnknownDuplicateAndMalformedParams() {
+        assertEquals("sort", RequestParams.parse("year=1979&sort=id", NAMES, "year").getInvalidParam());
+        assertEquals("year", RequestParams.parse("limit=1&limit=2", NAMES, "year").getInvalidParam());
+        assertEquals("year", RequestParams.parse("limit", NAMES, "year").getInvalidParam());
+        assertEquals("year", RequestParams.parse("=5", NAMES, "year").getInvalidParam());
+        assertNull(RequestParams.parse(null, NAMES, "year").getInvalidParam());
+    }
+
+    @Test
+    void parseInt_rejectsGarbageAndOverflowWithoutExceptions() {
+        assertEquals(-42, RequestParams.parseInt("-42", 0, 3));
+        assertEquals(Integer.MIN_VALUE, RequestParams.parseInt("-2147483648", 0, 11));
+        assertEquals(RequestParams.NOT_A_NUMBER, RequestParams.parseInt("2147483648", 0, 10));
+        assertEquals(RequestParams.NOT_A_NUMBER, RequestParams.parseInt("99999999999999999999999", 0, 23));
+        assertEquals(RequestParams.NOT_A_NUMBER, RequestParams.parseInt("12a", 0, 3));
+        assertEquals(RequestParams.NOT_A_NUMBER, RequestParams.parseInt("-", 0, 1));
+        assertEquals(RequestParams.NOT_A_NUMBER, RequestParams.parseInt("", 0, 0));
+    }
+
+    @Test
+    void getString_decodesPercentEncodingAndPlus() {
+        RequestParams params = RequestParams.parse("q=%D0%A7%D1%83%D0%B6%D0%BE%D0%B9+2", NAMES, "year");
+        assertEquals("Чужой 2", params.getString(3));
+
+        assertTrue(params.has(3));
+        assertNull(RequestParams.parse("q=%D0%", NAMES, "year").getString(3));
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.metrics.CacheMetrics;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ResponseCacheTest {
+    @Test
+    void write_invalidatesOnlyEntriesOfItsYears() {
+        MoviesStore store = new MoviesStore();
+        CacheMetrics metrics = new CacheMetrics("test");
+        ResponseCache cache = new ResponseCache(store, 10, 1 << 20, metrics);
+        cache.put("1979", entry(store, 1979, 1979));
+        cache.put("1980s", entry(store, 1980, 1989));
+        cache.put("all", entry(store, Integer.MIN_VALUE, Integer.MAX_VALUE));
+
+        store.add("Blade Runner", 1982);
+
+        assertNotNull(cache.get("1979"));
+        assertNull(cache.get("1980s"));
+        assertNull(cache.get("all"));
+        assertEquals(1, metrics.getHits());
+        assertEquals(2, metrics.getMisses());
+        assertEquals(2, metrics.getInvalidations());
+        assertEquals(1, metrics.getEntries());
+
+        cache.put("1980s", entry(store, 1980, 1989));
+        store.addAll(List.of(new MovieDraft("Alien", 1979), new MovieDraft("Aliens", 1986)));
+        assertNull(cache.get("1979"));
+        assertNull(cache.get("1980s"));
+
+        cache.put("1979", entry(store, 1979, 1979));
+        store.deleteById(1);
+        assertNotNull(cache.get("1979"));
+        store.clear();
+        assertNull(cache.get("1979"));
+    }
+
+    @Test
+    void put_evictsLeastRecentlyUsedByCountAndBytes() {
+        MoviesStore store = new MoviesStore();
+        CacheMetrics metrics = new CacheMetrics("test");
+        ResponseCache cache = new ResponseCache(store, 3, 3_300, metrics);
+        cache.put("a", entry(store, 2000, 2000));
+        cache.put("b", entry(store, 2000, 2000));
+        cache.put("c", entry(store, 2000, 2000));
+        cache.get("a");
+        cache.put("d", entry(store, 2000, 2000));
+
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertEquals(3, metrics.getEntries());
+
+        ResponseCache.Entry large = new ResponseCache.Entry(store.getVersion(), 2000, 2000, null, new byte[3_000], null);
+        cache.put("large", large);
+        assertNotNull(cache.get("large"));
+        assertEquals(1, metrics.getEntries());
+        assertEquals(4, metrics.getEvictions());
+
+        cache.put("huge", new ResponseCache.Entry(store.getVersion(), 2000, 2000, null, new byte[5_000], null));
+        assertNull(cache.get("huge"));
+        assertNotNull(cache.get("large"));
+    }
+
+    private static ResponseCache.Entry entry(MoviesStore store, int yearFrom, int yearTo) {
+        return new ResponseCache.Entry(store.getVersion(), yearFrom, yearTo, null, "[]".getBytes(), null);
+    }
+}
@@ -0,0 +1,212 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ServerBackendTest {
+    private static final String MOVIE_JSON = "{\"title\":\"Inception\",\"year\":2010}";
+
+    @Test
+    void nio_pipelinedRequests_areAnsweredInOrder() throws Exception {
+        MoviesServer server = start(ServerConfig.fixedPool(4).withBackend(HttpBackend.NIO));
+        try (Socket socket = connect(server)) {
+            // три запроса одной записью, не дожидаясь ответов
+            write(socket, post(MOVIE_JSON) + get("/movies/1") + get("/movies/2"));
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+
+            assertEquals(201, readResponse(in).status);
+            Response found = readResponse(in);
+            assertEquals(200, found.status);
+            assertTrue(found.body.contains("Inception"));
+            assertEquals(404, readResponse(in).status);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void nio_chunkedRequestBody_isDecoded() throws Exception {
+        MoviesServer server = start(ServerConfig.fixedPool(2).withBackend(HttpBackend.NIO));
+        try (Socket socket = connect(server)) {
+            String first = MOVIE_JSON.substring(0, 10);
+            String rest = MOVIE_JSON.substring(10);
+            write(socket, "POST /movies HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n"
+                    + Integer.toHexString(first.length()) + "\r\n" + first + "\r\n"
+                    + Integer.toHexString(rest.length()) + "\r\n" + rest + "\r\n0\r\n\r\n");
+
+            Response response = readResponse(socket.getInputStream());
+
+            assertEquals(201, response.status);
+            assertTrue(response.body.contains("\"id\":1"));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void nio_malformedRequest_returns400AndClosesConnection() throws Exception {
+        MoviesServer server = start(ServerConfig.fixedPool(2).withBackend(HttpBackend.NIO));
+        try (Socket socket = connect(server)) {
+            write(socket, "GARBAGE\r\n\r\n");
+            InputStream in = socket.getInputStream();
+
+            Response response = readResponse(in);
+
+            assertEquals(400, response.status);
+            assertEquals("close", response.headers.get("connection"));
+            assertEquals(-1, in.read(), "после ошибки разбора соединение закрывается");
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void nio_idleConnection_isClosedAfterTimeout() throws Exception {
+        MoviesServer server = start(ServerConfig.fixedPool(2).withBackend(HttpBackend.NIO)
+                .withIdleTimeout(Duration.ofMillis(100)));
+        try (Socket socket = connect(server)) {
+            write(socket, get("/movies"));
+            InputStream in = socket.getInputStream();
+            assertEquals(200, readResponse(in).status);
+
+            long start = System.nanoTime();
+            assertEquals(-1, in.read(), "простаивающее соединение должно быть закрыто сервером");
+            assertTrue(System.nanoTime() - start < Duration.ofSeconds(5).toNanos());
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    void nio_holdsManyIdleConnections() throws Exception {
+        MoviesServer server = start(ServerConfig.fixedPool(2).withBackend(HttpBackend.NIO));
+        List<Socket> sockets = new ArrayList<>();
+        try {
+            for (int i = 0; i < 500; i++) {
+                sockets.add(connect(server));
+            }
+            // два потока обработчиков обслуживают все соединения по очереди
+            for (Socket socket : sockets) {
+                write(socket, get("/movies"));
+            }
+            for (Socket socket : sockets) {
+                assertEquals(200, readResponse(socket.getInputStream()).status);
+            }
+        } finally {
+            for (Socket socket : sockets) {
+                socket.close();
+            }
+            server.stop();
+        }
+    }
+
+    @Test
+    void keepAliveDisabled_closesConnectionAfterResponse() throws Exception {
+        for (HttpBackend backend : HttpBackend.values()) {
+            MoviesServer server = start(ServerConfig.fixedPool(2).withBackend(backend).withKeepAlive(false));
+            try (Socket socket = connect(server)) {
+                write(socket, get("/movies"));
+                InputStream in = socket.getInputStream();
+
+                Response response = readResponse(in);
+
+                assertEquals(200, response.status, backend.name());
+                assertEquals("close", response.headers.get("connection"), backend.name());
+                assertEquals(-1, in.read(), backend + ": соединение должно закрыться после ответа");
+            } finally {
+                server.stop();
+            }
+        }
+    }
+
+    private static MoviesServer start(ServerConfig config) {
+        MoviesServer server = new MoviesServer(new MoviesStore(), 0, config, AdmissionConfig.unlimited());
+        server.start();
+        return server;
+    }
+
+    private static Socket connect(MoviesServer server) throws IOException {
+        Socket socket = new Socket("localhost", server.getPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String post(String json) {
+        return "POST /movies HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                + "Content-Length: " + json.getBytes(StandardCharsets.UTF_8).length + "\r\n\r\n" + json;
+    }
+
+    private static void write(Socket socket, String request) throws IOException {
+        OutputStream out = socket.getOutputStream();
+        out.write(request.getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static Response readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        Response response = new Response(Integer.parseInt(statusLine.split(" ")[1]));
+        String line;
+        while (!(line = readLine(in)).isEmpty()) {
+            int colon = line.indexOf(':');
+            response.headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if ("chunked".equals(response.headers.get("transfer-encoding"))) {
+            int size;
+            while ((size = Integer.parseInt(readLine(in), 16)) > 0) {
+                body.write(in.readNBytes(size));
+                readLine(in);
+            }
+            readLine(in);
+        } else {
+            body.write(in.readNBytes(Integer.parseInt(response.headers.getOrDefault("content-length", "0"))));
+        }
+        response.body = body.toString(StandardCharsets.UTF_8);
+        return response;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Соединение закрыто посреди ответа");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+
+    private static class Response {
+        final int status;
+        final Map<String, String> headers = new HashMap<>();
+        String body;
+
+        Response(int status) {
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.moviehub.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class MovieJsonTest {
+    private static final Gson REFLECTIVE = new Gson();
+    private static final Gson ADAPTED = new GsonBuilder()
+            .registerTypeAdapter(Movie.class, new MovieTypeAdapter().nullSafe())
+            .registerTypeAdapter(ErrorResponse.class, new ErrorResponseTypeAdapter().nullSafe())
+            .create();
+
+    @Test
+    void toBytes_matchesGsonForSpecialCharacters() {
+        List<String> titles = List.of("Inception", "Брат 2", "Amélie", "<Tom & Jerry's = \"show\">",
+                "tab\tnew\nline\r\b\f\u0001\u001f\u007f", "back\\slash", "  ", "😀 emoji",
+                "broken \ud83d surrogate", "\udc00", "");
+        for (String title : titles) {
+            Movie movie = new Movie(42, title, 1999);
+            assertEquals(gsonUtf8(movie), utf8(MovieJson.toBytes(movie)), title);
+        }
+        Movie untitled = new Movie(Integer.MIN_VALUE, null, -1);
+        assertEquals(gsonUtf8(untitled), utf8(MovieJson.toBytes(untitled)));
+    }
+
+    @Test
+    void toBytes_matchesGsonForRandomTitles() {
+        Random random = new Random(20);
+        for (int i = 0; i < 10_000; i++) {
+            char[] title = new char[random.nextInt(20)];
+            for (int j = 0; j < title.length; j++) {
+                // в основном ASCII и кириллица, иногда что угодно, включая суррогаты
+                int kind = random.nextInt(10);
+                title[j] = (char) (kind < 5 ? random.nextInt(128) : kind < 8 ? 0x400 + random.nextInt(0x60)
+                        : random.nextInt(0x10000));
+            }
+            Movie movie = new Movie(random.nextInt(), new String(title), random.nextInt(3000));
+            assertEquals(gsonUtf8(movie), utf8(MovieJson.toBytes(movie)));
+        }
+    }
+
+    @Test
+    void typeAdapters_writeAndReadLikeGson() {
+        Movie movie = new Movie(7, "Brazil <1985>", 1985);
+        ErrorResponse error = new ErrorResponse("Ошибка валидации", List.of("название не должно быть пустым"));
+        ErrorResponse plain = new ErrorResponse("Фильм не найден", null);
+
+        assertEquals(REFLECTIVE.toJson(movie), ADAPTED.toJson(movie));
+        assertEquals(REFLECTIVE.toJson(error), ADAPTED.toJson(error));
+        assertEquals(REFLECTIVE.toJson(plain), ADAPTED.toJson(plain));
+        assertEquals(REFLECTIVE.toJson(List.of(movie, movie)), ADAPTED.toJson(List.of(movie, movie)));
+
+        Movie parsed = ADAPTED.fromJson("{\"year\":1985,\"extra\":[1,{}],\"title\":\"Brazil\",\"id\":\"7\"}", Movie.class);
+        assertEquals(7, parsed.getId());
+        assertEquals("Brazil", parsed.getTitle());
+        assertEquals(1985, parsed.getYear());
+        ErrorResponse parsedError = ADAPTED.fromJson(ADAPTED.toJson(error), ErrorResponse.class);
+        assertEquals(error.getError(), parsedError.getError());
+        assertEquals(error.getDetails(), parsedError.getDetails());
+    }
+
+    // раньше ответ получался как GSON.toJson(movie).getBytes(UTF_8): одиночный суррогат при этом становится '?'
+    private static String gsonUtf8(Movie movie) {
+        return utf8(REFLECTIVE.toJson(movie).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String utf8(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,51 @@
+package ru.practicum.moviehub.json;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class Utf8ReaderTest {
+
+    @Test
+    void read_decodesLikeStringConstructor() throws IOException {
+        String text = "Брат 2 — 😀 <&>   日本";
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        for (int bufferSize = 4; bufferSize <= 8; bufferSize++) {
+            assertEquals(text, readAll(new Utf8Reader(new ByteArrayInputStream(bytes), bufferSize), 3));
+        }
+    }
+
+    @Test
+    void read_replacesMalformedSequencesLikeStringConstructor() throws IOException {
+        Random random = new Random(20);
+        int[] interesting = {0x00, 0x41, 0x7F, 0x80, 0x8F, 0x90, 0x9F, 0xA0, 0xBF, 0xC0, 0xC1, 0xC2, 0xDF, 0xE0,
+                0xE1, 0xEC, 0xED, 0xEE, 0xEF, 0xF0, 0xF1, 0xF3, 0xF4, 0xF5, 0xFF};
+        for (int i = 0; i < 20_000; i++) {
+            byte[] bytes = new byte[random.nextInt(12)];
+            for (int j = 0; j < bytes.length; j++) {
+                bytes[j] = (byte) interesting[random.nextInt(interesting.length)];
+            }
+            String expected = new String(bytes, StandardCharsets.UTF_8);
+            int bufferSize = 4 + random.nextInt(4);
+            assertEquals(expected, readAll(new Utf8Reader(new ByteArrayInputStream(bytes), bufferSize),
+                    1 + random.nextInt(3)));
+        }
+    }
+
+    // маленькие буферы и порции проверяют последовательности и суррогатные пары на границах
+    private static String readAll(Reader reader, int chunk) throws IOException {
+        StringBuilder text = new StringBuilder();
+        char[] chars = new char[chunk];
+        int read;
+        while ((read = reader.read(chars, 0, chunk)) >= 0) {
+            text.append(chars, 0, read);
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package ru.practicum.moviehub.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    void bucketsCoverValuesWithBoundedRelativeError() {
+        for (long micros = 0; micros < 5_000_000; micros += 1 + micros / 7) {
+            int index = LatencyHistogram.bucketIndex(micros);
+            long highest = LatencyHistogram.highestValue(index);
+            assertTrue(highest >= micros, "значение " + micros + " выше границы своей корзины " + highest);
+            assertTrue(highest - micros <= micros / 16, "корзина для " + micros + " слишком широкая: " + highest);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.highestValue(index - 1) < micros);
+            }
+        }
+    }
+
+    @Test
+    void countAtOrBelow_countsRecordedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(50));
+        histogram.record(TimeUnit.MICROSECONDS.toNanos(900));
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(40));
+        histogram.record(TimeUnit.HOURS.toNanos(1000));
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(1, histogram.countAtOrBelow(100));
+        assertEquals(2, histogram.countAtOrBelow(1_000));
+        assertEquals(3, histogram.countAtOrBelow(50_000));
+        assertEquals(4, histogram.countAtOrBelow(LatencyHistogram.MAX_MICROS));
+    }
+
+    @Test
+    void valueAtPercentile_returnsUpperBoundOfBucket() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.valueAtPercentile(99));
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(TimeUnit.MICROSECONDS.toNanos(micros));
+        }
+
+        long median = histogram.valueAtPercentile(50);
+        long p99 = histogram.valueAtPercentile(99);
+
+        assertTrue(median >= 500 && median <= 500 + 500 / 16, "медиана " + median);
+        assertTrue(p99 >= 990 && p99 <= 990 + 990 / 16, "99-й процентиль " + p99);
+        assertEquals(LatencyHistogram.highestValue(LatencyHistogram.bucketIndex(1000)), histogram.valueAtPercentile(100));
+    }
+}
@@ -0,0 +1,197 @@
+package ru.practicum.moviehub.replication;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.http.AdmissionConfig;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+import ru.practicum.moviehub.store.ChangeFeed;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicationTest {
+    private static final HttpClient CLIENT = HttpClient.newHttpClient();
+
+    @Test
+    void followers_applyLeaderChangesInOrder() throws Exception {
+        MoviesStore leaderStore = new MoviesStore();
+        try (ReplicationLeader leader = ReplicationLeader.start(leaderStore, 0)) {
+            MoviesStore first = new MoviesStore();
+            MoviesStore second = new MoviesStore();
+            try (ReplicationFollower a = follow(first, leader); ReplicationFollower b = follow(second, leader)) {
+                int alien = leaderStore.add("Alien", 1979).getId();
+                leaderStore.addAll(List.of(new MovieDraft("Aliens", 1986), new MovieDraft("Heat", 1995)));
+                leaderStore.deleteById(alien);
+
+                awaitCaughtUp(leader, a);
+                awaitCaughtUp(leader, b);
+
+                assertEquals(titles(leaderStore), titles(first));
+                assertEquals(titles(leaderStore), titles(second));
+                assertEquals(0L, a.getStatus().getLag());
+                // подтверждение приходит к лидеру чуть позже, чем реплика применила изменения
+                await(() -> leader.getStatus().getFollowers().stream().allMatch(status -> status.getLag() == 0));
+                assertEquals(List.of(4L, 4L), leader.getStatus().getFollowers().stream()
+                        .map(ReplicationStatus.FollowerStatus::getAckedSeq).toList());
+            }
+        }
+    }
+
+    @Test
+    void lateFollower_receivesSnapshotThenChanges() throws Exception {
+        MoviesStore leaderStore = new MoviesStore();
+        List<MovieDraft> drafts = new ArrayList<>();
+        for (int i = 0; i < ChangeFeed.DEFAULT_CAPACITY + 2500; i++) {
+            drafts.add(new MovieDraft("Фильм " + i, 1900 + i % 100));
+        }
+        // старые события уже вытеснены из ленты, поэтому реплика начнёт с полной копии
+        leaderStore.addAll(drafts);
+        leaderStore.deleteById(10);
+        try (ReplicationLeader leader = ReplicationLeader.start(leaderStore, 0)) {
+            MoviesStore replica = new MoviesStore();
+            replica.add("Устаревший фильм реплики", 2000);
+            try (ReplicationFollower follower = follow(replica, leader)) {
+                awaitCaughtUp(leader, follower);
+                leaderStore.add("После копии", 2020);
+                awaitCaughtUp(leader, follower);
+
+                assertEquals(ids(leaderStore), ids(replica));
+                assertEquals("После копии", replica.getById(leaderStore.size() + 1).orElseThrow().getTitle());
+            }
+        }
+    }
+
+    @Test
+    void follower_resyncsAfterLeaderRestart() throws Exception {
+        MoviesStore replica = new MoviesStore();
+        MoviesStore firstLeaderStore = new MoviesStore();
+        firstLeaderStore.add("Alien", 1979);
+        ReplicationLeader first = ReplicationLeader.start(firstLeaderStore, 0);
+        int port = first.getPort();
+        try (ReplicationFollower follower = follow(replica, first)) {
+            awaitCaughtUp(first, follower);
+            first.close();
+
+            // новый лидер на том же порту с другим каталогом и той же нумерацией событий
+            MoviesStore secondLeaderStore = new MoviesStore();
+            secondLeaderStore.add("Heat", 1995);
+            try (ReplicationLeader second = ReplicationLeader.start(secondLeaderStore, port)) {
+                awaitCaughtUp(second, follower);
+                assertEquals(List.of("Heat"), titles(replica));
+            }
+        }
+    }
+
+    @Test
+    void followerServer_servesReadsAndRedirectsWrites() throws Exception {
+        MoviesStore leaderStore = new MoviesStore();
+        MoviesStore replicaStore = new MoviesStore();
+        try (ReplicationLeader leader = ReplicationLeader.start(leaderStore, 0)) {
+            MoviesServer leaderServer = start(leaderStore, leader);
+            URI leaderUrl = URI.create("http://localhost:" + leaderServer.getPort());
+            ReplicationFollower follower = ReplicationFollower.start(replicaStore,
+                    new InetSocketAddress("localhost", leader.getPort()), leaderUrl);
+            MoviesServer replicaServer = start(replicaStore, follower);
+            try {
+                String replica = "http://localhost:" + replicaServer.getPort();
+                HttpResponse<String> redirected = CLIENT.send(HttpRequest.newBuilder(URI.create(replica + "/movies"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Alien\",\"year\":1979}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(307, redirected.statusCode());
+                assertEquals(leaderUrl + "/movies", redirected.headers().firstValue("Location").orElse(null));
+
+                HttpClient following = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NORMAL).build();
+                HttpResponse<String> created = following.send(HttpRequest.newBuilder(URI.create(replica + "/movies"))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString("{\"title\":\"Alien\",\"year\":1979}")).build(),
+                        HttpResponse.BodyHandlers.ofString());
+                assertEquals(201, created.statusCode(), "клиент повторяет запись у лидера");
+
+                awaitCaughtUp(leader, follower);
+                HttpResponse<String> read = get(replica + "/movies/1");
+                assertEquals(200, read.statusCode());
+                assertTrue(read.body().contains("Alien"));
+
+                HttpResponse<String> status = get(replica + "/replication");
+                assertTrue(status.body().contains("\"role\":\"follower\""), status.body());
+                assertTrue(status.body().contains("\"lag\":0"), status.body());
+                assertTrue(get("http://localhost:" + leaderServer.getPort() + "/replication").body()
+                        .contains("\"followers\":[{"));
+            } finally {
+                replicaServer.stop();
+                follower.close();
+                leaderServer.stop();
+            }
+        }
+    }
+
+    @Test
+    void followerServer_withoutLeaderUrl_rejectsWrites() throws Exception {
+        MoviesStore replicaStore = new MoviesStore();
+        // лидера нет: реплика пытается подключиться, но читать можно и так
+        ReplicationFollower follower = ReplicationFollower.start(replicaStore, new InetSocketAddress("localhost", 1), null);
+        MoviesServer server = start(replicaStore, follower);
+        try {
+            String base = "http://localhost:" + server.getPort();
+            HttpResponse<String> deleted = CLIENT.send(HttpRequest.newBuilder(URI.create(base + "/movies/1"))
+                    .DELETE().build(), HttpResponse.BodyHandlers.ofString());
+            assertEquals(503, deleted.statusCode());
+            assertEquals(200, get(base + "/movies").statusCode());
+            assertTrue(get(base + "/replication").body().contains("\"connected\":false"));
+        } finally {
+            server.stop();
+            follower.close();
+        }
+    }
+
+    private static ReplicationFollower follow(MoviesStore store, ReplicationLeader leader) {
+        return ReplicationFollower.start(store, new InetSocketAddress("localhost", leader.getPort()), null);
+    }
+
+    private static MoviesServer start(MoviesStore store, ReplicationNode node) {
+        MoviesServer server = new MoviesServer(store, 0, ServerConfig.fixedPool(2), AdmissionConfig.unlimited(), node);
+        server.start();
+        return server;
+    }
+
+    private static void awaitCaughtUp(ReplicationLeader leader, ReplicationFollower follower) throws Exception {
+        long target = leader.getStatus().getLastSeq();
+        await(() -> {
+            ReplicationStatus status = follower.getStatus();
+            return status.getEpoch() == leader.getStatus().getEpoch() && status.getLastSeq() >= target;
+        });
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "реплика не догнала лидера за 10 секунд");
+            Thread.sleep(10);
+        }
+    }
+
+    private static HttpResponse<String> get(String uri) throws Exception {
+        return CLIENT.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static List<String> titles(MoviesStore store) {
+        return store.getAll().stream().map(Movie::getTitle).toList();
+    }
+
+    private static List<Integer> ids(MoviesStore store) {
+        return store.getAll().stream().map(Movie::getId).toList();
+    }
+}
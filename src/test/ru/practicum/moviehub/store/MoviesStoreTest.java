@@ -0,0 +1,493 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.model.MovieDraft;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MoviesStoreTest {
+
+    @Test
+    void add_concurrently_assignsUniqueIds() throws Exception {
+        MoviesStore store = new MoviesStore();
+        int threads = 8;
+        int perThread = 1_000;
+        ConcurrentLinkedQueue<Movie> created = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int t = 0; t < threads; t++) {
+            pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    created.add(store.add("Movie " + i, 2000));
+                }
+                return null;
+            });
+        }
+        start.countDown();
+        pool.shutdown();
+        assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+        Set<Integer> ids = new HashSet<>();
+        for (Movie movie : created) {
+            ids.add(movie.getId());
+        }
+        assertEquals(threads * perThread, ids.size());
+        List<Movie> all = store.getAll();
+        assertEquals(threads * perThread, all.size());
+    }
+
+    @Test
+    void getByYear_afterDelete_skipsRemovedMovie() {
+        MoviesStore store = new MoviesStore();
+        Movie first = store.add("Movie 1", 2000);
+        store.add("Movie 2", 2000);
+        store.add("Movie 3", 2001);
+
+        assertTrue(store.deleteById(first.getId()));
+
+        List<Movie> movies = store.getByYear(2000);
+        assertEquals(1, movies.size());
+        assertEquals("Movie 2", movies.get(0).getTitle());
+        assertEquals(2, store.getByYearRange(2000, 2001).size());
+    }
+
+    @Test
+    void open_replaysLogAfterRestart() throws Exception {
+        Path dir = Files.createTempDirectory("movies-wal");
+        Movie kept;
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Old", 1990);
+            store.clear();
+            kept = store.add("Alien", 1979);
+            Movie deleted = store.add("Aliens", 1986);
+            store.addAll(List.of(new MovieDraft("Alien 3", 1992), new MovieDraft("Prometheus", 2012)));
+            assertTrue(store.deleteById(deleted.getId()));
+        }
+
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            List<Movie> movies = store.getAll();
+            assertEquals(3, movies.size());
+            assertEquals("Alien", store.getById(kept.getId()).orElseThrow().getTitle());
+            assertEquals(1, store.getByYear(2012).size());
+            Movie next = store.add("Covenant", 2017);
+            assertEquals(5, next.getId());
+        }
+    }
+
+    @Test
+    void open_dropsTornTail() throws Exception {
+        Path dir = Files.createTempDirectory("movies-wal");
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Alien", 1979);
+        }
+        Files.write(dir.resolve("movies.wal"), new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            assertEquals(1, store.getAll().size());
+            store.add("Aliens", 1986);
+        }
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            assertEquals(2, store.getAll().size());
+        }
+    }
+
+    @Test
+    void snapshot_truncatesLogAndRestoresState() throws Exception {
+        Path dir = Files.createTempDirectory("movies-snapshot");
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Alien", 1979);
+            Movie deleted = store.add("Aliens", 1986);
+            store.snapshot();
+            assertEquals(0, Files.size(dir.resolve("movies.wal")));
+
+            assertTrue(store.deleteById(deleted.getId()));
+            store.add("Прометей", 2012);
+        }
+
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            assertEquals(2, store.getAll().size());
+            assertEquals("Прометей", store.getByYear(2012).get(0).getTitle());
+            assertEquals(4, store.add("Covenant", 2017).getId());
+        }
+    }
+
+    @Test
+    void open_withUnfinishedSnapshot_replaysArchivedLog() throws Exception {
+        Path dir = Files.createTempDirectory("movies-snapshot");
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Alien", 1979);
+            store.add("Aliens", 1986);
+        }
+        // имитируем сбой между переключением журнала и записью снимка
+        Files.delete(dir.resolve("movies.snapshot"));
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Alien 3", 1992);
+        }
+        Files.move(dir.resolve("movies.wal"), dir.resolve("movies.wal.old"));
+
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            assertEquals(1, store.getAll().size());
+            assertEquals("Alien 3", store.getAll().get(0).getTitle());
+            assertTrue(Files.notExists(dir.resolve("movies.wal.old")));
+        }
+    }
+
+    @Test
+    void columnarLayout_supportsQueriesAndDeletes() {
+        MoviesStore store = new MoviesStore(StoreLayout.COLUMNAR);
+        Movie first = store.add("Сталкер", 1979);
+        store.add("Alien", 1979);
+        store.addAll(List.of(new MovieDraft("Aliens", 1986), new MovieDraft("Solaris", 1972)));
+
+        assertEquals("Сталкер", store.getById(first.getId()).orElseThrow().getTitle());
+        assertEquals(2, store.getByYear(1979).size());
+        List<Movie> range = store.getByYearRange(1970, 1980);
+        assertEquals(3, range.size());
+        assertEquals("Solaris", range.get(0).getTitle());
+        assertEquals(2, store.getPage(first.getId(), 2).size());
+
+        assertTrue(store.deleteById(first.getId()));
+        assertTrue(store.getById(first.getId()).isEmpty());
+        assertEquals(1, store.getByYear(1979).size());
+        assertEquals(3, store.size());
+
+        store.clear();
+        assertEquals(0, store.getAll().size());
+        assertEquals(1, store.add("Alien", 1979).getId());
+    }
+
+    @Test
+    void snapshotLayout_matchesObjectsLayout() {
+        MoviesStore expected = new MoviesStore(StoreLayout.OBJECTS);
+        MoviesStore actual = new MoviesStore(StoreLayout.SNAPSHOT);
+        Random random = new Random(17);
+        for (int i = 0; i < 3_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                String title = "Movie " + i;
+                int year = 1950 + random.nextInt(20);
+                assertEquals(expected.add(title, year).getId(), actual.add(title, year).getId());
+            } else if (op < 8) {
+                List<MovieDraft> drafts = new ArrayList<>();
+                for (int j = random.nextInt(700); j > 0; j--) {
+                    drafts.add(new MovieDraft("Batch " + i + "-" + j, 1950 + random.nextInt(20)));
+                }
+                expected.addAll(drafts);
+                actual.addAll(drafts);
+            } else {
+                int id = 1 + random.nextInt(Math.max(1, expected.size() * 2));
+                assertEquals(expected.deleteById(id), actual.deleteById(id));
+            }
+        }
+
+        assertEquals(ids(expected.getAll()), ids(actual.getAll()));
+        assertEquals(ids(expected.getByYearRange(1955, 1962)), ids(actual.getByYearRange(1955, 1962)));
+        assertEquals(ids(expected.getByYearRange(1950, 1970, 1957, 1000, 900)),
+                ids(actual.getByYearRange(1950, 1970, 1957, 1000, 900)));
+        assertEquals(ids(expected.getPage(777, 1500)), ids(actual.getPage(777, 1500)));
+    }
+
+    @Test
+    void snapshotLayout_listsDoNotChangeAfterWrites() {
+        MoviesStore store = new MoviesStore(StoreLayout.SNAPSHOT);
+        Movie first = store.add("Alien", 1979);
+        store.add("Aliens", 1986);
+        List<Movie> all = store.getAll();
+        List<Movie> of1979 = store.getByYear(1979);
+
+        store.add("Alien 3", 1992);
+        store.deleteById(first.getId());
+
+        assertEquals(List.of("Alien", "Aliens"), all.stream().map(Movie::getTitle).toList());
+        assertEquals(1, of1979.size());
+        assertEquals(List.of("Aliens", "Alien 3"), store.getAll().stream().map(Movie::getTitle).toList());
+        assertTrue(store.getByYear(1979).isEmpty());
+    }
+
+    @Test
+    void shardedStore_matchesSingleTable() {
+        MoviesStore expected = new MoviesStore(StoreLayout.OBJECTS);
+        MoviesStore actual = new MoviesStore(StoreLayout.COLUMNAR, 5);
+        Random random = new Random(29);
+        for (int i = 0; i < 3_000; i++) {
+            int op = random.nextInt(10);
+            if (op < 6) {
+                String title = "Movie " + i;
+                int year = 1950 + random.nextInt(20);
+                assertEquals(expected.add(title, year).getId(), actual.add(title, year).getId());
+            } else if (op < 8) {
+                List<MovieDraft> drafts = new ArrayList<>();
+                for (int j = random.nextInt(700); j > 0; j--) {
+                    drafts.add(new MovieDraft("Batch " + i + "-" + j, 1950 + random.nextInt(20)));
+                }
+                expected.addAll(drafts);
+                actual.addAll(drafts);
+            } else {
+                int id = 1 + random.nextInt(Math.max(1, expected.size() * 2));
+                assertEquals(expected.deleteById(id), actual.deleteById(id));
+            }
+        }
+
+        assertEquals(expected.size(), actual.size());
+        // большие выборки собираются в fork-join пуле, страницы API опрашивают части в нём же, маленькие
+        // собираются в вызывающем потоке
+        assertEquals(ids(expected.getAll()), ids(actual.getAll()));
+        assertEquals(ids(expected.getPage(777, 5000)), ids(actual.getPage(777, 5000)));
+        assertEquals(ids(expected.getPage(777, 1001)), ids(actual.getPage(777, 1001)));
+        assertEquals(ids(expected.getPage(777, 15)), ids(actual.getPage(777, 15)));
+        assertEquals(ids(expected.getByYearRange(1955, 1962)), ids(actual.getByYearRange(1955, 1962)));
+        assertEquals(ids(expected.getByYearRange(1950, 1970, 1957, 1000, 900)),
+                ids(actual.getByYearRange(1950, 1970, 1957, 1000, 900)));
+        assertEquals(ids(expected.getByYear(1960)), ids(actual.getByYear(1960)));
+        for (Movie movie : expected.getAll()) {
+            assertEquals(movie.getTitle(), actual.getById(movie.getId()).orElseThrow().getTitle());
+        }
+    }
+
+    @Test
+    void shardedStore_snapshotRestoresAllShards() throws Exception {
+        Path dir = Files.createTempDirectory("movies-sharded");
+        List<Integer> ids;
+        try (MoviesStore store = MoviesStore.open(dir, StoreLayout.SNAPSHOT, 4)) {
+            List<MovieDraft> drafts = new ArrayList<>();
+            for (int i = 0; i < 5_000; i++) {
+                drafts.add(new MovieDraft("Movie " + i, 1900 + i % 100));
+            }
+            store.addAll(drafts);
+            store.deleteById(10);
+            store.snapshot();
+            ids = ids(store.getAll());
+        }
+
+        try (MoviesStore store = MoviesStore.open(dir, StoreLayout.OBJECTS, 3)) {
+            assertEquals(ids, ids(store.getAll()));
+            assertEquals(50, store.getByYear(1950).size());
+            assertEquals(5_001, store.add("Alien", 1979).getId());
+        }
+    }
+
+    @Test
+    void movieRun_keepsIdOrderForRandomInsertsAndRemovals() {
+        MovieRun run = MovieRun.EMPTY;
+        TreeMap<Integer, Movie> expected = new TreeMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5_000; i++) {
+            int id = random.nextInt(4_000);
+            if (random.nextInt(4) == 0) {
+                run = run.without(id);
+                expected.remove(id);
+            } else {
+                Movie movie = new Movie(id, "Movie " + i, 2000);
+                run = run.with(movie);
+                expected.put(id, movie);
+            }
+        }
+
+        assertEquals(new ArrayList<>(expected.values()), run.slice(0, run.size()));
+        assertEquals(expected.headMap(2_000, true).size(), run.upperBound(2_000));
+    }
+
+    @Test
+    void columnarLayout_concurrentReadsAndWrites() throws Exception {
+        MoviesStore store = new MoviesStore(StoreLayout.COLUMNAR);
+        int threads = 4;
+        int perThread = 2_000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads * 2);
+        List<Future<?>> tasks = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    Movie movie = store.add("Movie " + i, 1900 + i % 100);
+                    if (i % 3 == 0) {
+                        store.deleteById(movie.getId());
+                    }
+                }
+                return null;
+            }));
+            tasks.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perThread; i++) {
+                    for (Movie movie : store.getPage(0, 50)) {
+                        assertTrue(movie.getTitle().startsWith("Movie "));
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> task : tasks) {
+            task.get(20, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        int expected = threads * (perThread - (perThread + 2) / 3);
+        assertEquals(expected, store.getAll().size());
+        assertEquals(expected, store.getByYearRange(1900, 2000).size());
+    }
+
+    @Test
+    void search_foldsCaseAndYoAndDropsDeletedMovies() {
+        MoviesStore store = new MoviesStore();
+        Movie hedgehog = store.add("Ёжик в тумане", 1975);
+        store.add("Туманность Андромеды", 1967);
+        store.add("The Fog", 1980);
+
+        List<Movie> found = store.search("ежик", Integer.MIN_VALUE, Integer.MAX_VALUE, 10);
+        assertEquals(1, found.size());
+        assertEquals(hedgehog.getId(), found.get(0).getId());
+
+        List<Movie> fog = store.search("ТУМАН", Integer.MIN_VALUE, Integer.MAX_VALUE, 10);
+        assertEquals(2, fog.size());
+        // название, которое начинается с искомого слова, выше
+        assertEquals("Туманность Андромеды", fog.get(0).getTitle());
+
+        assertEquals(1, store.search("туман", 1960, 1970, 10).size());
+
+        assertTrue(store.deleteById(hedgehog.getId()));
+        assertEquals(0, store.search("ежик", Integer.MIN_VALUE, Integer.MAX_VALUE, 10).size());
+    }
+
+    private static List<Integer> ids(List<Movie> movies) {
+        return movies.stream().map(Movie::getId).toList();
+    }
+
+    @Test
+    void changes_recordMutationsInOrder() {
+        MoviesStore store = new MoviesStore();
+        Movie first = store.add("Alien", 1979);
+        store.addAll(List.of(new MovieDraft("Aliens", 1986), new MovieDraft("Alien 3", 1992)));
+        store.deleteById(first.getId());
+        store.deleteById(first.getId());
+        store.clear();
+
+        List<ChangeEvent> events = store.getChanges().since(0, 100);
+
+        assertEquals(5, events.size(), "повторное удаление ничего не меняет и в ленту не попадает");
+        assertEquals(List.of(ChangeEvent.Type.ADDED, ChangeEvent.Type.ADDED, ChangeEvent.Type.ADDED,
+                ChangeEvent.Type.DELETED, ChangeEvent.Type.CLEARED), events.stream().map(ChangeEvent::getType).toList());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i + 1, events.get(i).getSeq());
+        }
+        assertEquals("{\"seq\":1,\"type\":\"added\",\"movie\":{\"id\":1,\"title\":\"Alien\",\"year\":1979}}",
+                new String(events.get(0).toJson(), StandardCharsets.UTF_8));
+        assertEquals("{\"seq\":4,\"type\":\"deleted\",\"id\":1}", new String(events.get(3).toJson(), StandardCharsets.UTF_8));
+        assertEquals(List.of(), store.getChanges().since(5, 100));
+    }
+
+    @Test
+    void changeFeed_asksForResyncWhenEventsAreEvictedOrUnknown() {
+        ChangeFeed feed = new ChangeFeed(4);
+        for (int id = 1; id <= 6; id++) {
+            feed.deleted(id);
+        }
+
+        assertEquals(List.of(3L, 4L, 5L, 6L), feed.since(2, 10).stream().map(ChangeEvent::getSeq).toList());
+        assertEquals(List.of(3L, 4L), feed.since(2, 2).stream().map(ChangeEvent::getSeq).toList());
+        assertEquals(null, feed.since(1, 10), "событие 2 уже вытеснено");
+        assertEquals(null, feed.since(7, 10), "номер из будущего — клиент помнит прошлый запуск сервера");
+    }
+
+    @Test
+    void changeFeed_awaitWakesUpOnNewEvent() throws Exception {
+        ChangeFeed feed = new ChangeFeed(16);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            Future<List<ChangeEvent>> waiting = pool.submit(() -> feed.await(0, 10, 10_000));
+            Thread.sleep(50);
+            feed.deleted(42);
+
+            List<ChangeEvent> events = waiting.get(5, TimeUnit.SECONDS);
+            assertEquals(1, events.size());
+            assertEquals(42, events.get(0).getMovieId());
+            assertEquals(List.of(), feed.await(1, 10, 20), "без новых событий ожидание кончается по тайм-ауту");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void importAll_keepsIdsReplacesExistingAndSurvivesRestart() throws Exception {
+        Path dir = Files.createTempDirectory("movies-import");
+        try (MoviesStore store = MoviesStore.open(dir)) {
+            store.add("Alien", 1979);
+            store.importAll(List.of(new Movie(1, "Blade Runner", 1982), new Movie(40, "Heat", 1995)));
+
+            assertEquals("Blade Runner", store.getById(1).orElseThrow().getTitle());
+            assertEquals(41, store.add("Ronin", 1998).getId(), "nextId сдвигается за импортированные id");
+            assertEquals(List.of(), store.search("alien", 0, 3000, 10), "прежнее название уходит из индекса");
+        }
+        try (MoviesStore restored = MoviesStore.open(dir)) {
+            assertEquals(List.of(1, 40, 41), restored.getAll().stream().map(Movie::getId).toList());
+            assertEquals("Blade Runner", restored.getById(1).orElseThrow().getTitle());
+            assertEquals(List.of(), restored.search("alien", 0, 3000, 10));
+            assertEquals(42, restored.add("Fargo", 1996).getId());
+        }
+    }
+
+    @Test
+    void importAll_overExistingIdWithNewYear_movesMovieBetweenYears() {
+        for (StoreLayout layout : StoreLayout.values()) {
+            for (int shards : new int[]{1, 3}) {
+                MoviesStore store = new MoviesStore(layout, shards);
+                store.add("Old", 2000);
+                store.add("Neighbour", 2000);
+                store.importAll(List.of(new Movie(1, "New", 2010)));
+
+                String where = layout + ", частей: " + shards;
+                assertEquals(List.of("Neighbour"), store.getByYear(2000).stream().map(Movie::getTitle).toList(), where);
+                assertEquals(List.of("New"), store.getByYear(2010).stream().map(Movie::getTitle).toList(), where);
+                assertEquals(List.of(2, 1), ids(store.getByYearRange(1990, 2020)), where);
+            }
+        }
+    }
+
+    @Test
+    void close_racingWriters_neverLeavesThemWaiting() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            MoviesStore store = MoviesStore.open(Files.createTempDirectory("movies-close"));
+            ExecutorService pool = Executors.newFixedThreadPool(4);
+            CountDownLatch started = new CountDownLatch(4);
+            List<Future<?>> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                writers.add(pool.submit(() -> {
+                    started.countDown();
+                    try {
+                        while (true) {
+                            store.add("Movie", 2000);
+                        }
+                    } catch (IllegalStateException closed) {
+                        return null;
+                    }
+                }));
+            }
+            started.await();
+            store.close();
+            for (Future<?> writer : writers) {
+                writer.get(5, TimeUnit.SECONDS);
+            }
+            pool.shutdown();
+        }
+    }
+}
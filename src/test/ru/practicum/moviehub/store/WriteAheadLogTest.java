@@ -0,0 +1,159 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class WriteAheadLogTest {
+
+    @Test
+    void append_afterFailedWrite_isNotLostBehindHalfWrittenRecord() throws Exception {
+        Path file = Files.createTempDirectory("movies-wal").resolve("movies.wal");
+        FaultyChannel channel = new FaultyChannel(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.READ));
+        try (WriteAheadLog log = new WriteAheadLog(file, channel)) {
+            log.appendAdd(new Movie(1, "Alien", 1979, 1));
+            channel.failNextWrite = true;
+            assertThrows(UncheckedIOException.class, () -> log.appendAdd(new Movie(2, "Aliens", 1986, 2)));
+            log.appendAdd(new Movie(3, "Heat", 1995, 3));
+        }
+
+        List<Integer> replayed = new ArrayList<>();
+        WriteAheadLog.replay(file, new WriteAheadLog.Replay() {
+            @Override
+            public void onAdd(int id, String title, int year) {
+                replayed.add(id);
+            }
+
+            @Override
+            public void onDelete(int id) {
+            }
+
+            @Override
+            public void onClear() {
+            }
+        });
+        assertEquals(List.of(1, 3), replayed, "запись после сбоя должна пережить перезапуск");
+    }
+
+    /**
+     * Канал, который по требованию дописывает в файл половину буфера и падает.
+     */
+    private static class FaultyChannel extends FileChannel {
+        private final FileChannel delegate;
+        volatile boolean failNextWrite;
+
+        FaultyChannel(FileChannel delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            if (failNextWrite) {
+                failNextWrite = false;
+                ByteBuffer half = src.slice(src.position(), src.remaining() / 2);
+                delegate.write(half);
+                throw new IOException("Нет места на диске");
+            }
+            return delegate.write(src);
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}